@@ -0,0 +1,28 @@
+package com.vik.utils.bench;
+
+import org.springframework.util.*;
+
+import java.lang.reflect.*;
+
+/**
+ * Stands in for the container: runs lifecycle callbacks and field injection on beans the benchmarks wire
+ * up by hand.
+ */
+final class BenchSupport {
+
+    private BenchSupport() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    static void invoke(Object target, String methodName) {
+        Method method = ReflectionUtils.findMethod(target.getClass(), methodName);
+        ReflectionUtils.makeAccessible(method);
+        ReflectionUtils.invokeMethod(method, target);
+    }
+
+    static void inject(Object target, String fieldName, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
@@ -0,0 +1,107 @@
+package com.vik.utils.bench;
+
+import com.fasterxml.jackson.databind.*;
+import com.vik.utils.controller.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.buffer.*;
+import reactor.core.publisher.*;
+
+import java.lang.reflect.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Per-request service/method resolution and invocation in {@link DownstreamController}: the reflective
+ * lookup it used to do on every request versus the pre-built {@link DownstreamDispatchTable}, plus the full
+ * {@code hit} path including body parsing and scheduling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DownstreamDispatchBenchmark {
+
+    private BenchController controller;
+    private DownstreamDispatchTable table;
+    private EchoRequest request;
+    private byte[] body;
+
+    private final Map<String, Method> methodCache = new ConcurrentHashMap<>();
+    private final Map<String, Class<?>> parameterTypeCache = new ConcurrentHashMap<>();
+
+    @Setup
+    public void setup() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        controller = new BenchController(objectMapper);
+        table = DownstreamDispatchTable.build(controller, objectMapper);
+        request = new EchoRequest();
+        request.setId("order-42");
+        request.setQuantity(3);
+        body = "{\"id\":\"order-42\",\"quantity\":3}".getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        Field field = controller.getClass().getDeclaredField("echoService");
+        field.setAccessible(true);
+        Object service = field.get(controller);
+
+        String cacheKey = service.getClass().getName() + "#" + "echo";
+        Method method = methodCache.computeIfAbsent(cacheKey, k -> {
+            for (Method candidate : service.getClass().getDeclaredMethods()) {
+                if (candidate.getName().equals("echo")) {
+                    return candidate;
+                }
+            }
+            return null;
+        });
+        parameterTypeCache.computeIfAbsent(method.toString(), k -> method.getParameterTypes()[0]);
+        return method.invoke(service, request);
+    }
+
+    @Benchmark
+    public Object dispatchTable() throws Exception {
+        return table.find("echoService", "echo").invoke(request);
+    }
+
+    @Benchmark
+    public Object hit() {
+        return controller.hit("echoService", "echo",
+                Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body))).block();
+    }
+
+    public static class BenchController extends DownstreamController {
+        private final EchoService echoService = new EchoService();
+
+        public BenchController(ObjectMapper objectMapper) {
+            super(objectMapper);
+        }
+    }
+
+    public static class EchoService {
+        public EchoRequest echo(EchoRequest request) {
+            return request;
+        }
+    }
+
+    public static class EchoRequest {
+        private String id;
+        private int quantity;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
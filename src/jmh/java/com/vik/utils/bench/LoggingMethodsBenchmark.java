@@ -0,0 +1,67 @@
+package com.vik.utils.bench;
+
+import com.fasterxml.jackson.databind.*;
+import com.vik.utils.*;
+import com.vik.utils.config.*;
+import com.vik.utils.logging.*;
+import com.vik.utils.metrics.*;
+import io.micrometer.core.instrument.simple.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.env.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * {@link LoggingMethods#logDownstreamRequestResponse} with small and large payloads. The jmh logback config
+ * has no appenders, so this measures metric lookup and payload serialization rather than I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoggingMethodsBenchmark {
+
+    @Param({"small", "large"})
+    public String payload;
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    private LoggingMethods loggingMethods;
+    private Map<String, Object> request;
+    private Map<String, Object> response;
+
+    @Setup
+    public void setup() {
+        LoggingProperties loggingProperties = new LoggingProperties();
+        loggingProperties.getAsync().setEnabled(async);
+        loggingMethods = new LoggingMethods(
+                new PayloadSerializer(new ObjectMapper(), loggingProperties),
+                new StandardEnvironment(),
+                new MetricsService(new SimpleMeterRegistry()),
+                loggingProperties,
+                new PathNormalizer(new MetricsProperties()),
+                new StackTraceFingerprinter(loggingProperties));
+        BenchSupport.invoke(loggingMethods, "startAsyncPipeline");
+        request = Payloads.of(payload);
+        response = Payloads.of(payload);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchSupport.invoke(loggingMethods, "stopAsyncPipeline");
+    }
+
+    @Benchmark
+    public void logRequestResponse() {
+        loggingMethods.logDownstreamRequestResponse(
+                "OrderClient.getOrder", "orders.internal", "/orders/{id}", response, request);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void logRequestResponseContended() {
+        loggingMethods.logDownstreamRequestResponse(
+                "OrderClient.getOrder", "orders.internal", "/orders/{id}", response, request);
+    }
+}
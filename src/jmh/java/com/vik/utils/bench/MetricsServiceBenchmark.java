@@ -0,0 +1,56 @@
+package com.vik.utils.bench;
+
+import com.vik.utils.*;
+import io.micrometer.core.instrument.simple.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * {@link MetricsService#incrementCounter} with a growing number of distinct tag tuples per metric, single
+ * threaded and under contention. Cardinalities above {@code utils.metrics.max-tag-combinations} exercise the
+ * "other" overflow path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsServiceBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int cardinality;
+
+    private MetricsService metricsService;
+    private String[][] tags;
+
+    @Setup
+    public void setup() {
+        metricsService = new MetricsService(new SimpleMeterRegistry());
+        tags = new String[cardinality][];
+        for (int i = 0; i < cardinality; i++) {
+            tags[i] = new String[]{"dns", "host-" + (i % 10), "path", "/orders/" + i};
+            metricsService.incrementCounter("Outgoing_Request", tags[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public void incrementCounter(Cursor cursor) {
+        metricsService.incrementCounter("Outgoing_Request", nextTags(cursor));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void incrementCounterContended(Cursor cursor) {
+        metricsService.incrementCounter("Outgoing_Request", nextTags(cursor));
+    }
+
+    private String[] nextTags(Cursor cursor) {
+        int index = cursor.next;
+        cursor.next = index + 1 == cardinality ? 0 : index + 1;
+        return tags[index];
+    }
+}
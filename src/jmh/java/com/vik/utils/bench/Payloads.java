@@ -0,0 +1,58 @@
+package com.vik.utils.bench;
+
+import com.fasterxml.jackson.databind.*;
+
+import java.util.*;
+
+/**
+ * Request/response shaped fixtures shared by the benchmarks.
+ */
+final class Payloads {
+
+    private Payloads() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    static Map<String, Object> of(String size) {
+        return "large".equals(size) ? large() : small();
+    }
+
+    static String json(String size) {
+        return "large".equals(size) ? LARGE_JSON : SMALL_JSON;
+    }
+
+    static Map<String, Object> small() {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderId", "order-42");
+        payload.put("quantity", 3);
+        payload.put("express", true);
+        return payload;
+    }
+
+    static Map<String, Object> large() {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderId", "order-42");
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("sku", "SKU-" + i);
+            line.put("quantity", i % 7);
+            line.put("price", 10.5 + i);
+            line.put("description", "Line item " + i + " with a reasonably long free text description");
+            lines.add(line);
+        }
+        payload.put("lines", lines);
+        return payload;
+    }
+
+    private static final String SMALL_JSON = "{\"orderId\":\"order-42\",\"quantity\":3,\"express\":true}";
+    private static final String LARGE_JSON = toJson(large());
+
+    private static String toJson(Object value) {
+        try {
+            return new ObjectMapper().writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
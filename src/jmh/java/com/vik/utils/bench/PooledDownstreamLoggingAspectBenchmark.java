@@ -0,0 +1,80 @@
+package com.vik.utils.bench;
+
+import com.fasterxml.jackson.databind.*;
+import com.vik.utils.*;
+import com.vik.utils.aop.annotations.*;
+import com.vik.utils.aop.aspects.*;
+import com.vik.utils.config.*;
+import com.vik.utils.logging.*;
+import com.vik.utils.metrics.*;
+import io.micrometer.core.instrument.simple.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.aspectj.annotation.*;
+import org.springframework.core.env.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Overhead of {@link PooledDownstreamLoggingAspect} around a no-op downstream call, compared with calling
+ * the target directly. {@code sampleRate} 0 keeps only the metrics; 1 serializes and logs every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PooledDownstreamLoggingAspectBenchmark {
+
+    private static final String URL = "https://orders.internal/orders/42?expand=lines";
+
+    @Param({"0.0", "1.0"})
+    public double sampleRate;
+
+    private DownstreamClient bare;
+    private DownstreamClient advised;
+
+    @Setup
+    public void setup() {
+        LoggingProperties loggingProperties = new LoggingProperties();
+        loggingProperties.getSampling().setSampleRate(sampleRate);
+        MetricsService metricsService = new MetricsService(new SimpleMeterRegistry());
+        LoggingMethods loggingMethods = new LoggingMethods(
+                new PayloadSerializer(new ObjectMapper(), loggingProperties),
+                new StandardEnvironment(),
+                metricsService,
+                loggingProperties,
+                new PathNormalizer(new MetricsProperties()),
+                new StackTraceFingerprinter(loggingProperties));
+
+        PooledDownstreamLoggingAspect aspect = new PooledDownstreamLoggingAspect();
+        BenchSupport.inject(aspect, "loggingMethods", loggingMethods);
+        BenchSupport.inject(aspect, "logSampler", new LogSampler(loggingProperties, metricsService));
+
+        bare = new DownstreamClient();
+        AspectJProxyFactory factory = new AspectJProxyFactory(new DownstreamClient());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        advised = factory.getProxy();
+    }
+
+    @Benchmark
+    public Object bare() {
+        return bare.get(URL);
+    }
+
+    @Benchmark
+    public Object advised() {
+        return advised.get(URL);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object advisedContended() {
+        return advised.get(URL);
+    }
+
+    public static class DownstreamClient {
+        @PooledDownstreamLog
+        public String get(String url) {
+            return "ok";
+        }
+    }
+}
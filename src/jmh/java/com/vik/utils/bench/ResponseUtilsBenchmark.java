@@ -0,0 +1,42 @@
+package com.vik.utils.bench;
+
+import com.fasterxml.jackson.core.type.*;
+import com.vik.utils.*;
+import org.apache.commons.lang3.tuple.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * {@link ResponseUtils#commandResponseHandlerV3} parsing a 200 response into a map, small and large bodies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResponseUtilsBenchmark {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    @Param({"small", "large"})
+    public String payload;
+
+    private Pair<Integer, String> response;
+
+    @Setup
+    public void setup() {
+        response = Pair.of(200, Payloads.json(payload));
+    }
+
+    @Benchmark
+    public Map<String, Object> commandResponseHandlerV3() throws Exception {
+        return ResponseUtils.commandResponseHandlerV3(response, MAP_TYPE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Map<String, Object> commandResponseHandlerV3Contended() throws Exception {
+        return ResponseUtils.commandResponseHandlerV3(response, MAP_TYPE);
+    }
+}
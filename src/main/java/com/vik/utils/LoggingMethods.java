@@ -1,53 +1,84 @@
 package com.vik.utils;
 
-import com.fasterxml.jackson.core.*;
-import com.fasterxml.jackson.databind.*;
+import com.vik.utils.config.*;
 import com.vik.utils.exceptions.*;
+import com.vik.utils.logging.*;
+import com.vik.utils.metrics.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.configurationprocessor.json.JSONArray;
-import org.springframework.boot.configurationprocessor.json.JSONObject;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
+import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class LoggingMethods {
+    static final String EVENT_TIMESTAMP_MDC_KEY = "downstreamEventTime";
+    static final int MAX_CACHED_TARGETS = 10_000;
+
     @Autowired
-    private final ObjectMapper objectMapper;
+    private final PayloadSerializer payloadSerializer;
     @Autowired
     private final Environment environment;
     @Autowired
     private final MetricsService metricsService;
+    @Autowired
+    private final LoggingProperties loggingProperties;
+    @Autowired
+    private final PathNormalizer pathNormalizer;
+    @Autowired
+    private final StackTraceFingerprinter stackTraceFingerprinter;
+
+    private AsyncLogPipeline<DownstreamLogEvent> asyncPipeline;
+
+    // Resolved ${...} placeholders; dropped whenever the environment changes
+    private final ConcurrentMap<String, String> resolvedProperties = new ConcurrentHashMap<>();
+    // Meter handles per host and endpoint as the aspects pass them, so hot paths skip the MetricsService lookup
+    private final ConcurrentMap<String, ConcurrentMap<String, DownstreamMeters>> downstreamMeters =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger cachedTargets = new AtomicInteger();
+
+    @PostConstruct
+    void startAsyncPipeline() {
+        LoggingProperties.Async async = loggingProperties.getAsync();
+        if (async.isEnabled()) {
+            asyncPipeline = new AsyncLogPipeline<>("downstream-log-drain", async, this::writeDeferred, metricsService);
+        }
+    }
+
+    @PreDestroy
+    void stopAsyncPipeline() {
+        if (asyncPipeline != null) {
+            asyncPipeline.close();
+        }
+    }
 
     public void logDownstreamRequest(String classMethodName,
                                      String host,
                                      String endpoint,
                                      Object... args) {
         try {
-            String dns = getProperty(host);
-            String path = getProperty(endpoint);
-            String requestStr = getString(args);
+            DownstreamMeters meters = meters(host, endpoint);
+            meters.request().increment();
 
-            metricsService.incrementCounter("Outgoing_Request",
-                    "dns", dns,
-                    "path", path);
-
-            log.info(
-                    "Downstream Request {} :: dns: {}, path : {}. request : {}",
-                    classMethodName,
-                    dns,
-                    path,
-                    requestStr);
+            emit(DownstreamLogEvent.request(classMethodName, meters.dns, meters.path, args, captureMdc()));
         } catch (Exception e) {
             log.error("Exception while logging downstream request: {}", ExceptionUtils.getStackTrace(e));
         }
@@ -60,24 +91,32 @@ public class LoggingMethods {
             Object response,
             Object... args) {
         try {
-            String dns = getProperty(host);
-            String path = getProperty(endpoint);
-            String requestStr = getString(args);
-            String responseStr = getString(response);
-            Map<String, String> tags = Collections.unmodifiableMap(new HashMap<String, String>() {{
-                put("dns", dns);
-                put("path", path);
-            }});
-            metricsService.incrementCounter("Outgoing_Response",
-                    "dns", dns,
-                    "path", path);
-            log.info(
-                    "Downstream Response {} :: dns: {}, path : {}. response : {}, request : {}",
-                    classMethodName,
-                    dns,
-                    path,
-                    responseStr,
-                    requestStr);
+            DownstreamMeters meters = meters(host, endpoint);
+            meters.response().increment();
+
+            emit(DownstreamLogEvent.response(classMethodName, meters.dns, meters.path, response, args,
+                    captureMdc()));
+        } catch (Exception e) {
+            log.error("Exception : {}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    /**
+     * Logs a {@code @CachedDownstream} call answered from the cache, counted as an {@code Outgoing_Cache} hit
+     * rather than as a request/response pair.
+     */
+    public void logDownstreamCacheHit(
+            String classMethodName,
+            String host,
+            String endpoint,
+            Object response,
+            Object... args) {
+        try {
+            DownstreamMeters meters = meters(host, endpoint);
+            meters.counter("Outgoing_Cache", meters.cache, "hit").increment();
+
+            emit(DownstreamLogEvent.cacheHit(classMethodName, meters.dns, meters.path, response, args,
+                    captureMdc()));
         } catch (Exception e) {
             log.error("Exception : {}", ExceptionUtils.getStackTrace(e));
         }
@@ -91,28 +130,11 @@ public class LoggingMethods {
             Object... args) {
         try {
             Throwable rootCause = getRootCause(t);
-            Integer statusCode = -1;
-
-            if (rootCause instanceof DownStreamException ex) {
-                statusCode = ex.getStatusCode();
-            }
-
             String dns = getProperty(host);
             String path = getProperty(endpoint);
             String requestStr = getString(args);
 
-            List<String> tags = new ArrayList<>(List.of(
-                    "dns", dns,
-                    "path", path,
-                    "error", rootCause.getClass().getSimpleName()
-            ));
-
-            if (statusCode != -1) {
-                tags.add("statusCode");
-                tags.add(String.valueOf(statusCode));
-            }
-
-            metricsService.incrementCounter("Outgoing_Fallback", tags.toArray(new String[0]));
+            Integer statusCode = incrementFallback(rootCause, dns, path);
 
             log.error(
                     "Downstream Fallback {} :: dns: {}, path : {}, statusCode: {}, request : {}, trace : {}",
@@ -121,7 +143,7 @@ public class LoggingMethods {
                     path,
                     statusCode,
                     requestStr,
-                    ExceptionUtils.getStackTrace(rootCause));
+                    stackTraceFingerprinter.render(rootCause));
         } catch (Exception e) {
             log.error("Exception : {}", ExceptionUtils.getStackTrace(e));
             metricsService.incrementCounter(
@@ -130,44 +152,351 @@ public class LoggingMethods {
         }
     }
 
+    /**
+     * Records a downstream call's duration in the {@code Outgoing_Latency} timer, whose distribution is
+     * configured under {@code utils.metrics.timers.Outgoing_Latency}.
+     */
+    public void recordDownstreamLatency(String host, String endpoint, boolean success, long elapsedNanos) {
+        recordDownstreamLatency(host, endpoint, success ? "success" : "error", elapsedNanos);
+    }
 
-    private String getString(Object[] args) {
-        if (args == null || args.length == 0) {
-            return "[]";
+    /**
+     * @param outcome {@code success}, {@code error} or {@code cancelled}
+     */
+    public void recordDownstreamLatency(String host, String endpoint, String outcome, long elapsedNanos) {
+        try {
+            meters(host, endpoint).latency(outcome).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            log.error("Exception : {}", ExceptionUtils.getStackTrace(e));
         }
+    }
 
-        List<String> serializedArgs = new ArrayList<>();
-        for (Object arg : args) {
-            try {
-                serializedArgs.add(getString(arg));
-            } catch (JsonProcessingException e) {
-                serializedArgs.add("\"<unserializable>\"");
+    /**
+     * The {@code Outgoing_Latency} timer of successful calls to {@code host} and {@code endpoint}.
+     */
+    public Timer downstreamLatency(String host, String endpoint) {
+        return meters(host, endpoint).latency("success");
+    }
+
+    /**
+     * Records a call the caller gave up on before it completed (timeout, hedge loser, cancelled subscription)
+     * in {@code Outgoing_Cancelled}, logging it when {@code emitLog} is set.
+     */
+    public void logDownstreamCancelled(String classMethodName, String host, String endpoint, long elapsedNanos,
+                                       boolean emitLog) {
+        try {
+            DownstreamMeters meters = meters(host, endpoint);
+            meters.cancelled().increment();
+            if (emitLog) {
+                log.warn("Downstream Cancelled {} :: dns: {}, path : {}, after {} ms",
+                        classMethodName, meters.dns, meters.path, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
             }
+        } catch (Exception e) {
+            log.error("Exception : {}", ExceptionUtils.getStackTrace(e));
         }
-        return "[" + String.join(", ", serializedArgs) + "]";
     }
 
-    private String getString(Object request) throws JsonProcessingException {
-        if (request == null) {
-            return null;
-        } else if (request instanceof String) {
-            return (String) request;
-        } else if (request instanceof JSONArray || request instanceof JSONObject) {
-            return request.toString();
+    /**
+     * Records the {@code Outgoing_Request} metric of a call whose request is not logged.
+     */
+    public void countDownstreamRequest(String host, String endpoint) {
+        try {
+            meters(host, endpoint).request().increment();
+        } catch (Exception e) {
+            log.error("Exception : {}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    /**
+     * Records the {@code Outgoing_Response} metric of a call whose response is not logged.
+     */
+    public void countDownstreamResponse(String host, String endpoint) {
+        try {
+            meters(host, endpoint).response().increment();
+        } catch (Exception e) {
+            log.error("Exception : {}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    /**
+     * Records the {@code Outgoing_Fallback} metric of a failed call that is not logged.
+     */
+    public void countDownstreamFallback(String classMethodName, String host, String endpoint, Throwable t) {
+        try {
+            incrementFallback(getRootCause(t), getProperty(host), getProperty(endpoint));
+        } catch (Exception e) {
+            log.error("Exception : {}", ExceptionUtils.getStackTrace(e));
+            metricsService.incrementCounter(
+                    "OUTGOING_FALLBACK_HANDLING_FAILURE",
+                    "e", e.getClass().getSimpleName(), "classMethodName", classMethodName);
+        }
+    }
+
+    /**
+     * Records an {@code Outgoing_Retry} decision for a {@code @RetryableDownstream} call; {@code outcome} is
+     * one of {@code retried}, {@code recovered}, {@code attempts_exhausted} or {@code budget_exhausted}.
+     */
+    public void countDownstreamRetry(String host, String endpoint, String outcome) {
+        try {
+            DownstreamMeters meters = meters(host, endpoint);
+            meters.counter("Outgoing_Retry", meters.retry, outcome).increment();
+        } catch (Exception e) {
+            log.error("Exception : {}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    /**
+     * Records an {@code Outgoing_Hedge} event for a {@code @HedgedDownstream} call; {@code outcome} is one of
+     * {@code fired}, {@code won} or {@code budget_exhausted}.
+     */
+    public void countDownstreamHedge(String host, String endpoint, String outcome) {
+        try {
+            DownstreamMeters meters = meters(host, endpoint);
+            meters.counter("Outgoing_Hedge", meters.hedge, outcome).increment();
+        } catch (Exception e) {
+            log.error("Exception : {}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    /**
+     * Records an {@code Outgoing_Coalesced} call that shared the result of an identical in-flight call
+     * instead of reaching the host.
+     */
+    public void countDownstreamCoalesced(String host, String endpoint) {
+        try {
+            meters(host, endpoint).coalesced().increment();
+        } catch (Exception e) {
+            log.error("Exception : {}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    /**
+     * Records an {@code Outgoing_Cache} lookup that is not logged; {@code outcome} is {@code hit} or
+     * {@code miss}.
+     */
+    public void countDownstreamCache(String host, String endpoint, String outcome) {
+        try {
+            DownstreamMeters meters = meters(host, endpoint);
+            meters.counter("Outgoing_Cache", meters.cache, outcome).increment();
+        } catch (Exception e) {
+            log.error("Exception : {}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    private Integer incrementFallback(Throwable rootCause, String dns, String path) {
+        Integer statusCode = -1;
+
+        if (rootCause instanceof DownStreamException ex) {
+            statusCode = ex.getStatusCode();
+        }
+
+        // Prometheus needs the same tag keys on every series of a metric, so statusCode is always present
+        metricsService.counter("Outgoing_Fallback",
+                "dns", dns,
+                "path", pathNormalizer.normalize(path),
+                "error", rootCause.getClass().getSimpleName(),
+                "statusCode", statusCode != -1 ? String.valueOf(statusCode) : "none").increment();
+        return statusCode;
+    }
+
+    private void emit(DownstreamLogEvent event) {
+        if (asyncPipeline != null) {
+            asyncPipeline.publish(event);
         } else {
-            return objectMapper.writeValueAsString(request);
+            writeEvent(event);
+        }
+    }
+
+    private Map<String, String> captureMdc() {
+        if (asyncPipeline == null || !loggingProperties.getAsync().isCaptureMdc()) {
+            return null;
+        }
+        return MDC.getCopyOfContextMap();
+    }
+
+    private void writeDeferred(DownstreamLogEvent event) {
+        Map<String, String> callerMdc = event.getMdc();
+        if (callerMdc != null) {
+            MDC.setContextMap(callerMdc);
+        }
+        MDC.put(EVENT_TIMESTAMP_MDC_KEY, Instant.ofEpochMilli(event.getTimestamp()).toString());
+        try {
+            writeEvent(event);
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    private void writeEvent(DownstreamLogEvent event) {
+        try {
+            String requestStr = getString(event.getArgs());
+            if (event.getKind() == DownstreamLogEvent.Kind.REQUEST) {
+                log.info(
+                        "Downstream Request {} :: dns: {}, path : {}. request : {}",
+                        event.getClassMethodName(),
+                        event.getDns(),
+                        event.getPath(),
+                        requestStr);
+            } else if (event.getKind() == DownstreamLogEvent.Kind.CACHE_HIT) {
+                log.info(
+                        "Downstream Cache Hit {} :: dns: {}, path : {}. response : {}, request : {}",
+                        event.getClassMethodName(),
+                        event.getDns(),
+                        event.getPath(),
+                        getString(event.getResponse()),
+                        requestStr);
+            } else {
+                log.info(
+                        "Downstream Response {} :: dns: {}, path : {}. response : {}, request : {}",
+                        event.getClassMethodName(),
+                        event.getDns(),
+                        event.getPath(),
+                        getString(event.getResponse()),
+                        requestStr);
+            }
+        } catch (Exception e) {
+            log.error("Exception : {}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    private String getString(Object[] args) {
+        return payloadSerializer.serializeAll(args);
+    }
+
+    private String getString(Object request) {
+        return payloadSerializer.serialize(request);
+    }
+
+    private DownstreamMeters meters(String host, String endpoint) {
+        ConcurrentMap<String, DownstreamMeters> byEndpoint = host != null ? downstreamMeters.get(host) : null;
+        DownstreamMeters meters = byEndpoint != null && endpoint != null ? byEndpoint.get(endpoint) : null;
+        if (meters != null) {
+            return meters;
         }
+
+        meters = new DownstreamMeters(getProperty(host), getProperty(endpoint));
+        // Unresolved placeholders may resolve later, and concrete paths must not grow the cache without bound
+        if (host == null || endpoint == null || meters.dns == null || meters.path == null
+                || cachedTargets.get() >= MAX_CACHED_TARGETS) {
+            return meters;
+        }
+        if (byEndpoint == null) {
+            byEndpoint = downstreamMeters.computeIfAbsent(host, k -> new ConcurrentHashMap<>());
+        }
+        DownstreamMeters existing = byEndpoint.putIfAbsent(endpoint, meters);
+        if (existing != null) {
+            return existing;
+        }
+        cachedTargets.incrementAndGet();
+        return meters;
+    }
+
+    /**
+     * Resolves a {@code ${...}} host placeholder to the dns it names, as the {@code dns} metric tag reports it.
+     * Unresolvable placeholders are returned as given.
+     */
+    public String resolveHost(String host) {
+        String resolved = getProperty(host);
+        return resolved != null ? resolved : host;
+    }
+
+    @EventListener({EnvironmentChangeEvent.class, RefreshScopeRefreshedEvent.class})
+    void clearResolvedProperties() {
+        resolvedProperties.clear();
+        downstreamMeters.clear();
+        cachedTargets.set(0);
     }
 
     private String getProperty(String property) {
         if (property != null) {
             if (property.startsWith("${") && property.endsWith("}")) {
-                return environment.getProperty(property.substring(2, property.length() - 1));
+                String resolved = resolvedProperties.get(property);
+                if (resolved == null) {
+                    resolved = environment.getProperty(property.substring(2, property.length() - 1));
+                    if (resolved != null) {
+                        resolvedProperties.put(property, resolved);
+                    }
+                }
+                return resolved;
             }
         }
         return property;
     }
 
+    /**
+     * The {@code dns}/{@code path} tags of one downstream target and the meters recorded under them, each
+     * registered on first use.
+     */
+    private final class DownstreamMeters {
+        private final String dns;
+        private final String path;
+        private final String pathTag;
+        private volatile Counter request;
+        private volatile Counter response;
+        private volatile Counter cancelled;
+        private volatile Counter coalesced;
+        private final ConcurrentMap<String, Counter> cache = new ConcurrentHashMap<>(4);
+        private final ConcurrentMap<String, Counter> retry = new ConcurrentHashMap<>(8);
+        private final ConcurrentMap<String, Counter> hedge = new ConcurrentHashMap<>(4);
+        private final ConcurrentMap<String, Timer> latency = new ConcurrentHashMap<>(4);
+
+        private DownstreamMeters(String dns, String path) {
+            this.dns = dns;
+            this.path = path;
+            this.pathTag = pathNormalizer.normalize(path);
+        }
+
+        private Counter request() {
+            Counter counter = request;
+            if (counter == null) {
+                request = counter = metricsService.counter("Outgoing_Request", "dns", dns, "path", pathTag);
+            }
+            return counter;
+        }
+
+        private Counter response() {
+            Counter counter = response;
+            if (counter == null) {
+                response = counter = metricsService.counter("Outgoing_Response", "dns", dns, "path", pathTag);
+            }
+            return counter;
+        }
+
+        private Counter cancelled() {
+            Counter counter = cancelled;
+            if (counter == null) {
+                cancelled = counter = metricsService.counter("Outgoing_Cancelled", "dns", dns, "path", pathTag);
+            }
+            return counter;
+        }
+
+        private Counter coalesced() {
+            Counter counter = coalesced;
+            if (counter == null) {
+                coalesced = counter = metricsService.counter("Outgoing_Coalesced", "dns", dns, "path", pathTag);
+            }
+            return counter;
+        }
+
+        private Counter counter(String metricName, ConcurrentMap<String, Counter> byOutcome, String outcome) {
+            Counter counter = byOutcome.get(outcome);
+            if (counter == null) {
+                counter = metricsService.counter(metricName, "dns", dns, "path", pathTag, "outcome", outcome);
+                byOutcome.putIfAbsent(outcome, counter);
+            }
+            return counter;
+        }
+
+        private Timer latency(String outcome) {
+            Timer timer = latency.get(outcome);
+            if (timer == null) {
+                timer = metricsService.timer("Outgoing_Latency", "dns", dns, "path", pathTag, "outcome", outcome);
+                latency.putIfAbsent(outcome, timer);
+            }
+            return timer;
+        }
+    }
+
     public Throwable getRootCause(Throwable throwable) {
         Throwable cause = throwable;
         while (cause != null) {
@@ -1,56 +1,258 @@
 package com.vik.utils;
 
+import com.vik.utils.config.MetricsProperties;
 import io.micrometer.core.instrument.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
-import java.util.Map;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 
 @Component
 public class MetricsService {
 
+    static final String OVERFLOW_TAG_VALUE = "other";
+    private static final String[] NO_TAGS = new String[0];
+
     private final MeterRegistry meterRegistry;
+    private final MetricsProperties metricsProperties;
+
+    // Resolved meter handles, keyed on meter type + metric name + tag tuple
+    private final ConcurrentMap<MeterKey, Meter> meters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TagLimit> tagLimits = new ConcurrentHashMap<>();
 
     public MetricsService(MeterRegistry meterRegistry) {
+        this(meterRegistry, new MetricsProperties());
+    }
+
+    @Autowired
+    public MetricsService(MeterRegistry meterRegistry, MetricsProperties metricsProperties) {
         this.meterRegistry = meterRegistry;
+        this.metricsProperties = metricsProperties;
+        Gauge.builder("Metrics_Meter_Count", meterRegistry, registry -> registry.getMeters().size())
+                .register(meterRegistry);
     }
 
-    public void incrementCounter(String metricName, String... tags) {
-        Tags micrometerTags = Tags.of(tags);
+    public Counter counter(String metricName, String... tags) {
+        return (Counter) resolve(new MeterKey(Counter.class, metricName, tags),
+                key -> Counter.builder(key.name)
+                        .tags(Tags.of(key.tags))
+                        .register(meterRegistry));
+    }
 
-        Counter counter = Counter.builder(metricName)
-                .tags(micrometerTags)
-                .register(meterRegistry);
+    public Timer timer(String metricName, String... tags) {
+        return (Timer) resolve(new MeterKey(Timer.class, metricName, tags),
+                key -> configure(Timer.builder(key.name).tags(Tags.of(key.tags)), key.name)
+                        .register(meterRegistry));
+    }
 
-        counter.increment();
+    /**
+     * Like {@link #timer(String, String...)}, letting the caller configure the builder (percentiles,
+     * histograms, SLOs). The customizer only applies when the timer is first registered.
+     */
+    public Timer timer(String metricName, Consumer<Timer.Builder> customizer, String... tags) {
+        return (Timer) resolve(new MeterKey(Timer.class, metricName, tags),
+                key -> {
+                    Timer.Builder builder = Timer.builder(key.name).tags(Tags.of(key.tags));
+                    customizer.accept(builder);
+                    return configure(builder, key.name).register(meterRegistry);
+                });
     }
 
-    public void recordDuration(String metricName, Runnable runnable, String... tags) {
-        Tags micrometerTags = Tags.of(tags);
-        Timer timer = Timer.builder(metricName)
-                .tags(micrometerTags)
-                .register(meterRegistry);
+    public DistributionSummary summary(String metricName, String... tags) {
+        return (DistributionSummary) resolve(new MeterKey(DistributionSummary.class, metricName, tags),
+                key -> DistributionSummary.builder(key.name)
+                        .tags(Tags.of(key.tags))
+                        .register(meterRegistry));
+    }
 
-        timer.record(runnable);
+    public void incrementCounter(String metricName, String... tags) {
+        counter(metricName, tags).increment();
     }
 
-    public <T> T recordDuration(String metricName, Supplier<T> supplier, String... tags) {
-        Tags micrometerTags = Tags.of(tags);
-        Timer timer = Timer.builder(metricName)
-                .tags(micrometerTags)
-                .register(meterRegistry);
+    public void recordDuration(String metricName, Runnable runnable, String... tags) {
+        timer(metricName, tags).record(runnable);
+    }
 
-        return timer.record(supplier);
+    public <T> T recordDuration(String metricName, Supplier<T> supplier, String... tags) {
+        return timer(metricName, tags).record(supplier);
     }
 
     public void registerGauge(String metricName, AtomicInteger value, String... tags) {
-        Tags micrometerTags = Tags.of(tags);
+        resolve(new MeterKey(Gauge.class, metricName, tags),
+                key -> Gauge.builder(key.name, value, AtomicInteger::get)
+                        .tags(Tags.of(key.tags))
+                        .register(meterRegistry));
+    }
 
-        Gauge.builder(metricName, value, AtomicInteger::get)
-                .tags(micrometerTags)
-                .register(meterRegistry);
+    public <T> void registerGauge(String metricName, T stateObject, ToDoubleFunction<T> valueFunction, String... tags) {
+        resolve(new MeterKey(Gauge.class, metricName, tags),
+                key -> Gauge.builder(key.name, stateObject, valueFunction)
+                        .tags(Tags.of(key.tags))
+                        .register(meterRegistry));
+    }
+
+    // Percentiles and histograms are recorded through Micrometer's HdrHistogram-backed ring of time windows
+    private Timer.Builder configure(Timer.Builder builder, String metricName) {
+        MetricsProperties.Distribution distribution = metricsProperties.getTimers().get(metricName);
+        if (distribution == null) {
+            return builder;
+        }
+        if (distribution.getPercentileHistogram() != null) {
+            builder.publishPercentileHistogram(distribution.getPercentileHistogram());
+        }
+        if (distribution.getPercentiles() != null && distribution.getPercentiles().length > 0) {
+            builder.publishPercentiles(distribution.getPercentiles());
+        }
+        if (distribution.getPercentilePrecision() != null) {
+            builder.percentilePrecision(distribution.getPercentilePrecision());
+        }
+        if (distribution.getSlo() != null && !distribution.getSlo().isEmpty()) {
+            builder.serviceLevelObjectives(distribution.getSlo().toArray(new Duration[0]));
+        }
+        if (distribution.getMinimumExpectedValue() != null) {
+            builder.minimumExpectedValue(distribution.getMinimumExpectedValue());
+        }
+        if (distribution.getMaximumExpectedValue() != null) {
+            builder.maximumExpectedValue(distribution.getMaximumExpectedValue());
+        }
+        if (distribution.getExpiry() != null) {
+            builder.distributionStatisticExpiry(distribution.getExpiry());
+        }
+        return builder;
+    }
+
+    private Meter resolve(MeterKey key, Function<MeterKey, Meter> factory) {
+        Meter meter = meters.get(key);
+        if (meter != null) {
+            return meter;
+        }
+
+        TagLimit tagLimit = tagLimits.computeIfAbsent(key.name, k -> new TagLimit());
+        int limit = metricsProperties.getMaxTagCombinationsPerMetric()
+                .getOrDefault(key.name, metricsProperties.getMaxTagCombinations());
+        // Once the limit is reached every new combination lands on the overflow meter; find it without allocating
+        if (tagLimit.combinations.get() >= limit) {
+            Meter overflow = tagLimit.overflowFor(key);
+            if (overflow != null) {
+                return overflow;
+            }
+        }
+
+        key = key.detach();
+        if (tagLimit.combinations.incrementAndGet() > limit) {
+            tagLimit.combinations.decrementAndGet();
+            MeterKey overflowKey = key.overflow();
+            Meter overflow = meters.computeIfAbsent(overflowKey, factory);
+            tagLimit.addOverflow(overflowKey, overflow);
+            return overflow;
+        }
+
+        Meter created = factory.apply(key);
+        Meter existing = meters.putIfAbsent(key, created);
+        if (existing != null) {
+            tagLimit.combinations.decrementAndGet();
+            return existing;
+        }
+        return created;
+    }
+
+    private static final class TagLimit {
+        private final AtomicInteger combinations = new AtomicInteger();
+        // One overflow meter per meter type and tag-key set, which is rarely more than one per metric name
+        private volatile MeterKey[] overflowKeys = new MeterKey[0];
+        private volatile Meter[] overflowMeters = new Meter[0];
+
+        private Meter overflowFor(MeterKey key) {
+            MeterKey[] keys = overflowKeys;
+            Meter[] values = overflowMeters;
+            for (int i = 0; i < Math.min(keys.length, values.length); i++) {
+                if (keys[i].overflowOf(key)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        private synchronized void addOverflow(MeterKey key, Meter meter) {
+            for (MeterKey known : overflowKeys) {
+                if (known.equals(key)) {
+                    return;
+                }
+            }
+            Meter[] values = Arrays.copyOf(overflowMeters, overflowMeters.length + 1);
+            values[values.length - 1] = meter;
+            MeterKey[] keys = Arrays.copyOf(overflowKeys, overflowKeys.length + 1);
+            keys[keys.length - 1] = key;
+            overflowMeters = values;
+            overflowKeys = keys;
+        }
+    }
+
+    private static final class MeterKey {
+        private final Class<? extends Meter> type;
+        private final String name;
+        private final String[] tags;
+        private final int hash;
+
+        private MeterKey(Class<? extends Meter> type, String name, String[] tags) {
+            this.type = type;
+            this.name = name;
+            this.tags = tags == null ? NO_TAGS : tags;
+            this.hash = 31 * (31 * type.hashCode() + name.hashCode()) + Arrays.hashCode(this.tags);
+        }
+
+        // Callers own the varargs array, so keys that get stored take a private copy
+        private MeterKey detach() {
+            return new MeterKey(type, name, tags.clone());
+        }
+
+        private MeterKey overflow() {
+            String[] overflowTags = tags.clone();
+            for (int i = 1; i < overflowTags.length; i += 2) {
+                overflowTags[i] = OVERFLOW_TAG_VALUE;
+            }
+            return new MeterKey(type, name, overflowTags);
+        }
+
+        // True when this overflow key is the one other's combination collapses into
+        private boolean overflowOf(MeterKey other) {
+            if (type != other.type || tags.length != other.tags.length) {
+                return false;
+            }
+            for (int i = 0; i < tags.length; i += 2) {
+                if (!Objects.equals(tags[i], other.tags[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MeterKey other)) {
+                return false;
+            }
+            return hash == other.hash
+                    && type == other.type
+                    && name.equals(other.name)
+                    && Arrays.equals(tags, other.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 }
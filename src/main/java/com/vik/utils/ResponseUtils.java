@@ -2,17 +2,28 @@ package com.vik.utils;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import com.vik.utils.exceptions.BadRequestException;
 import com.vik.utils.exceptions.InternalServerErrorException;
 import com.vik.utils.exceptions.ResolveFutureException;
+import com.vik.utils.exceptions.RetryableHttpException;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
 
 @Slf4j
 public class ResponseUtils {
@@ -21,10 +32,30 @@ public class ResponseUtils {
         throw new IllegalStateException("Utility class");
     }
 
-    private static ObjectMapper objectMapper;
+    private static volatile boolean stacklessExceptions = false;
 
-    static {
-        ResponseUtils.objectMapper = new ObjectMapper();
+    // Swapped as a unit so a reader is never served from a cache built for a previous mapper
+    private static volatile Readers readers = new Readers(new ObjectMapper());
+
+    /**
+     * Replaces the mapper used to parse response bodies and drops every cached reader. Within a Spring
+     * context this is done with the application's mapper, see {@code ResponseUtilsConfiguration}.
+     */
+    public static void setObjectMapper(ObjectMapper objectMapper) {
+        readers = new Readers(objectMapper);
+    }
+
+    public static ObjectMapper getObjectMapper() {
+        return readers.objectMapper;
+    }
+
+    /**
+     * Makes the {@code BadRequestException}/{@code InternalServerErrorException}/{@code RetryableHttpException}
+     * thrown for non-2xx responses stackless. Their stack trace would only point into this class, so little is
+     * lost.
+     */
+    public static void setStacklessExceptions(boolean stackless) {
+        stacklessExceptions = stackless;
     }
 
     private static boolean is2xx(Integer httpStatusCode) {
@@ -35,13 +66,18 @@ public class ResponseUtils {
         return (httpStatusCode >= 400 && httpStatusCode < 500);
     }
 
+    // Gateway and availability failures are transient, unlike other 5xx
+    private static boolean isRetryable(Integer httpStatusCode) {
+        return httpStatusCode == 502 || httpStatusCode == 503 || httpStatusCode == 504;
+    }
+
     public static <T> Object commandResponseHandlerErrorString(Pair<Integer, String> resp, TypeReference<T> typeReference) throws IOException {
         int statusCode = resp.getLeft();
         String responseBody = resp.getRight();
         if (is2xx(statusCode) || is4xx(statusCode)) {
             return parseResponseBody(responseBody, typeReference);
         } else {
-            throw new InternalServerErrorException(resp.getLeft(), resp.getRight());
+            throw serverError(statusCode, responseBody);
         }
     }
 
@@ -51,17 +87,93 @@ public class ResponseUtils {
         if (is2xx(statusCode)) {
             return parseResponseBody(responseBody, typeReference);
         } else if (is4xx(statusCode)) {
-            throw new BadRequestException(statusCode, responseBody);
+            throw new BadRequestException(statusCode, responseBody, !stacklessExceptions);
         } else {
-            throw new InternalServerErrorException(statusCode, responseBody);
+            throw serverError(statusCode, responseBody);
         }
     }
 
+    /**
+     * Same as {@link #commandResponseHandlerV3(Pair, TypeReference)} for a body still in the HTTP client's
+     * buffer; the bytes are only decoded to a {@code String} for the exception on non-2xx responses.
+     */
+    public static <T> T commandResponseHandlerV3(int statusCode, byte[] responseBody, TypeReference<T> typeReference) throws IOException {
+        if (is2xx(statusCode)) {
+            if (responseBody == null || responseBody.length == 0) {
+                return null;
+            }
+            return readerFor(typeReference).readValue(responseBody);
+        }
+        throw errorV3(statusCode, responseBody == null ? null : new String(responseBody, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Same as {@link #commandResponseHandlerV3(int, byte[], TypeReference)}; the buffer's position is left
+     * untouched.
+     */
+    public static <T> T commandResponseHandlerV3(int statusCode, ByteBuffer responseBody, TypeReference<T> typeReference) throws IOException {
+        if (is2xx(statusCode)) {
+            if (responseBody == null || !responseBody.hasRemaining()) {
+                return null;
+            }
+            if (responseBody.hasArray()) {
+                return readerFor(typeReference).readValue(responseBody.array(),
+                        responseBody.arrayOffset() + responseBody.position(), responseBody.remaining());
+            }
+            return readerFor(typeReference).readValue(new ByteBufferBackedInputStream(responseBody.duplicate()));
+        }
+        throw errorV3(statusCode, responseBody == null ? null : StandardCharsets.UTF_8.decode(responseBody.duplicate()).toString());
+    }
+
+    /**
+     * Same as {@link #commandResponseHandlerV3(int, byte[], TypeReference)}, streaming from {@code responseBody},
+     * which is consumed and closed.
+     */
+    public static <T> T commandResponseHandlerV3(int statusCode, InputStream responseBody, TypeReference<T> typeReference) throws IOException {
+        if (responseBody == null) {
+            return commandResponseHandlerV3(statusCode, (byte[]) null, typeReference);
+        }
+        if (!is2xx(statusCode)) {
+            try (InputStream in = responseBody) {
+                throw errorV3(statusCode, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        // An empty body means no content, like an empty String does, rather than a parse failure
+        PushbackInputStream in = new PushbackInputStream(responseBody, 1);
+        int first = in.read();
+        if (first == -1) {
+            in.close();
+            return null;
+        }
+        in.unread(first);
+        return readerFor(typeReference).readValue(in);
+    }
+
+    private static RuntimeException errorV3(int statusCode, String responseBody) {
+        if (is4xx(statusCode)) {
+            return new BadRequestException(statusCode, responseBody, !stacklessExceptions);
+        }
+        return serverError(statusCode, responseBody);
+    }
+
+    // @RetryableDownstream retries a RetryableHttpException whatever its retryOnStatus says
+    private static RuntimeException serverError(int statusCode, String responseBody) {
+        if (isRetryable(statusCode)) {
+            return new RetryableHttpException(statusCode, responseBody, !stacklessExceptions);
+        }
+        return new InternalServerErrorException(statusCode, responseBody, !stacklessExceptions);
+    }
+
     private static <T> T parseResponseBody(String responseBody, TypeReference<T> typeReference) throws IOException {
         if (!StringUtils.hasLength(responseBody)) {
             return null;
         }
-        return objectMapper.readValue(responseBody, typeReference);
+        return readerFor(typeReference).readValue(responseBody);
+    }
+
+    private static ObjectReader readerFor(TypeReference<?> typeReference) {
+        Readers current = readers;
+        return current.cache.computeIfAbsent(typeReference.getType(), type -> current.objectMapper.readerFor(typeReference));
     }
 
 
@@ -76,9 +188,122 @@ public class ResponseUtils {
             Thread.currentThread().interrupt();
             throw new ResolveFutureException(e);
         } catch (ExecutionException e) {
-            if (e.getCause().getCause() != null)
-                throw e.getCause().getCause();
-            throw e.getCause();
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Like {@link #resolve(Future)} but gives up after {@code timeout}, cancelling the future and
+     * throwing a {@link ResolveFutureException} caused by the {@link TimeoutException}.
+     */
+    @SneakyThrows
+    public static <T> T resolve(Future<T> future, Duration timeout) {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResolveFutureException(e);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ResolveFutureException(e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Resolves a batch of futures, returning their results in iteration order. Fails as soon as any
+     * future fails (with the same exception {@link #resolve(Future)} would throw) and cancels the rest.
+     * Futures that are not {@link CompletionStage}s are waited on from virtual threads, see
+     * {@link #toCompletableFuture(Future)}.
+     */
+    public static <T> List<T> resolveAll(Collection<? extends Future<? extends T>> futures) {
+        return resolveAll(futures, null);
+    }
+
+    /**
+     * Same as {@link #resolveAll(Collection)} with an overall {@code timeout}; a {@code null} timeout
+     * waits indefinitely.
+     */
+    public static <T> List<T> resolveAll(Collection<? extends Future<? extends T>> futures, Duration timeout) {
+        if (futures == null || futures.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<CompletableFuture<? extends T>> stages = new ArrayList<>(futures.size());
+        for (Future<? extends T> future : futures) {
+            stages.add(future == null ? CompletableFuture.completedFuture(null) : toCompletableFuture(future));
+        }
+
+        CompletableFuture<Void> failFast = new CompletableFuture<>();
+        CompletableFuture.allOf(stages.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((ignored, error) -> failFast.complete(null));
+        for (CompletableFuture<? extends T> stage : stages) {
+            stage.whenComplete((ignored, error) -> {
+                if (error != null) {
+                    failFast.completeExceptionally(error);
+                }
+            });
         }
+
+        try {
+            if (timeout == null) {
+                resolve(failFast);
+            } else {
+                resolve(failFast, timeout);
+            }
+        } catch (Throwable t) {
+            // resolve rethrows the cause as is, which may well be a checked exception
+            stages.forEach(stage -> stage.cancel(true));
+            throw t;
+        }
+
+        List<T> results = new ArrayList<>(stages.size());
+        for (CompletableFuture<? extends T> stage : stages) {
+            results.add(stage.join());
+        }
+        return results;
+    }
+
+    /**
+     * Adapts a future to a {@link CompletableFuture} without blocking the caller. Completion stages are
+     * converted directly; any other future is waited on from a virtual thread, so fan-out callers do not
+     * pin a platform thread per pending future.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CompletableFuture<T> toCompletableFuture(Future<T> future) {
+        if (future instanceof CompletionStage<?> stage) {
+            return (CompletableFuture<T>) stage.toCompletableFuture();
+        }
+        CompletableFuture<T> adapted = CompletableFuture.supplyAsync(() -> resolve(future), BlockingResolver.EXECUTOR);
+        adapted.whenComplete((ignored, error) -> {
+            if (adapted.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        return adapted;
+    }
+
+    private static Throwable unwrap(ExecutionException e) {
+        if (e.getCause().getCause() != null)
+            return e.getCause().getCause();
+        return e.getCause();
+    }
+
+    private static final class Readers {
+        private final ObjectMapper objectMapper;
+        // Resolving the JavaType and root deserializer is the expensive part of readValue, so do it once per type
+        private final ConcurrentMap<Type, ObjectReader> cache = new ConcurrentHashMap<>();
+
+        private Readers(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+        }
+    }
+
+    // Lazily created so callers that never resolve plain futures don't pay for it
+    private static final class BlockingResolver {
+        private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
     }
 }
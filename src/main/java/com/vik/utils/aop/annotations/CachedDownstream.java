@@ -0,0 +1,47 @@
+package com.vik.utils.aop.annotations;
+
+
+import java.lang.annotation.*;
+
+/**
+ * Caches the result of a read-mostly downstream call per argument tuple (compared by {@code equals}).
+ * Failed calls and {@code null} results are not cached. Cached results are shared between callers and
+ * should be treated as immutable.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CachedDownstream {
+
+    /**
+     * Estimated bytes per object, and per element of a collection or map, used by {@link #maxWeightBytes()}.
+     */
+    int OBJECT_WEIGHT = 256;
+
+    /**
+     * How long a result is served as fresh.
+     */
+    long ttlMs() default 60_000;
+
+    /**
+     * How long past {@link #ttlMs()} a result is still served while it is reloaded in the background;
+     * zero expires results at {@link #ttlMs()}.
+     */
+    long staleWhileRevalidateMs() default 0;
+
+    /**
+     * Entry limit, used when {@link #maxWeightBytes()} is not set.
+     */
+    long maxEntries() default 10_000;
+
+    /**
+     * Bound on the estimated size of all cached results; replaces {@link #maxEntries()} when positive.
+     * {@code byte[]} and {@code String} results weigh their length, collections and maps
+     * {@link #OBJECT_WEIGHT} per element, and anything else {@link #OBJECT_WEIGHT}.
+     */
+    long maxWeightBytes() default -1;
+
+    /**
+     * Indexes of the arguments that make up the key; empty uses all of them.
+     */
+    int[] keyArgs() default {};
+}
@@ -7,4 +7,30 @@ import java.lang.annotation.*;
 public @interface ControlleraInstrumentation {
 
     String apiPath();
+
+    /**
+     * Fraction of successful requests that are logged; negative uses {@code utils.logging.sampling.sample-rate}.
+     */
+    double sampleRate() default -1;
+
+    /**
+     * Log failed requests even when not sampled (only if the global setting allows it too).
+     */
+    boolean alwaysLogErrors() default true;
+
+    /**
+     * Cap on logged requests per second for this API; negative uses the global setting, zero disables it.
+     */
+    double maxLogsPerSecond() default -1;
+
+    /**
+     * Requests slower than this are logged even when not sampled; negative uses the global setting.
+     */
+    long slowCallThresholdMs() default -1;
+
+    /**
+     * Shed load past the adaptive concurrency limit when {@code utils.resilience.concurrency-limit.enabled}
+     * is set; {@code false} exempts this API.
+     */
+    boolean limitConcurrency() default true;
 }
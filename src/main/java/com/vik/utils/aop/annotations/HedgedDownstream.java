@@ -0,0 +1,40 @@
+package com.vik.utils.aop.annotations;
+
+
+import java.lang.annotation.*;
+
+/**
+ * Sends a second, identical request when the first has not answered within the {@link #percentile()}
+ * latency of recent calls; the first response wins and the other attempt is cancelled. Only for idempotent
+ * calls returning a {@code CompletionStage} or {@code Mono}; other methods are called once as usual.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface HedgedDownstream {
+
+    /**
+     * Percentile of the target's successful {@code Outgoing_Latency} after which the hedge is sent. That
+     * timer is recorded by {@code @PooledDownstreamLog}, so without it the {@link #initialDelayMs()} is kept.
+     */
+    double percentile() default 0.95;
+
+    /**
+     * Hedge delay used until enough calls have been timed.
+     */
+    long initialDelayMs() default 100;
+
+    /**
+     * Lower bound on the hedge delay, so a fast percentile does not hedge nearly every call.
+     */
+    long minDelayMs() default 5;
+
+    /**
+     * Hedges allowed as a fraction of calls to this method.
+     */
+    double maxHedgeRatio() default 0.05;
+
+    /**
+     * Hedges that may be sent at once after a quiet period.
+     */
+    double burst() default 10;
+}
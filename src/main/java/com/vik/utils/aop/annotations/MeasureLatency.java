@@ -7,4 +7,28 @@ import java.lang.annotation.*;
 public @interface MeasureLatency {
     String metricName() default "";
     String[] tags() default {};
+
+    /**
+     * Publish histogram buckets so quantiles can be aggregated across instances.
+     */
+    boolean histogram() default false;
+
+    /**
+     * Client-side percentiles to publish, e.g. {@code {0.5, 0.99}}.
+     */
+    double[] percentiles() default {};
+
+    /**
+     * SLO boundaries in milliseconds, published as histogram buckets.
+     */
+    long[] sloMs() default {};
+
+    long minExpectedMs() default -1;
+
+    long maxExpectedMs() default -1;
+
+    /**
+     * Window over which percentiles and max decay; negative keeps Micrometer's default.
+     */
+    long expiryMs() default -1;
 }
\ No newline at end of file
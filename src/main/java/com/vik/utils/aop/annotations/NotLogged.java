@@ -0,0 +1,14 @@
+package com.vik.utils.aop.annotations;
+
+
+import java.lang.annotation.*;
+
+/**
+ * Keeps a parameter of a {@link PooledDownstreamLog} method (credentials, request headers) out of the logged
+ * and captured arguments; it is replaced by a placeholder there.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NotLogged {
+
+}
@@ -7,4 +7,45 @@ import java.lang.annotation.*;
 @Target(ElementType.METHOD)
 public @interface PooledDownstreamLog {
 
+    /**
+     * Fraction of successful calls that are logged; negative uses {@code utils.logging.sampling.sample-rate}.
+     */
+    double sampleRate() default -1;
+
+    /**
+     * Log failed calls even when not sampled (only if the global setting allows it too).
+     */
+    boolean alwaysLogErrors() default true;
+
+    /**
+     * Cap on logged calls per second for this method; negative uses the global setting, zero disables it.
+     */
+    double maxLogsPerSecond() default -1;
+
+    /**
+     * Calls slower than this are logged even when not sampled; negative uses the global setting.
+     */
+    long slowCallThresholdMs() default -1;
+
+    /**
+     * Guard the call with a circuit breaker shared by every method calling the same host
+     * ({@code utils.resilience.circuit-breaker}).
+     */
+    boolean circuitBreaker() default false;
+
+    /**
+     * Cap concurrent calls to the host ({@code utils.resilience.bulkhead} / {@code thread-pool-bulkhead}).
+     */
+    BulkheadType bulkhead() default BulkheadType.NONE;
+
+    enum BulkheadType {
+        NONE,
+        SEMAPHORE,
+        /**
+         * Runs blocking and {@code CompletionStage} methods on a bounded per-host pool; reactive results
+         * fall back to {@link #SEMAPHORE} since they must not block anyway. The caller's MDC is copied onto the
+         * pool thread for the duration of the call; other thread-locals are not.
+         */
+        THREAD_POOL
+    }
 }
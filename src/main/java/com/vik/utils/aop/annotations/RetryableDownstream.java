@@ -0,0 +1,33 @@
+package com.vik.utils.aop.annotations;
+
+
+import java.lang.annotation.*;
+
+/**
+ * Retries a downstream call that fails with a {@code RetryableHttpException}, a {@code DownStreamException}
+ * whose status is in {@link #retryOnStatus()}, or any of {@link #retryOn()}. Delays use exponential backoff
+ * with decorrelated jitter and every retry takes a permit from the per-host retry budget
+ * ({@code utils.retry.budget}).
+ * <p>
+ * {@code CompletionStage} and {@code Mono} results are retried without holding any thread during the backoff.
+ * Methods returning a plain value are retried on the calling thread, which parks through the backoff, so they
+ * are best called from virtual threads. {@code Flux} and plain {@code Future} results cannot be retried and
+ * fail startup.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RetryableDownstream {
+
+    /**
+     * Total attempts, including the first call.
+     */
+    int maxAttempts() default 3;
+
+    long initialBackoffMs() default 100;
+
+    long maxBackoffMs() default 2000;
+
+    int[] retryOnStatus() default {502, 503, 504};
+
+    Class<? extends Throwable>[] retryOn() default {};
+}
@@ -0,0 +1,19 @@
+package com.vik.utils.aop.annotations;
+
+
+import java.lang.annotation.*;
+
+/**
+ * Coalesces concurrent identical calls: while a call is in flight, callers with equal arguments (by
+ * {@code equals}, arrays compared deeply) share its result instead of issuing their own. Callers share the
+ * result object itself, so it should be treated as immutable.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SingleFlight {
+
+    /**
+     * Indexes of the arguments that make up the key; empty uses all of them.
+     */
+    int[] keyArgs() default {};
+}
@@ -0,0 +1,290 @@
+package com.vik.utils.aop.aspects;
+
+import com.github.benmanes.caffeine.cache.*;
+import com.vik.utils.*;
+import com.vik.utils.aop.annotations.*;
+import com.vik.utils.aop.support.*;
+import com.vik.utils.logging.*;
+import io.micrometer.core.instrument.Timer;
+import lombok.*;
+import lombok.extern.slf4j.*;
+import org.apache.commons.lang3.tuple.*;
+import org.aspectj.lang.*;
+import org.aspectj.lang.annotation.*;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.core.annotation.*;
+import org.springframework.stereotype.*;
+import reactor.core.publisher.*;
+
+import java.lang.reflect.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Applies {@link CachedDownstream} with a Caffeine (W-TinyLFU) cache per method. Stale-while-revalidate keeps
+ * entries for {@code ttl + staleWhileRevalidate}: an entry older than {@code ttl} is still returned while one
+ * background reload, issued through the join point of the call that found it stale, replaces it. Keys hold
+ * only the key arguments, so neither a cached entry nor its reload depends on the call that first loaded it.
+ * <p>
+ * Misses go through the rest of the aspect chain as usual; hits never reach the host and are logged (subject
+ * to the method's {@link PooledDownstreamLog} sampling) as {@code Downstream Cache Hit}.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(AspectOrder.CACHE)
+@RequiredArgsConstructor
+public class CachedDownstreamAspect {
+
+    @Autowired
+    private final LoggingMethods loggingMethods;
+    @Autowired
+    private final LogSampler logSampler;
+    @Autowired
+    private final MetricsService metricsService;
+
+    // Loads and reloads of blocking methods wait on virtual threads instead of the common pool
+    private final Executor loadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentMap<Method, MethodCache> caches = new ConcurrentHashMap<>();
+
+    @Around("@annotation(cached)")
+    public Object cache(ProceedingJoinPoint joinPoint, CachedDownstream cached) throws Throwable {
+        CallSite callSite = CallSite.of(joinPoint);
+        Method method = callSite.getMethod();
+        Class<?> returnType = method.getReturnType();
+        if (Flux.class.isAssignableFrom(returnType)) {
+            return joinPoint.proceed();
+        }
+        String classMethodName = callSite.getClassMethodName();
+        MethodCache cache = caches.computeIfAbsent(method, m -> buildCache(classMethodName, cached, returnType));
+        CacheKey key = new CacheKey(keyArgs(joinPoint.getArgs(), cached.keyArgs()));
+
+        if (Mono.class.isAssignableFrom(returnType)) {
+            return Mono.defer(() -> Mono.fromFuture(lookup(cache, key, joinPoint, callSite), true));
+        }
+        CompletableFuture<Object> result = lookup(cache, key, joinPoint, callSite);
+        if (CompletionStage.class.isAssignableFrom(returnType)) {
+            return result;
+        }
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw AsyncResults.unwrap(e);
+        }
+    }
+
+    private CompletableFuture<Object> lookup(MethodCache cache, CacheKey key, ProceedingJoinPoint joinPoint,
+                                             CallSite callSite) {
+        Method method = callSite.getMethod();
+        String classMethodName = callSite.getClassMethodName();
+        Pair<String, String> uri = DownstreamTargets.resolve(callSite, joinPoint.getArgs());
+        CompletableFuture<Object> cachedValue = cache.values.getIfPresent(key);
+        if (cachedValue == null) {
+            loggingMethods.countDownstreamCache(uri.getLeft(), uri.getRight(), "miss");
+            // Callers get their own copy so cancelling one cannot evict the shared load
+            return cache.loadIfAbsent(key, joinPoint).copy();
+        }
+        cache.refreshIfStale(key, cachedValue, joinPoint);
+        PooledDownstreamLog downstreamLog = method.getAnnotation(PooledDownstreamLog.class);
+        LogPolicy policy = downstreamLog == null
+                ? logSampler.policy(classMethodName, -1, -1, -1, true)
+                : logSampler.policy(classMethodName, downstreamLog.sampleRate(), downstreamLog.maxLogsPerSecond(),
+                downstreamLog.slowCallThresholdMs(), downstreamLog.alwaysLogErrors());
+        boolean sampled = logSampler.sample(classMethodName, policy);
+        return cachedValue.copy().whenComplete((value, error) -> {
+            if (error != null) {
+                return;
+            }
+            if (sampled) {
+                loggingMethods.logDownstreamCacheHit(classMethodName, uri.getLeft(), uri.getRight(), value,
+                        callSite.loggableArgs(joinPoint.getArgs()));
+            } else {
+                loggingMethods.countDownstreamCache(uri.getLeft(), uri.getRight(), "hit");
+            }
+        });
+    }
+
+    private MethodCache buildCache(String classMethodName, CachedDownstream cached, Class<?> returnType) {
+        Duration ttl = Duration.ofMillis(cached.ttlMs());
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().executor(loadExecutor);
+        long refreshAfterNanos = -1;
+        if (cached.staleWhileRevalidateMs() > 0) {
+            builder.expireAfterWrite(ttl.plusMillis(cached.staleWhileRevalidateMs()));
+            refreshAfterNanos = ttl.toNanos();
+        } else {
+            builder.expireAfterWrite(ttl);
+        }
+        if (cached.maxWeightBytes() > 0) {
+            builder.maximumWeight(cached.maxWeightBytes())
+                    .weigher((CacheKey key, Object value) -> weigh(value));
+        } else {
+            builder.maximumSize(cached.maxEntries());
+        }
+        builder.evictionListener((key, value, cause) ->
+                metricsService.incrementCounter("Outgoing_Cache_Eviction",
+                        "cache", classMethodName, "cause", cause.name()));
+
+        Timer loadTimer = metricsService.timer("Outgoing_Cache_Load", "cache", classMethodName);
+        return new MethodCache(builder.buildAsync(), returnType, refreshAfterNanos, loadTimer, loadExecutor);
+    }
+
+    // Runs on every write, so it only looks at lengths and sizes rather than serializing the value
+    static int weigh(Object value) {
+        long weight;
+        if (value instanceof byte[] bytes) {
+            weight = bytes.length;
+        } else if (value instanceof CharSequence text) {
+            weight = text.length();
+        } else if (value instanceof Collection<?> collection) {
+            weight = (long) collection.size() * CachedDownstream.OBJECT_WEIGHT;
+        } else if (value instanceof Map<?, ?> map) {
+            weight = (long) map.size() * CachedDownstream.OBJECT_WEIGHT;
+        } else {
+            weight = CachedDownstream.OBJECT_WEIGHT;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, weight));
+    }
+
+    private static Object[] keyArgs(Object[] args, int[] indexes) {
+        if (indexes.length == 0) {
+            return args.clone();
+        }
+        Object[] selected = new Object[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            selected[i] = args[indexes[i]];
+        }
+        return selected;
+    }
+
+    private static final class MethodCache {
+        private final AsyncCache<CacheKey, Object> values;
+        private final Class<?> returnType;
+        // Age past which a hit triggers a reload; negative when entries just expire
+        private final long refreshAfterNanos;
+        private final Timer loadTimer;
+        private final Executor executor;
+        private final Set<CacheKey> refreshing = ConcurrentHashMap.newKeySet();
+
+        private MethodCache(AsyncCache<CacheKey, Object> values, Class<?> returnType, long refreshAfterNanos,
+                            Timer loadTimer, Executor executor) {
+            this.values = values;
+            this.returnType = returnType;
+            this.refreshAfterNanos = refreshAfterNanos;
+            this.loadTimer = loadTimer;
+            this.executor = executor;
+        }
+
+        /**
+         * Joins the load in flight for {@code key}, or starts one. The placeholder goes in first and the call
+         * is made after, so the method never runs inside the cache's map computation.
+         */
+        private CompletableFuture<Object> loadIfAbsent(CacheKey key, ProceedingJoinPoint joinPoint) {
+            CompletableFuture<Object> pending = new CompletableFuture<>();
+            CompletableFuture<Object> existing = values.asMap().putIfAbsent(key, pending);
+            if (existing != null) {
+                return existing;
+            }
+            load(joinPoint, executor).whenComplete((value, error) -> {
+                if (error != null) {
+                    pending.completeExceptionally(AsyncResults.unwrap(error));
+                } else {
+                    pending.complete(value);
+                }
+                // Like Caffeine's own loads: drop failures and nulls, and re-put a value once complete so it is
+                // weighed and its expiry starts now
+                if (error != null || value == null) {
+                    values.asMap().remove(key, pending);
+                } else {
+                    values.asMap().replace(key, pending, pending);
+                }
+            });
+            return pending;
+        }
+
+        private void refreshIfStale(CacheKey key, CompletableFuture<Object> current, ProceedingJoinPoint joinPoint) {
+            if (refreshAfterNanos < 0 || !current.isDone() || current.isCompletedExceptionally()) {
+                return;
+            }
+            OptionalLong age = values.synchronous().policy().expireAfterWrite()
+                    .map(expiration -> expiration.ageOf(key, TimeUnit.NANOSECONDS))
+                    .orElse(OptionalLong.empty());
+            if (age.isEmpty() || age.getAsLong() < refreshAfterNanos || !refreshing.add(key)) {
+                return;
+            }
+            // A failed reload keeps serving the stale value until it expires, as a null result removes it
+            load(joinPoint, executor).whenComplete((value, error) -> {
+                if (error == null) {
+                    if (value != null) {
+                        values.asMap().replace(key, current, CompletableFuture.completedFuture(value));
+                    } else {
+                        values.asMap().remove(key, current);
+                    }
+                }
+                refreshing.remove(key);
+            });
+        }
+
+        private CompletableFuture<Object> load(ProceedingJoinPoint joinPoint, Executor executor) {
+            long start = System.nanoTime();
+            CompletableFuture<Object> load;
+            if (Mono.class.isAssignableFrom(returnType)) {
+                load = proceedQuietly(joinPoint)
+                        .thenCompose(result -> ((Mono<?>) result).cast(Object.class).toFuture());
+            } else if (CompletionStage.class.isAssignableFrom(returnType)) {
+                load = proceedQuietly(joinPoint)
+                        .thenCompose(result -> ((CompletionStage<?>) result).thenApply(value -> (Object) value));
+            } else {
+                // The load runs on another thread, which should still log under the caller's MDC
+                Map<String, String> callerMdc = MDC.getCopyOfContextMap();
+                load = CompletableFuture.supplyAsync(() -> {
+                    if (callerMdc != null) {
+                        MDC.setContextMap(callerMdc);
+                    }
+                    try {
+                        return proceedQuietly(joinPoint).join();
+                    } finally {
+                        MDC.clear();
+                    }
+                }, executor);
+            }
+            load.whenComplete((value, error) -> loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+            return load;
+        }
+
+        private static CompletableFuture<Object> proceedQuietly(ProceedingJoinPoint joinPoint) {
+            try {
+                return CompletableFuture.completedFuture(joinPoint.proceed());
+            } catch (Throwable t) {
+                return CompletableFuture.failedFuture(t);
+            }
+        }
+    }
+
+    private static final class CacheKey {
+        private final Object[] args;
+        private final int hash;
+
+        private CacheKey(Object[] args) {
+            this.args = args;
+            this.hash = Arrays.deepHashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey other)) {
+                return false;
+            }
+            return hash == other.hash && Arrays.deepEquals(args, other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -3,16 +3,27 @@ package com.vik.utils.aop.aspects;
 
 import com.vik.utils.*;
 import com.vik.utils.aop.annotations.*;
+import com.vik.utils.aop.support.*;
 import com.vik.utils.data.responses.*;
 import com.vik.utils.exceptions.*;
+import com.vik.utils.logging.*;
+import com.vik.utils.resilience.*;
+import io.micrometer.core.instrument.Counter;
 import lombok.*;
 import lombok.extern.slf4j.*;
-import org.apache.commons.lang3.exception.*;
 import org.aspectj.lang.*;
 import org.aspectj.lang.annotation.*;
+import org.reactivestreams.*;
 import org.springframework.beans.factory.annotation.*;
+import org.springframework.core.*;
 import org.springframework.http.*;
 import org.springframework.stereotype.*;
+import org.springframework.web.server.*;
+import reactor.core.publisher.*;
+
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 @Slf4j
 @Aspect
@@ -22,45 +33,266 @@ public class ControllerInstrumentationAspect {
 
     @Autowired
     private final MetricsService metricsService;
+    @Autowired
+    private final LogSampler logSampler;
+    @Autowired
+    private final StackTraceFingerprinter stackTraceFingerprinter;
+    @Autowired
+    private final ApiConcurrencyLimits concurrencyLimits;
+
+    // Whether a handler's declared result can carry a ResponseEntity<BaseResponse> error body
+    private final ConcurrentMap<Method, Boolean> entityResults = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> requestCounters = new ConcurrentHashMap<>();
 
     @Around("@annotation(controlleraInstrumentation)")
     public Object logAndMetrics(
             ProceedingJoinPoint joinPoint, ControlleraInstrumentation controlleraInstrumentation)
             throws Throwable {
+        String apiPath = controlleraInstrumentation.apiPath();
+        Method method = CallSite.of(joinPoint).getMethod();
+        Boolean cached = entityResults.get(method);
+        boolean entityResult = cached != null ? cached
+                : entityResults.computeIfAbsent(method, ControllerInstrumentationAspect::isEntityResult);
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimits.limiter(apiPath, controlleraInstrumentation);
+        if (limiter == null) {
+            return instrument(joinPoint, controlleraInstrumentation, entityResult);
+        }
+
+        // Reactive handlers only assemble the pipeline here; the work, and so the permit, starts on subscription
+        Class<?> returnType = method.getReturnType();
+        if (Mono.class.isAssignableFrom(returnType) || Flux.class.isAssignableFrom(returnType)) {
+            return limitOnSubscribe(joinPoint, controlleraInstrumentation, returnType, limiter, entityResult);
+        }
+        if (!limiter.tryAcquire()) {
+            if (!entityResult) {
+                throw rejectionError(apiPath);
+            }
+            ResponseEntity<BaseResponse> rejection = reject(apiPath);
+            return CompletionStage.class.isAssignableFrom(returnType)
+                    ? CompletableFuture.completedFuture(rejection)
+                    : rejection;
+        }
+        long start = System.nanoTime();
+        boolean handedOff = false;
+        try {
+            Object result = instrument(joinPoint, controlleraInstrumentation, entityResult);
+            if (result instanceof CompletionStage<?> stage) {
+                stage.whenComplete((value, error) -> limiter.release(System.nanoTime() - start, true));
+                handedOff = true;
+            }
+            return result;
+        } finally {
+            if (!handedOff) {
+                limiter.release(System.nanoTime() - start, true);
+            }
+        }
+    }
+
+    private Object instrument(ProceedingJoinPoint joinPoint, ControlleraInstrumentation controlleraInstrumentation,
+                              boolean entityResult) throws Throwable {
         String methodName = joinPoint.getSignature().getName();
         String apiPath = controlleraInstrumentation.apiPath();
         Object[] args = joinPoint.getArgs();
 
-        log.info("Request to API: {}, Method: {} with arguments: {}", apiPath, methodName, args);
-        metricsService.incrementCounter("Controller_Request", "api", apiPath);
+        LogPolicy policy = logSampler.policy(apiPath, controlleraInstrumentation.sampleRate(),
+                controlleraInstrumentation.maxLogsPerSecond(), controlleraInstrumentation.slowCallThresholdMs(),
+                controlleraInstrumentation.alwaysLogErrors());
+        boolean sampled = logSampler.sample(apiPath, policy);
+        boolean logErrors = sampled || policy.isAlwaysLogErrors();
+
+        if (sampled) {
+            log.info("Request to API: {}, Method: {} with arguments: {}", apiPath, methodName, args);
+        }
+        Counter requests = requestCounters.get(apiPath);
+        if (requests == null) {
+            requests = requestCounters.computeIfAbsent(apiPath,
+                    path -> metricsService.counter("Controller_Request", "api", path));
+        }
+        requests.increment();
+        long start = System.nanoTime();
         try {
             Object result = joinPoint.proceed();
-            log.info(
-                    "Response from API: {}, Method: {}. Result: {}, arguments: {}",
-                    apiPath,
-                    methodName,
-                    result,
-                    args);
+            if (AsyncResults.isAsync(result)) {
+                return instrumentAsync(result, start, apiPath, methodName, args, policy, sampled, entityResult);
+            }
+            if (sampled || policy.isSlow(System.nanoTime() - start)) {
+                logResponse(apiPath, methodName, result, args);
+            }
             return result;
-        } catch (BadRequestException e) {
-            logError(apiPath, methodName, args, e);
-            BaseResponse errorResponse = new BaseResponse(e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
         } catch (Exception e) {
-            logError(apiPath, methodName, args, e);
-            BaseResponse errorResponse = new BaseResponse(e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+            if (!entityResult) {
+                logError(apiPath, methodName, args, e, logErrors);
+                throw e;
+            }
+            return errorResponse(apiPath, methodName, args, e, logErrors);
         }
     }
 
-    private void logError(
-            String apiPath, String methodName, Object[] args, Exception e) {
-        log.error(
-                "Exception in API {} ({}): Arguments: {} - Error: {}",
+    /**
+     * Errors are answered with a {@code ResponseEntity<BaseResponse>} only where the handler declares a
+     * {@link ResponseEntity} or a subtype (as its return type, or as the element type of its {@link Mono} or
+     * {@link CompletionStage}). Anywhere else, {@code Object} included, the entity could be serialized as a
+     * 200 body, so the error is left to Spring's error handling.
+     */
+    static boolean isEntityResult(Method method) {
+        Class<?> declared = method.getReturnType();
+        if (Mono.class.isAssignableFrom(declared) || CompletionStage.class.isAssignableFrom(declared)) {
+            declared = ResolvableType.forMethodReturnType(method).as(
+                    Mono.class.isAssignableFrom(declared) ? Mono.class : CompletionStage.class).getGeneric(0).resolve();
+        }
+        return declared != null && ResponseEntity.class.isAssignableFrom(declared);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object instrumentAsync(Object result, long start, String apiPath, String methodName, Object[] args,
+                                   LogPolicy policy, boolean sampled, boolean entityResult) {
+        boolean multiValued = result instanceof Flux<?>;
+        boolean logErrors = sampled || policy.isAlwaysLogErrors();
+        Object observed = AsyncResults.observe(result, start, new CompletionListener() {
+            private final AtomicLong elements = new AtomicLong();
+
+            @Override
+            public void onNext(Object value, long elapsedNanos) {
+                elements.incrementAndGet();
+            }
+
+            @Override
+            public void onSuccess(Object value, long elapsedNanos) {
+                // A stream is one response, logged once it completes
+                if (sampled || policy.isSlow(elapsedNanos)) {
+                    logResponse(apiPath, methodName,
+                            multiValued ? PooledDownstreamLoggingAspect.streamSummary(elements.get()) : value, args);
+                }
+            }
+
+            @Override
+            public void onCancel(long elapsedNanos) {
+                // Usually the client went away
+                metricsService.counter("Controller_Cancelled", "api", apiPath).increment();
+            }
+
+            @Override
+            public void onError(Throwable error, long elapsedNanos) {
+                // Single-valued handlers get the same error body as blocking ones, see below
+                if (!entityResult || multiValued || !(error instanceof Exception)) {
+                    logError(apiPath, methodName, args, error, logErrors);
+                }
+            }
+        });
+        if (!entityResult) {
+            return observed;
+        }
+        if (observed instanceof Mono<?>) {
+            return ((Mono<Object>) observed)
+                    .onErrorResume(Exception.class,
+                            e -> Mono.just(errorResponse(apiPath, methodName, args, e, logErrors)));
+        }
+        if (observed instanceof CompletionStage<?>) {
+            return ((CompletionStage<Object>) observed).exceptionally(t -> {
+                Throwable cause = AsyncResults.unwrap(t);
+                if (cause instanceof Exception e) {
+                    return errorResponse(apiPath, methodName, args, e, logErrors);
+                }
+                throw t instanceof CompletionException ce ? ce : new CompletionException(cause);
+            });
+        }
+        return observed;
+    }
+
+    private void logResponse(String apiPath, String methodName, Object result, Object[] args) {
+        log.info(
+                "Response from API: {}, Method: {}. Result: {}, arguments: {}",
                 apiPath,
                 methodName,
-                args,
-                ExceptionUtils.getStackTrace(e));
-        metricsService.incrementCounter("Controller_Exception", "api", apiPath, "error", e.getClass().getSimpleName());
+                result,
+                args);
+    }
+
+    /**
+     * Like the blocking path, a handler is only invoked (and its request counted) once it holds a permit, which
+     * for reactive handlers means on each subscription.
+     */
+    private Object limitOnSubscribe(ProceedingJoinPoint joinPoint, ControlleraInstrumentation controlleraInstrumentation,
+                                    Class<?> returnType, AdaptiveConcurrencyLimiter limiter, boolean entityResult) {
+        String apiPath = controlleraInstrumentation.apiPath();
+        if (Mono.class.isAssignableFrom(returnType)) {
+            return Mono.defer(() -> {
+                if (!limiter.tryAcquire()) {
+                    return entityResult ? Mono.<Object>just(reject(apiPath)) : Mono.<Object>error(rejectionError(apiPath));
+                }
+                long start = System.nanoTime();
+                Object result;
+                try {
+                    result = instrument(joinPoint, controlleraInstrumentation, entityResult);
+                } catch (Throwable t) {
+                    limiter.release(System.nanoTime() - start, true);
+                    return Mono.error(t);
+                }
+                return asMono(result).doFinally(
+                        signal -> limiter.release(System.nanoTime() - start, signal != SignalType.CANCEL));
+            });
+        }
+        // A stream has no room for a BaseResponse, so rejections go through Spring's error handling
+        return Flux.defer(() -> {
+            if (!limiter.tryAcquire()) {
+                return Flux.<Object>error(rejectionError(apiPath));
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = instrument(joinPoint, controlleraInstrumentation, entityResult);
+            } catch (Throwable t) {
+                limiter.release(System.nanoTime() - start, true);
+                return Flux.error(t);
+            }
+            return asFlux(result).doFinally(
+                    signal -> limiter.release(System.nanoTime() - start, signal != SignalType.CANCEL));
+        });
+    }
+
+    // instrument() answers a failed entity handler with the error entity itself rather than a publisher
+    @SuppressWarnings("unchecked")
+    private static Mono<Object> asMono(Object result) {
+        return result instanceof Mono<?> mono ? (Mono<Object>) mono : Mono.justOrEmpty(result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Flux<Object> asFlux(Object result) {
+        if (result instanceof Publisher<?> publisher) {
+            return Flux.from((Publisher<Object>) publisher);
+        }
+        return result == null ? Flux.empty() : Flux.just(result);
+    }
+
+    private ResponseEntity<BaseResponse> reject(String apiPath) {
+        metricsService.counter("Controller_Concurrency_Rejected", "api", apiPath).increment();
+        return ResponseEntity.status(concurrencyLimits.getRejectStatus())
+                .body(new BaseResponse("Concurrency limit reached for " + apiPath));
+    }
+
+    private ResponseStatusException rejectionError(String apiPath) {
+        metricsService.counter("Controller_Concurrency_Rejected", "api", apiPath).increment();
+        return new ResponseStatusException(concurrencyLimits.getRejectStatus(), "Concurrency limit reached for " + apiPath);
+    }
+
+    private ResponseEntity<BaseResponse> errorResponse(
+            String apiPath, String methodName, Object[] args, Exception e, boolean emitLog) {
+        logError(apiPath, methodName, args, e, emitLog);
+        BaseResponse errorResponse = new BaseResponse(e.getMessage());
+        HttpStatus status = e instanceof BadRequestException ? HttpStatus.BAD_REQUEST : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status).body(errorResponse);
+    }
+
+    private void logError(
+            String apiPath, String methodName, Object[] args, Throwable e, boolean emitLog) {
+        if (emitLog) {
+            log.error(
+                    "Exception in API {} ({}): Arguments: {} - Error: {}",
+                    apiPath,
+                    methodName,
+                    args,
+                    stackTraceFingerprinter.render(e));
+        }
+        metricsService.counter("Controller_Exception", "api", apiPath, "error", e.getClass().getSimpleName()).increment();
     }
 }
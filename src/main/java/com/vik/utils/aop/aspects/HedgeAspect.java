@@ -0,0 +1,221 @@
+package com.vik.utils.aop.aspects;
+
+import com.vik.utils.*;
+import com.vik.utils.aop.annotations.*;
+import com.vik.utils.aop.support.*;
+import com.vik.utils.resilience.*;
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.distribution.*;
+import lombok.*;
+import lombok.extern.slf4j.*;
+import org.apache.commons.lang3.tuple.*;
+import org.aspectj.lang.*;
+import org.aspectj.lang.annotation.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.core.annotation.*;
+import org.springframework.stereotype.*;
+import reactor.core.*;
+import reactor.core.publisher.*;
+import reactor.core.scheduler.*;
+
+import java.lang.reflect.*;
+import java.time.*;
+import java.util.concurrent.*;
+
+/**
+ * Applies {@link HedgedDownstream}. The primary attempt's outcome is final: if it fails, the call fails
+ * even when a hedge is in flight, and a failing hedge is ignored in favour of the primary. The hedge delay
+ * is the configured percentile of the target's successful {@code Outgoing_Latency}, read from its published
+ * percentiles or, failing those, its histogram buckets.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(AspectOrder.HEDGE)
+@RequiredArgsConstructor
+public class HedgeAspect {
+
+    private static final long MIN_SAMPLES = 20;
+    private static final long REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double PERCENTILE_TOLERANCE = 1e-6;
+
+    @Autowired
+    private final LoggingMethods loggingMethods;
+
+    private final ConcurrentMap<Method, HedgeState> states = new ConcurrentHashMap<>();
+
+    @Around("@annotation(hedged)")
+    public Object hedge(ProceedingJoinPoint joinPoint, HedgedDownstream hedged) throws Throwable {
+        CallSite callSite = CallSite.of(joinPoint);
+        HedgeState state = states.computeIfAbsent(callSite.getMethod(),
+                m -> new HedgeState(hedged));
+        state.budget.onCall();
+
+        Object primary = joinPoint.proceed();
+        if (primary instanceof CompletionStage<?> stage) {
+            return hedgeStage(joinPoint, callSite, state, stage);
+        }
+        if (primary instanceof Mono<?> mono) {
+            return hedgeMono(joinPoint, callSite, state, mono);
+        }
+        return primary;
+    }
+
+    private CompletableFuture<Object> hedgeStage(ProceedingJoinPoint joinPoint, CallSite callSite, HedgeState state,
+                                                 CompletionStage<?> primary) {
+        Pair<String, String> uri = DownstreamTargets.resolve(callSite, joinPoint.getArgs());
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        CompletableFuture<Future<?>> hedge = new CompletableFuture<>();
+
+        primary.whenComplete((value, error) -> {
+            if (error != null) {
+                result.completeExceptionally(AsyncResults.unwrap(error));
+            } else {
+                result.complete(value);
+            }
+        });
+
+        Disposable scheduled = Schedulers.boundedElastic().schedule(() -> {
+            if (result.isDone()) {
+                hedge.complete(null);
+                return;
+            }
+            if (!state.budget.tryAcquire()) {
+                loggingMethods.countDownstreamHedge(uri.getLeft(), uri.getRight(), "budget_exhausted");
+                hedge.complete(null);
+                return;
+            }
+            loggingMethods.countDownstreamHedge(uri.getLeft(), uri.getRight(), "fired");
+            CompletionStage<?> second;
+            try {
+                second = (CompletionStage<?>) joinPoint.proceed();
+            } catch (Throwable t) {
+                hedge.complete(null);
+                return;
+            }
+            hedge.complete(second instanceof Future<?> future ? future : null);
+            second.whenComplete((value, error) -> {
+                if (error == null && result.complete(value)) {
+                    loggingMethods.countDownstreamHedge(uri.getLeft(), uri.getRight(), "won");
+                }
+            });
+        }, state.delayNanos(uri), TimeUnit.NANOSECONDS);
+
+        // Whichever attempt settles the call, the other one (or the pending hedge) is no longer needed
+        result.whenComplete((ignored, error) -> {
+            scheduled.dispose();
+            if (primary instanceof Future<?> future && !future.isDone()) {
+                future.cancel(true);
+            }
+            hedge.thenAccept(second -> {
+                if (second != null && !second.isDone()) {
+                    second.cancel(true);
+                }
+            });
+        });
+        return result;
+    }
+
+    private Mono<Object> hedgeMono(ProceedingJoinPoint joinPoint, CallSite callSite, HedgeState state, Mono<?> primary) {
+        Pair<String, String> uri = DownstreamTargets.resolve(callSite, joinPoint.getArgs());
+        return Mono.defer(() -> {
+            Mono<Object> first = primary.cast(Object.class);
+            Mono<Object> second = Mono.delay(Duration.ofNanos(state.delayNanos(uri)))
+                    .flatMap(tick -> {
+                        if (!state.budget.tryAcquire()) {
+                            loggingMethods.countDownstreamHedge(uri.getLeft(), uri.getRight(), "budget_exhausted");
+                            return Mono.never();
+                        }
+                        loggingMethods.countDownstreamHedge(uri.getLeft(), uri.getRight(), "fired");
+                        return proceedMono(joinPoint)
+                                .doOnSuccess(value ->
+                                        loggingMethods.countDownstreamHedge(uri.getLeft(), uri.getRight(), "won"))
+                                .onErrorResume(e -> Mono.never());
+                    });
+            // The first signal wins and cancels the other subscription
+            return Mono.firstWithSignal(first, second);
+        });
+    }
+
+    private static Mono<Object> proceedMono(ProceedingJoinPoint joinPoint) {
+        try {
+            return ((Mono<?>) joinPoint.proceed()).cast(Object.class);
+        } catch (Throwable t) {
+            return Mono.error(t);
+        }
+    }
+
+    /**
+     * The {@code percentile} latency in {@code snapshot}: a published percentile if one matches, otherwise
+     * the upper bound of the histogram bucket it falls in, or {@code -1} when the timer tracks neither.
+     */
+    static long percentileNanos(HistogramSnapshot snapshot, double percentile) {
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            if (Math.abs(value.percentile() - percentile) < PERCENTILE_TOLERANCE) {
+                return (long) value.value(TimeUnit.NANOSECONDS);
+            }
+        }
+        // Bucket counts are cumulative
+        double rank = percentile * snapshot.count();
+        for (CountAtBucket bucket : snapshot.histogramCounts()) {
+            if (bucket.count() >= rank) {
+                double bound = bucket.bucket(TimeUnit.NANOSECONDS);
+                return Double.isInfinite(bound) ? -1 : (long) bound;
+            }
+        }
+        return -1;
+    }
+
+    private class HedgeState {
+        private final HedgedDownstream hedged;
+        private final RatioBudget budget;
+        private final long minDelayNanos;
+        private final long initialDelayNanos;
+        // Keyed by the target's timer, since one method may call several hosts and paths
+        private final ConcurrentMap<Timer, Delay> delays = new ConcurrentHashMap<>();
+
+        private HedgeState(HedgedDownstream hedged) {
+            this.hedged = hedged;
+            this.budget = new RatioBudget(hedged.maxHedgeRatio(), hedged.burst());
+            this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(hedged.minDelayMs());
+            this.initialDelayNanos = Math.max(minDelayNanos, TimeUnit.MILLISECONDS.toNanos(hedged.initialDelayMs()));
+        }
+
+        private long delayNanos(Pair<String, String> uri) {
+            Timer latency = loggingMethods.downstreamLatency(uri.getLeft(), uri.getRight());
+            if (latency == null) {
+                return initialDelayNanos;
+            }
+            Delay delay = delays.get(latency);
+            if (delay == null) {
+                delay = delays.computeIfAbsent(latency, Delay::new);
+            }
+            return delay.nanos();
+        }
+
+        private class Delay {
+            private final Timer latency;
+            private volatile long nanos = initialDelayNanos;
+            private volatile long refreshedAt = System.nanoTime();
+
+            private Delay(Timer latency) {
+                this.latency = latency;
+            }
+
+            // Snapshots allocate, so the percentile is re-read at most once per refresh interval
+            private long nanos() {
+                long now = System.nanoTime();
+                if (now - refreshedAt > REFRESH_INTERVAL_NANOS) {
+                    refreshedAt = now;
+                    if (latency.count() >= MIN_SAMPLES) {
+                        long percentile = percentileNanos(latency.takeSnapshot(), hedged.percentile());
+                        if (percentile > 0) {
+                            nanos = Math.max(minDelayNanos, percentile);
+                        }
+                    }
+                }
+                return nanos;
+            }
+        }
+    }
+}
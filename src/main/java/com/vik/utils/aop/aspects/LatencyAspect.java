@@ -2,37 +2,107 @@ package com.vik.utils.aop.aspects;
 
 import com.vik.utils.*;
 import com.vik.utils.aop.annotations.*;
+import com.vik.utils.aop.support.*;
+import io.micrometer.core.instrument.*;
 import org.aspectj.lang.*;
 import org.aspectj.lang.annotation.*;
 import org.aspectj.lang.reflect.*;
 import org.springframework.stereotype.*;
 
+import java.lang.reflect.*;
+import java.time.*;
+import java.util.concurrent.*;
+
 @Aspect
 @Component
 public class LatencyAspect {
 
     private final MetricsService metricsService;
 
+    // The annotation is fixed per method, so its timer is too
+    private final ConcurrentMap<Method, Timer> timers = new ConcurrentHashMap<>();
+
     public LatencyAspect(MetricsService metricsService) {
         this.metricsService = metricsService;
     }
 
-    @Around("@annotation(com.vik.herald.annotation.MeasureLatency)")
-    public Object measureLatency(ProceedingJoinPoint joinPoint) throws Throwable {
+    @Around("@annotation(measureLatency)")
+    public Object measureLatency(ProceedingJoinPoint joinPoint, MeasureLatency measureLatency) throws Throwable {
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        MeasureLatency annotation = signature.getMethod().getAnnotation(MeasureLatency.class);
+        Timer cached = timers.get(signature.getMethod());
+        Timer timer = cached != null ? cached
+                : timers.computeIfAbsent(signature.getMethod(), method -> createTimer(signature, measureLatency));
+
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable t) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw t;
+        }
+
+        if (AsyncResults.isAsync(result)) {
+            return AsyncResults.observe(result, start, new CompletionListener() {
+                @Override
+                public void onSuccess(Object value, long elapsedNanos) {
+                    timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+                }
+
+                @Override
+                public void onError(Throwable error, long elapsedNanos) {
+                    timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+                }
+
+                @Override
+                public void onCancel(long elapsedNanos) {
+                    timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+                }
+            });
+        }
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
 
-        String metricName = annotation.metricName();
+    private Timer createTimer(MethodSignature signature, MeasureLatency measureLatency) {
+        String metricName = measureLatency.metricName();
         if (metricName.isEmpty()) {
             metricName = signature.getDeclaringType().getSimpleName() + "." + signature.getName();
         }
+        return hasDistribution(measureLatency)
+                ? metricsService.timer(metricName, builder -> configure(builder, measureLatency), measureLatency.tags())
+                : metricsService.timer(metricName, measureLatency.tags());
+    }
+
+    private static boolean hasDistribution(MeasureLatency measureLatency) {
+        return measureLatency.histogram()
+                || measureLatency.percentiles().length > 0
+                || measureLatency.sloMs().length > 0
+                || measureLatency.minExpectedMs() >= 0
+                || measureLatency.maxExpectedMs() >= 0
+                || measureLatency.expiryMs() >= 0;
+    }
 
-        return metricsService.recordDuration(metricName, () -> {
-            try {
-                return joinPoint.proceed();
-            } catch (Throwable e) {
-                throw new RuntimeException(e);
+    private static void configure(Timer.Builder builder, MeasureLatency measureLatency) {
+        builder.publishPercentileHistogram(measureLatency.histogram());
+        if (measureLatency.percentiles().length > 0) {
+            builder.publishPercentiles(measureLatency.percentiles());
+        }
+        if (measureLatency.sloMs().length > 0) {
+            Duration[] slo = new Duration[measureLatency.sloMs().length];
+            for (int i = 0; i < slo.length; i++) {
+                slo[i] = Duration.ofMillis(measureLatency.sloMs()[i]);
             }
-        }, annotation.tags());
+            builder.serviceLevelObjectives(slo);
+        }
+        if (measureLatency.minExpectedMs() >= 0) {
+            builder.minimumExpectedValue(Duration.ofMillis(measureLatency.minExpectedMs()));
+        }
+        if (measureLatency.maxExpectedMs() >= 0) {
+            builder.maximumExpectedValue(Duration.ofMillis(measureLatency.maxExpectedMs()));
+        }
+        if (measureLatency.expiryMs() >= 0) {
+            builder.distributionStatisticExpiry(Duration.ofMillis(measureLatency.expiryMs()));
+        }
     }
-} 
\ No newline at end of file
+}
@@ -3,73 +3,165 @@ package com.vik.utils.aop.aspects;
 
 import com.vik.utils.*;
 import com.vik.utils.aop.annotations.*;
+import com.vik.utils.aop.support.*;
+import com.vik.utils.capture.*;
+import com.vik.utils.logging.*;
+import com.vik.utils.resilience.*;
 import lombok.extern.slf4j.*;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import org.apache.commons.lang3.tuple.*;
-import org.apache.hc.core5.net.*;
 import org.aspectj.lang.*;
 import org.aspectj.lang.annotation.*;
-import org.aspectj.lang.reflect.*;
+import org.reactivestreams.*;
 import org.springframework.beans.factory.annotation.*;
+import org.springframework.core.annotation.*;
 import org.springframework.stereotype.*;
+import reactor.core.publisher.*;
 
-import java.lang.annotation.*;
 import java.lang.reflect.*;
-import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 
 @Slf4j
 @Aspect
 @Component
+@Order(AspectOrder.DOWNSTREAM_LOGGING)
 public class PooledDownstreamLoggingAspect {
 
     @Autowired
     LoggingMethods loggingMethods;
 
+    @Autowired
+    LogSampler logSampler;
+
+    @Autowired
+    DownstreamResilience downstreamResilience;
+
+    @Autowired(required = false)
+    TrafficCaptureWriter trafficCapture;
+
     @Around("@annotation(downstreamLog)")
     public Object logDownstreamCall(ProceedingJoinPoint joinPoint, PooledDownstreamLog downstreamLog) throws Throwable {
-        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        Method method = signature.getMethod();
-        String classMethodName = joinPoint.getTarget().getClass().getSimpleName() + "." + method.getName();
-
-        Annotation[][] paramAnnotations = signature.getMethod().getParameterAnnotations();
-        Object[] args = joinPoint.getArgs();
-        Map<String, String> tags = new HashMap<>();
-        for (int i = 0; i < paramAnnotations.length; i++) {
-            for (Annotation annotation : paramAnnotations[i]) {
-                if (annotation instanceof TagsParam && args[i] instanceof Map) {
-                    tags.putAll((Map<String, String>) args[i]);
-                    break;
-                }
-            }
+        CallSite callSite = CallSite.of(joinPoint);
+        Method method = callSite.getMethod();
+        String classMethodName = callSite.getClassMethodName();
+
+        Pair<String, String> uri = DownstreamTargets.resolve(callSite, joinPoint.getArgs());
+        Object[] args = callSite.loggableArgs(joinPoint.getArgs());
+        String host = uri.getLeft();
+        String path = uri.getRight();
+
+        LogPolicy policy = logSampler.policy(classMethodName, downstreamLog.sampleRate(),
+                downstreamLog.maxLogsPerSecond(), downstreamLog.slowCallThresholdMs(), downstreamLog.alwaysLogErrors());
+        boolean sampled = logSampler.sample(classMethodName, policy);
+        if (sampled) {
+            loggingMethods.logDownstreamRequest(classMethodName, host, path, args);
+        } else {
+            loggingMethods.countDownstreamRequest(host, path);
         }
 
-        Pair<String, String> uri = getUri(args, tags);
-        loggingMethods.logDownstreamRequest(classMethodName, uri.getLeft(), uri.getRight(), args);
-        Object response = joinPoint.proceed();
-        loggingMethods.logDownstreamRequestResponse(classMethodName, uri.getLeft(), uri.getRight(), response, args);
+        long start = System.nanoTime();
+        Object response;
+        try {
+            // An unresolved host would otherwise put every such method behind one shared breaker
+            response = DownstreamResilience.isEnabled(downstreamLog)
+                    ? downstreamResilience.proceed(joinPoint, downstreamLog, DownstreamTargets.isKnown(host)
+                    ? loggingMethods.resolveHost(host) : classMethodName,
+                    Publisher.class.isAssignableFrom(method.getReturnType()))
+                    : joinPoint.proceed();
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            // Short-circuited before reaching the host: report it like any failed call
+            new DownstreamCompletionListener(classMethodName, host, path, args, policy, sampled, false)
+                    .onError(e, System.nanoTime() - start);
+            if (CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+                return CompletableFuture.failedFuture(e);
+            }
+            throw e;
+        } catch (Throwable t) {
+            // Synchronous failures are left to the caller to log, but still count towards latency
+            loggingMethods.recordDownstreamLatency(host, path, false, System.nanoTime() - start);
+            throw t;
+        }
+        DownstreamCompletionListener listener = new DownstreamCompletionListener(
+                classMethodName, host, path, args, policy, sampled, response instanceof Flux<?>);
+        if (AsyncResults.isAsync(response)) {
+            return AsyncResults.observe(response, start, listener);
+        }
+        listener.onSuccess(response, System.nanoTime() - start);
         return response;
     }
 
-    private Pair<String, String> getUri(Object[] args, Map<String, String> tags) {
-        if (!tags.isEmpty()) {
-            String host = tags.getOrDefault("host", "-");
-            String path = tags.getOrDefault("path", "-");
-            return Pair.of(host, path);
-        }
-        return Optional.ofNullable(args)
-                .filter(a -> a.length > 0 && a[0] instanceof String)
-                .map(a -> (String) a[0])
-                .map(url -> {
-                    try {
-                        URIBuilder builder = new URIBuilder(url);
-                        String host = Optional.ofNullable(builder.getHost()).orElse("-");
-                        String path = Optional.ofNullable(builder.getPath()).filter(p -> !p.isEmpty()).orElse("-");
-                        return Pair.of(host, path);
-                    } catch (Exception e) {
-                        return Pair.of("-", "-");
-                    }
-                })
-                .orElse(Pair.of("-", "-"));
+    static String streamSummary(long elements) {
+        return "<stream of " + elements + " elements>";
     }
 
+    private class DownstreamCompletionListener implements CompletionListener {
+        private final String classMethodName;
+        private final String host;
+        private final String path;
+        private final Object[] args;
+        private final LogPolicy policy;
+        private final boolean sampled;
+        private final boolean multiValued;
+        private final AtomicLong elements = new AtomicLong();
+
+        private DownstreamCompletionListener(String classMethodName, String host, String path, Object[] args,
+                                             LogPolicy policy, boolean sampled, boolean multiValued) {
+            this.classMethodName = classMethodName;
+            this.host = host;
+            this.path = path;
+            this.args = args;
+            this.policy = policy;
+            this.sampled = sampled;
+            this.multiValued = multiValued;
+        }
+
+        @Override
+        public void onNext(Object value, long elapsedNanos) {
+            elements.incrementAndGet();
+        }
+
+        @Override
+        public void onSuccess(Object value, long elapsedNanos) {
+            loggingMethods.recordDownstreamLatency(host, path, true, elapsedNanos);
+            capture(multiValued ? null : value, null, elapsedNanos);
+            // A stream is one response, counted and logged once it completes
+            response(multiValued ? streamSummary(elements.get()) : value, elapsedNanos);
+        }
+
+        @Override
+        public void onError(Throwable error, long elapsedNanos) {
+            loggingMethods.recordDownstreamLatency(host, path, false, elapsedNanos);
+            capture(null, error, elapsedNanos);
+            if (sampled || policy.isAlwaysLogErrors()) {
+                loggingMethods.logDownstreamFallback(classMethodName, host, path, error, args);
+            } else {
+                loggingMethods.countDownstreamFallback(classMethodName, host, path, error);
+            }
+        }
+
+        @Override
+        public void onCancel(long elapsedNanos) {
+            loggingMethods.recordDownstreamLatency(host, path, "cancelled", elapsedNanos);
+            capture(null, new CancellationException("Cancelled by caller"), elapsedNanos);
+            loggingMethods.logDownstreamCancelled(classMethodName, host, path, elapsedNanos,
+                    sampled || policy.isSlow(elapsedNanos));
+        }
+
+        private void capture(Object value, Throwable error, long elapsedNanos) {
+            if (trafficCapture != null) {
+                trafficCapture.capture(classMethodName, host, path, args, value, error, elapsedNanos);
+            }
+        }
+
+        private void response(Object value, long elapsedNanos) {
+            if (sampled || policy.isSlow(elapsedNanos)) {
+                loggingMethods.logDownstreamRequestResponse(classMethodName, host, path, value, args);
+            } else {
+                loggingMethods.countDownstreamResponse(host, path);
+            }
+        }
+    }
 }
@@ -0,0 +1,262 @@
+package com.vik.utils.aop.aspects;
+
+import com.vik.utils.*;
+import com.vik.utils.aop.annotations.*;
+import com.vik.utils.aop.support.*;
+import com.vik.utils.config.*;
+import com.vik.utils.exceptions.*;
+import com.vik.utils.resilience.*;
+import lombok.*;
+import lombok.extern.slf4j.*;
+import org.apache.commons.lang3.tuple.*;
+import org.aspectj.lang.*;
+import org.aspectj.lang.annotation.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.core.annotation.*;
+import org.springframework.stereotype.*;
+import reactor.core.publisher.*;
+import reactor.util.retry.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Applies {@link RetryableDownstream}. Retries of {@link CompletionStage} results are scheduled with
+ * {@link CompletableFuture#delayedExecutor} and of {@link Mono} results with {@link Mono#retryWhen}, so no
+ * thread waits out the backoff. Methods returning a plain value are retried on the calling thread, which
+ * parks through the backoff; on a virtual thread that releases the carrier. All three share the backoff and
+ * the per-host budget. Results that cannot be retried are rejected at startup by
+ * {@link RetryableDownstreamValidator}.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(AspectOrder.RETRY)
+@RequiredArgsConstructor
+public class RetryAspect {
+
+    @Autowired
+    private final LoggingMethods loggingMethods;
+    @Autowired
+    private final RetryProperties retryProperties;
+
+    private final ConcurrentMap<String, TokenBucket> budgets = new ConcurrentHashMap<>();
+
+    @Around("@annotation(retryable)")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryableDownstream retryable) throws Throwable {
+        CallSite callSite = CallSite.of(joinPoint);
+        String classMethodName = callSite.getClassMethodName();
+        Pair<String, String> uri = DownstreamTargets.resolve(callSite, joinPoint.getArgs());
+
+        Class<?> returnType = callSite.getMethod().getReturnType();
+        boolean stageResult = CompletionStage.class.isAssignableFrom(returnType);
+        if (!stageResult && !Mono.class.isAssignableFrom(returnType)) {
+            if (!RetryableDownstreamValidator.isRetryableResult(returnType)) {
+                return joinPoint.proceed();
+            }
+            return retryBlocking(new Attempts(joinPoint, retryable, classMethodName, uri.getLeft(), uri.getRight()));
+        }
+
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable t) {
+            // Thrown before a result existed: retried like a failed result, without blocking
+            result = stageResult ? CompletableFuture.failedFuture(t) : Mono.error(t);
+        }
+        if (result instanceof CompletionStage<?> stage) {
+            return retryStage(new Attempts(joinPoint, retryable, classMethodName, uri.getLeft(), uri.getRight()), stage);
+        }
+        if (result instanceof Mono<?> mono) {
+            return retryMono(joinPoint, retryable, classMethodName, uri, mono);
+        }
+        return result;
+    }
+
+    private Object retryBlocking(Attempts attempts) throws Throwable {
+        while (true) {
+            try {
+                Object result = attempts.joinPoint.proceed();
+                attempts.recovered();
+                return result;
+            } catch (Throwable t) {
+                long delayNanos = attempts.nextDelayNanos(t);
+                if (delayNanos < 0 || !park(delayNanos)) {
+                    throw t;
+                }
+            }
+        }
+    }
+
+    // Parks rather than sleeps, so a virtual caller gives up its carrier; false if interrupted meanwhile
+    private static boolean park(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        for (long remaining = nanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private CompletableFuture<Object> retryStage(Attempts attempts, CompletionStage<?> first) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        AtomicReference<CompletionStage<?>> current = new AtomicReference<>(first);
+        result.whenComplete((ignored, error) -> {
+            if (result.isCancelled() && current.get() instanceof Future<?> future) {
+                future.cancel(true);
+            }
+        });
+        awaitAttempt(attempts, first, result, current);
+        return result;
+    }
+
+    private void awaitAttempt(Attempts attempts, CompletionStage<?> attempt, CompletableFuture<Object> result,
+                              AtomicReference<CompletionStage<?>> current) {
+        attempt.whenComplete((value, error) -> {
+            if (error == null) {
+                attempts.recovered();
+                result.complete(value);
+                return;
+            }
+            Throwable failure = AsyncResults.unwrap(error);
+            long delayNanos = result.isDone() ? -1 : attempts.nextDelayNanos(failure);
+            if (delayNanos < 0) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                CompletionStage<?> next;
+                try {
+                    next = (CompletionStage<?>) attempts.joinPoint.proceed();
+                } catch (Throwable t) {
+                    next = CompletableFuture.failedFuture(t);
+                }
+                current.set(next);
+                awaitAttempt(attempts, next, result, current);
+            });
+        });
+    }
+
+    private Mono<Object> retryMono(ProceedingJoinPoint joinPoint, RetryableDownstream retryable, String classMethodName,
+                                   Pair<String, String> uri, Mono<?> first) {
+        // Attempt state is per subscription; the first attempt reuses the Mono the method already returned
+        return Mono.defer(() -> {
+            Attempts attempts = new Attempts(joinPoint, retryable, classMethodName, uri.getLeft(), uri.getRight());
+            AtomicBoolean firstUsed = new AtomicBoolean();
+            return Mono.defer(() -> firstUsed.compareAndSet(false, true) ? first : attempts.proceedMono())
+                    .cast(Object.class)
+                    .retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                        long delayNanos = attempts.nextDelayNanos(signal.failure());
+                        return delayNanos < 0
+                                ? Mono.<Long>error(signal.failure())
+                                : Mono.delay(Duration.ofNanos(delayNanos));
+                    })))
+                    .doOnSuccess(ignored -> attempts.recovered());
+        });
+    }
+
+    private TokenBucket budget(String key) {
+        return budgets.computeIfAbsent(key, k -> new TokenBucket(
+                retryProperties.getBudget().getRetriesPerSecond(), retryProperties.getBudget().getBurst()));
+    }
+
+    private static boolean isRetryable(Throwable failure, RetryableDownstream retryable) {
+        for (Throwable cause = AsyncResults.unwrap(failure); cause != null;
+             cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof RetryableHttpException) {
+                return true;
+            }
+            if (cause instanceof DownStreamException ex && ex.getStatusCode() != null) {
+                for (int status : retryable.retryOnStatus()) {
+                    if (status == ex.getStatusCode()) {
+                        return true;
+                    }
+                }
+            }
+            for (Class<? extends Throwable> type : retryable.retryOn()) {
+                if (type.isInstance(cause)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private class Attempts {
+        private final ProceedingJoinPoint joinPoint;
+        private final RetryableDownstream retryable;
+        private final String classMethodName;
+        private final String host;
+        private final String path;
+        // Placeholders resolve to the dns they name; calls without a known host get a budget of their own
+        private final String budgetKey;
+        private final long baseNanos;
+        private final long capNanos;
+
+        // Attempts of one call run one after another, each handing over to the next through a future or signal
+        private volatile int attempt = 1;
+        private volatile long previousDelayNanos;
+
+        private Attempts(ProceedingJoinPoint joinPoint, RetryableDownstream retryable, String classMethodName,
+                         String host, String path) {
+            this.joinPoint = joinPoint;
+            this.retryable = retryable;
+            this.classMethodName = classMethodName;
+            this.host = host;
+            this.path = path;
+            this.budgetKey = DownstreamTargets.isKnown(host) ? loggingMethods.resolveHost(host) : classMethodName;
+            this.baseNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, retryable.initialBackoffMs()));
+            this.capNanos = Math.max(baseNanos, TimeUnit.MILLISECONDS.toNanos(retryable.maxBackoffMs()));
+            this.previousDelayNanos = baseNanos;
+        }
+
+        /**
+         * Decides whether {@code failure} is retried and returns the backoff before the next attempt, or
+         * {@code -1} to give up.
+         */
+        private long nextDelayNanos(Throwable failure) {
+            if (!isRetryable(failure, retryable)) {
+                return -1;
+            }
+            if (attempt >= retryable.maxAttempts()) {
+                loggingMethods.countDownstreamRetry(host, path, "attempts_exhausted");
+                return -1;
+            }
+            if (!budget(budgetKey).tryAcquire()) {
+                loggingMethods.countDownstreamRetry(host, path, "budget_exhausted");
+                return -1;
+            }
+            // Decorrelated jitter: uniform between the base delay and three times the previous delay
+            long upper = Math.max(baseNanos, Math.min(capNanos, previousDelayNanos * 3));
+            long delayNanos = ThreadLocalRandom.current().nextLong(baseNanos, upper + 1);
+            previousDelayNanos = delayNanos;
+            attempt++;
+            loggingMethods.countDownstreamRetry(host, path, "retried");
+            log.warn("Retrying {} (attempt {} of {}) in {}ms after {}", classMethodName, attempt,
+                    retryable.maxAttempts(), TimeUnit.NANOSECONDS.toMillis(delayNanos), failure.toString());
+            return delayNanos;
+        }
+
+        private void recovered() {
+            if (attempt > 1) {
+                loggingMethods.countDownstreamRetry(host, path, "recovered");
+            }
+        }
+
+        private Mono<?> proceedMono() {
+            try {
+                return (Mono<?>) joinPoint.proceed();
+            } catch (Throwable t) {
+                return Mono.error(t);
+            }
+        }
+    }
+}
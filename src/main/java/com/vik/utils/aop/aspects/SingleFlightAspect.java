@@ -0,0 +1,160 @@
+package com.vik.utils.aop.aspects;
+
+import com.vik.utils.*;
+import com.vik.utils.aop.annotations.*;
+import com.vik.utils.aop.support.*;
+import lombok.*;
+import org.apache.commons.lang3.tuple.*;
+import org.aspectj.lang.*;
+import org.aspectj.lang.annotation.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.core.annotation.*;
+import org.springframework.stereotype.*;
+import reactor.core.publisher.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Applies {@link SingleFlight}. {@link CompletionStage} callers each get their own copy of the shared future,
+ * so one caller cancelling does not affect the others. {@link Mono} calls coalesce at subscription time and
+ * the shared call is cancelled once every subscriber has cancelled. Blocking callers wait for the leader on
+ * their own thread. {@link Flux} results are not coalesced.
+ */
+@Aspect
+@Component
+@Order(AspectOrder.SINGLE_FLIGHT)
+@RequiredArgsConstructor
+public class SingleFlightAspect {
+
+    @Autowired
+    private final LoggingMethods loggingMethods;
+
+    private final ConcurrentMap<CallKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<CallKey, Mono<Object>> inFlightMonos = new ConcurrentHashMap<>();
+
+    @Around("@annotation(singleFlight)")
+    public Object coalesce(ProceedingJoinPoint joinPoint, SingleFlight singleFlight) throws Throwable {
+        CallSite callSite = CallSite.of(joinPoint);
+        Method method = callSite.getMethod();
+        Class<?> returnType = method.getReturnType();
+        if (Flux.class.isAssignableFrom(returnType)) {
+            return joinPoint.proceed();
+        }
+        CallKey key = new CallKey(method, keyArgs(joinPoint.getArgs(), singleFlight.keyArgs()));
+        if (Mono.class.isAssignableFrom(returnType)) {
+            return coalesceMono(joinPoint, callSite, key);
+        }
+
+        CompletableFuture<Object> shared = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            countCoalesced(callSite, joinPoint.getArgs());
+            return CompletionStage.class.isAssignableFrom(returnType) ? existing.copy() : await(existing);
+        }
+
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable t) {
+            inFlight.remove(key, shared);
+            shared.completeExceptionally(t);
+            throw t;
+        }
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((value, error) -> {
+                // Removed first so callers arriving after completion start a fresh call
+                inFlight.remove(key, shared);
+                if (error != null) {
+                    shared.completeExceptionally(AsyncResults.unwrap(error));
+                } else {
+                    shared.complete(value);
+                }
+            });
+            return shared.copy();
+        }
+        inFlight.remove(key, shared);
+        shared.complete(result);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Mono<Object> coalesceMono(ProceedingJoinPoint joinPoint, CallSite callSite, CallKey key) {
+        return Mono.defer(() -> {
+            boolean[] leader = new boolean[1];
+            Mono<Object> shared = inFlightMonos.computeIfAbsent(key, k -> {
+                leader[0] = true;
+                Mono<Object>[] self = new Mono[1];
+                self[0] = Mono.defer(() -> proceedMono(joinPoint))
+                        .doFinally(signal -> inFlightMonos.remove(k, self[0]))
+                        .share();
+                return self[0];
+            });
+            if (!leader[0]) {
+                countCoalesced(callSite, joinPoint.getArgs());
+            }
+            return shared;
+        });
+    }
+
+    private void countCoalesced(CallSite callSite, Object[] args) {
+        Pair<String, String> uri = DownstreamTargets.resolve(callSite, args);
+        loggingMethods.countDownstreamCoalesced(uri.getLeft(), uri.getRight());
+    }
+
+    private static Object await(CompletableFuture<Object> shared) throws Throwable {
+        try {
+            return shared.join();
+        } catch (CompletionException e) {
+            throw AsyncResults.unwrap(e);
+        }
+    }
+
+    private static Mono<Object> proceedMono(ProceedingJoinPoint joinPoint) {
+        try {
+            return ((Mono<?>) joinPoint.proceed()).cast(Object.class);
+        } catch (Throwable t) {
+            return Mono.error(t);
+        }
+    }
+
+    private static Object[] keyArgs(Object[] args, int[] indexes) {
+        if (indexes.length == 0) {
+            return args.clone();
+        }
+        Object[] selected = new Object[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            selected[i] = args[indexes[i]];
+        }
+        return selected;
+    }
+
+    private static final class CallKey {
+        private final Method method;
+        private final Object[] args;
+        private final int hash;
+
+        private CallKey(Method method, Object[] args) {
+            this.method = method;
+            this.args = args;
+            this.hash = 31 * method.hashCode() + Arrays.deepHashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CallKey other)) {
+                return false;
+            }
+            return hash == other.hash && method.equals(other.method) && Arrays.deepEquals(args, other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
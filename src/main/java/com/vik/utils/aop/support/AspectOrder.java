@@ -0,0 +1,19 @@
+package com.vik.utils.aop.support;
+
+/**
+ * {@code @Order} values of the downstream aspects, outermost first. Retries and hedges wrap the logging
+ * aspect so every attempt is logged and counted on its own; single-flight sits outside both so coalesced
+ * callers share one retried or hedged call, and the cache is outermost so hits skip everything else.
+ */
+public final class AspectOrder {
+
+    public static final int CACHE = 100;
+    public static final int SINGLE_FLIGHT = 200;
+    public static final int RETRY = 300;
+    public static final int HEDGE = 400;
+    public static final int DOWNSTREAM_LOGGING = 600;
+
+    private AspectOrder() {
+        throw new IllegalStateException("Utility class");
+    }
+}
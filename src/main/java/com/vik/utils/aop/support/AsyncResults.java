@@ -0,0 +1,136 @@
+package com.vik.utils.aop.support;
+
+import lombok.extern.slf4j.*;
+import org.apache.commons.lang3.exception.*;
+import reactor.core.publisher.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Lets aspects observe asynchronous return values without blocking and without adding subscriptions:
+ * reactive results are decorated with operators that report to a {@link CompletionListener} when the
+ * caller's own subscription signals, and completion stages get a completion callback attached.
+ */
+@Slf4j
+public final class AsyncResults {
+
+    private AsyncResults() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static boolean isAsync(Object result) {
+        return result instanceof Mono<?> || result instanceof Flux<?> || result instanceof CompletionStage<?>;
+    }
+
+    /**
+     * Returns the decorated result to hand back to the caller. Results that are not
+     * {@link #isAsync asynchronous} are returned unchanged and the listener is never called.
+     * Completion stages are returned as-is (the callback is attached to them), and their elapsed
+     * time is measured from {@code startNanos}.
+     */
+    public static Object observe(Object result, long startNanos, CompletionListener listener) {
+        if (result instanceof Mono<?> mono) {
+            return observeMono(mono, listener);
+        }
+        if (result instanceof Flux<?> flux) {
+            return observeFlux(flux, listener);
+        }
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((value, error) -> {
+                long elapsedNanos = System.nanoTime() - startNanos;
+                if (unwrap(error) instanceof CancellationException) {
+                    notifyCancel(listener, elapsedNanos);
+                } else if (error != null) {
+                    notifyError(listener, unwrap(error), elapsedNanos);
+                } else {
+                    notifySuccess(listener, value, elapsedNanos);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Strips the {@link CompletionException}/{@link ExecutionException} wrappers added by futures.
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    private static <T> Mono<T> observeMono(Mono<T> mono, CompletionListener listener) {
+        return mono.transformDeferred(source -> {
+            long start = System.nanoTime();
+            boolean[] done = new boolean[1];
+            return source.doOnEach(signal -> {
+                if (signal.isOnNext()) {
+                    done[0] = true;
+                    notifySuccess(listener, signal.get(), System.nanoTime() - start);
+                } else if (signal.isOnComplete() && !done[0]) {
+                    done[0] = true;
+                    notifySuccess(listener, null, System.nanoTime() - start);
+                } else if (signal.isOnError()) {
+                    done[0] = true;
+                    notifyError(listener, signal.getThrowable(), System.nanoTime() - start);
+                }
+            }).doOnCancel(() -> {
+                // Cancelling after the value was emitted is normal for a Mono and not an outcome of its own
+                if (!done[0]) {
+                    notifyCancel(listener, System.nanoTime() - start);
+                }
+            });
+        });
+    }
+
+    private static <T> Flux<T> observeFlux(Flux<T> flux, CompletionListener listener) {
+        return flux.transformDeferred(source -> {
+            long start = System.nanoTime();
+            return source.doOnEach(signal -> {
+                if (signal.isOnNext()) {
+                    notifyNext(listener, signal.get(), System.nanoTime() - start);
+                } else if (signal.isOnComplete()) {
+                    notifySuccess(listener, null, System.nanoTime() - start);
+                } else if (signal.isOnError()) {
+                    notifyError(listener, signal.getThrowable(), System.nanoTime() - start);
+                }
+            }).doOnCancel(() -> notifyCancel(listener, System.nanoTime() - start));
+        });
+    }
+
+    // Listener failures must never turn into errors of the caller's pipeline
+    private static void notifyNext(CompletionListener listener, Object value, long elapsedNanos) {
+        try {
+            listener.onNext(value, elapsedNanos);
+        } catch (RuntimeException e) {
+            log.error("Exception in completion listener: {}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    private static void notifySuccess(CompletionListener listener, Object value, long elapsedNanos) {
+        try {
+            listener.onSuccess(value, elapsedNanos);
+        } catch (RuntimeException e) {
+            log.error("Exception in completion listener: {}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    private static void notifyCancel(CompletionListener listener, long elapsedNanos) {
+        try {
+            listener.onCancel(elapsedNanos);
+        } catch (RuntimeException e) {
+            log.error("Exception in completion listener: {}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    private static void notifyError(CompletionListener listener, Throwable error, long elapsedNanos) {
+        try {
+            listener.onError(error, elapsedNanos);
+        } catch (RuntimeException e) {
+            log.error("Exception in completion listener: {}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+}
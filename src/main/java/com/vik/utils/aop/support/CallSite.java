@@ -0,0 +1,87 @@
+package com.vik.utils.aop.support;
+
+import com.vik.utils.aop.annotations.*;
+import org.aspectj.lang.*;
+import org.aspectj.lang.reflect.*;
+import org.springframework.core.*;
+
+import java.lang.annotation.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Everything the aspects derive from an advised method that does not depend on the arguments, computed on
+ * the first call and reused afterwards so the advice path does no reflection or string building.
+ */
+public final class CallSite {
+
+    private static final ConcurrentMap<MethodClassKey, CallSite> CALL_SITES = new ConcurrentHashMap<>();
+    private static final int[] NO_INDEXES = new int[0];
+    static final String NOT_LOGGED = "<not logged>";
+
+    private final Method method;
+    private final String classMethodName;
+    private final int[] tagsParamIndexes;
+    private final int[] notLoggedIndexes;
+
+    private CallSite(Method method, Class<?> targetClass) {
+        this.method = method;
+        this.classMethodName = targetClass.getSimpleName() + "." + method.getName();
+        this.tagsParamIndexes = annotatedParamIndexes(method, TagsParam.class);
+        this.notLoggedIndexes = annotatedParamIndexes(method, NotLogged.class);
+    }
+
+    public static CallSite of(JoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object target = joinPoint.getTarget();
+        Class<?> targetClass = target != null ? target.getClass() : method.getDeclaringClass();
+        MethodClassKey key = new MethodClassKey(method, targetClass);
+        CallSite callSite = CALL_SITES.get(key);
+        return callSite != null ? callSite : CALL_SITES.computeIfAbsent(key, k -> new CallSite(method, targetClass));
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public String getClassMethodName() {
+        return classMethodName;
+    }
+
+    int[] getTagsParamIndexes() {
+        return tagsParamIndexes;
+    }
+
+    /**
+     * The arguments as they may be logged or captured: {@code args} itself, or a copy with the
+     * {@link NotLogged} parameters replaced by a placeholder.
+     */
+    public Object[] loggableArgs(Object[] args) {
+        if (notLoggedIndexes.length == 0 || args == null) {
+            return args;
+        }
+        Object[] loggable = args.clone();
+        for (int index : notLoggedIndexes) {
+            if (index < loggable.length && loggable[index] != null) {
+                loggable[index] = NOT_LOGGED;
+            }
+        }
+        return loggable;
+    }
+
+    private static int[] annotatedParamIndexes(Method method, Class<? extends Annotation> type) {
+        Annotation[][] paramAnnotations = method.getParameterAnnotations();
+        int[] indexes = new int[paramAnnotations.length];
+        int count = 0;
+        for (int i = 0; i < paramAnnotations.length; i++) {
+            for (Annotation annotation : paramAnnotations[i]) {
+                if (type.isInstance(annotation)) {
+                    indexes[count++] = i;
+                    break;
+                }
+            }
+        }
+        return count == 0 ? NO_INDEXES : Arrays.copyOf(indexes, count);
+    }
+}
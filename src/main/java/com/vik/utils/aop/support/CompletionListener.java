@@ -0,0 +1,29 @@
+package com.vik.utils.aop.support;
+
+/**
+ * Callbacks for the eventual outcome of an intercepted call whose result is asynchronous.
+ * Elapsed times are measured from subscription for reactive results.
+ */
+public interface CompletionListener {
+
+    /**
+     * Called for every element of a multi-valued result, before {@link #onSuccess}.
+     */
+    default void onNext(Object value, long elapsedNanos) {
+    }
+
+    /**
+     * Called once when the result completes normally. {@code value} is the emitted value for
+     * single-valued results, or {@code null} for empty and multi-valued ones.
+     */
+    void onSuccess(Object value, long elapsedNanos);
+
+    void onError(Throwable error, long elapsedNanos);
+
+    /**
+     * Called once when the caller gave up on the result before it completed: a reactive subscription was
+     * cancelled (timeouts, hedge losers, {@code take}) or a completion stage was cancelled.
+     */
+    default void onCancel(long elapsedNanos) {
+    }
+}
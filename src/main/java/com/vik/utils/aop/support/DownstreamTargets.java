@@ -0,0 +1,78 @@
+package com.vik.utils.aop.support;
+
+import com.github.benmanes.caffeine.cache.*;
+import org.apache.commons.lang3.tuple.*;
+import org.apache.hc.core5.net.*;
+
+import java.util.*;
+
+/**
+ * Resolves the {@code host}/{@code path} a downstream call is attributed to: the {@code host} and
+ * {@code path} entries of a {@code @TagsParam} map when one is passed, otherwise the URL in the first
+ * argument, otherwise {@code "-"}. Parsed URLs are kept in a bounded LRU-like cache.
+ */
+public final class DownstreamTargets {
+
+    private static final String UNKNOWN = "-";
+    private static final Pair<String, String> UNKNOWN_TARGET = Pair.of(UNKNOWN, UNKNOWN);
+    private static final int MAX_CACHED_URLS = 10_000;
+
+    private static final Cache<String, Pair<String, String>> PARSED_URLS = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_URLS)
+            .build();
+
+    private DownstreamTargets() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Whether a host or path returned by {@link #resolve} names an actual target rather than {@code "-"}.
+     */
+    public static boolean isKnown(String hostOrPath) {
+        return hostOrPath != null && !UNKNOWN.equals(hostOrPath);
+    }
+
+    public static Pair<String, String> resolve(CallSite callSite, Object[] args) {
+        int[] indexes = callSite.getTagsParamIndexes();
+        if (indexes.length == 1) {
+            if (args[indexes[0]] instanceof Map<?, ?> tags && !tags.isEmpty()) {
+                return fromTags(tags);
+            }
+        } else if (indexes.length > 1) {
+            Map<Object, Object> tags = new HashMap<>();
+            for (int index : indexes) {
+                if (args[index] instanceof Map<?, ?> map) {
+                    tags.putAll(map);
+                }
+            }
+            if (!tags.isEmpty()) {
+                return fromTags(tags);
+            }
+        }
+        return fromUrl(args);
+    }
+
+    private static Pair<String, String> fromTags(Map<?, ?> tags) {
+        Object host = tags.get("host");
+        Object path = tags.get("path");
+        return Pair.of(host != null ? host.toString() : UNKNOWN, path != null ? path.toString() : UNKNOWN);
+    }
+
+    private static Pair<String, String> fromUrl(Object[] args) {
+        if (args == null || args.length == 0 || !(args[0] instanceof String url)) {
+            return UNKNOWN_TARGET;
+        }
+        return PARSED_URLS.get(url, DownstreamTargets::parse);
+    }
+
+    private static Pair<String, String> parse(String url) {
+        try {
+            URIBuilder builder = new URIBuilder(url);
+            String host = Optional.ofNullable(builder.getHost()).orElse(UNKNOWN);
+            String path = Optional.ofNullable(builder.getPath()).filter(p -> !p.isEmpty()).orElse(UNKNOWN);
+            return Pair.of(host, path);
+        } catch (Exception e) {
+            return UNKNOWN_TARGET;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.vik.utils.aop.support;
+
+import com.vik.utils.aop.annotations.*;
+import org.reactivestreams.*;
+import org.springframework.beans.*;
+import org.springframework.beans.factory.*;
+import org.springframework.beans.factory.config.*;
+import org.springframework.stereotype.*;
+import org.springframework.util.*;
+import reactor.core.publisher.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Fails startup when {@link RetryableDownstream} sits on a method whose result cannot be retried, instead of
+ * leaving the annotation without effect: a {@link Flux} or other multi-valued publisher (resubscribing after
+ * partial emission would duplicate elements) or a plain {@link Future} (its failure is only seen by whoever
+ * waits on it).
+ */
+@Component
+public class RetryableDownstreamValidator implements BeanPostProcessor {
+
+    public static boolean isRetryableResult(Class<?> returnType) {
+        if (CompletionStage.class.isAssignableFrom(returnType) || Mono.class.isAssignableFrom(returnType)) {
+            return true;
+        }
+        return !Publisher.class.isAssignableFrom(returnType) && !Future.class.isAssignableFrom(returnType);
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        ReflectionUtils.doWithMethods(ClassUtils.getUserClass(bean), method -> {
+            if (method.isAnnotationPresent(RetryableDownstream.class) && !isRetryableResult(method.getReturnType())) {
+                throw new BeanInitializationException("@RetryableDownstream cannot retry "
+                        + method.getDeclaringClass().getSimpleName() + "." + method.getName() + ", which returns "
+                        + method.getReturnType().getSimpleName()
+                        + "; only CompletionStage, Mono and plain values are retried");
+            }
+        });
+        return bean;
+    }
+}
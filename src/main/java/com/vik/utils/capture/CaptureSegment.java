@@ -0,0 +1,91 @@
+package com.vik.utils.capture;
+
+import java.io.*;
+import java.lang.invoke.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * One memory-mapped segment file. Writers reserve space with a single {@code getAndAdd} and copy their record
+ * into the reserved range; the length prefix is stored last with release semantics, so a reader that sees a
+ * non-zero length also sees the whole record.
+ * <p>
+ * Layout: {@code int magic, int version}, then records of {@code int length, byte[length] body} padded to
+ * four bytes. A zero length means nothing has been published there (yet), {@link #END} that the segment
+ * was sealed.
+ */
+final class CaptureSegment {
+
+    static final int MAGIC = 0x56434150;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int END = -1;
+
+    static final long FULL = -1;
+    static final long CROSSED = -2;
+
+    static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final AtomicLong position = new AtomicLong(HEADER_BYTES);
+
+    private CaptureSegment(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+    }
+
+    static CaptureSegment create(Path path, long size) throws IOException {
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(HEADER_BYTES + 64, size)) & ~3;
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            return new CaptureSegment(path, buffer);
+        }
+    }
+
+    static int align(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the offset of {@code total} reserved bytes, {@link #CROSSED} to the one caller whose reservation
+     * ran past the end (it seals the segment and should roll over), or {@link #FULL} to everyone after it.
+     */
+    long reserve(int total) {
+        long start = position.getAndAdd(total);
+        if (start + total <= capacity) {
+            return start;
+        }
+        if (start <= capacity) {
+            if (start + Integer.BYTES <= capacity) {
+                INT.setRelease(buffer, (int) start, END);
+            }
+            return CROSSED;
+        }
+        return FULL;
+    }
+
+    void write(long start, ByteBuffer body, int length) {
+        buffer.put((int) start + Integer.BYTES, body, 0, length);
+        INT.setRelease(buffer, (int) start, length);
+    }
+
+    void force() {
+        buffer.force();
+    }
+}
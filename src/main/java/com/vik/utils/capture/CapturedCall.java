@@ -0,0 +1,21 @@
+package com.vik.utils.capture;
+
+import lombok.*;
+
+/**
+ * One downstream call read back from a capture segment. {@code args} and {@code response} are the raw JSON,
+ * {@code null} when absent or not captured.
+ */
+@Value
+public class CapturedCall {
+    long startMillis;
+    long latencyNanos;
+    boolean failed;
+    int statusCode;
+    String classMethodName;
+    String host;
+    String path;
+    String errorClass;
+    byte[] args;
+    byte[] response;
+}
@@ -0,0 +1,129 @@
+package com.vik.utils.capture;
+
+import lombok.extern.slf4j.*;
+import reactor.core.publisher.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Reads the segments written by {@link TrafficCaptureWriter}, oldest first. A segment that is still being
+ * written is read up to its first unpublished record, or its first record of a call that completed after the
+ * read started, so calls made while reading (such as a replay of the capture itself) are never read back.
+ */
+@Slf4j
+public final class TrafficCaptureReader {
+
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    private TrafficCaptureReader() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Segment files in {@code directory}, oldest first.
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Lazily reads every captured call in {@code directory}. Reading touches mapped files, so subscribe on a
+     * scheduler that may block.
+     */
+    public static Flux<CapturedCall> read(Path directory) {
+        return Flux.defer(() -> {
+            long untilMillis = System.currentTimeMillis();
+            try {
+                return Flux.fromIterable(segments(directory))
+                        .concatMap(path -> readSegment(path, untilMillis));
+            } catch (IOException e) {
+                return Flux.error(new UncheckedIOException(e));
+            }
+        });
+    }
+
+    private static Flux<CapturedCall> readSegment(Path path, long untilMillis) {
+        return Flux.defer(() -> {
+            ByteBuffer buffer;
+            try {
+                buffer = map(path);
+            } catch (IOException e) {
+                // Rolled away since it was listed
+                log.warn("Skipping capture segment {}: {}", path, e.getMessage());
+                return Flux.empty();
+            }
+            if (buffer.capacity() < CaptureSegment.HEADER_BYTES || buffer.getInt(0) != CaptureSegment.MAGIC
+                    || buffer.getInt(4) != CaptureSegment.VERSION) {
+                log.warn("Skipping capture segment {}: unknown format", path);
+                return Flux.empty();
+            }
+            return Flux.generate(() -> CaptureSegment.HEADER_BYTES, (Integer position, SynchronousSink<CapturedCall> sink) -> {
+                int length = position + Integer.BYTES <= buffer.capacity()
+                        ? (int) CaptureSegment.INT.getAcquire(buffer, (int) position)
+                        : CaptureSegment.END;
+                if (length <= 0 || position + Integer.BYTES + length > buffer.capacity()
+                        || completedMillis(buffer, position + Integer.BYTES) >= untilMillis) {
+                    sink.complete();
+                    return position;
+                }
+                sink.next(decode(buffer.slice(position + Integer.BYTES, length)));
+                return position + CaptureSegment.align(Integer.BYTES + length);
+            });
+        });
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    // Records are appended as calls complete, so this only grows along a segment
+    private static long completedMillis(ByteBuffer buffer, int bodyAt) {
+        return buffer.getLong(bodyAt) + TimeUnit.NANOSECONDS.toMillis(buffer.getLong(bodyAt + Long.BYTES));
+    }
+
+    private static CapturedCall decode(ByteBuffer body) {
+        long startMillis = body.getLong();
+        long latencyNanos = body.getLong();
+        boolean failed = body.get() != 0;
+        int statusCode = body.getInt();
+        String classMethodName = getString(body);
+        String host = getString(body);
+        String path = getString(body);
+        String errorClass = getString(body);
+        byte[] args = getBytes(body);
+        byte[] response = getBytes(body);
+        return new CapturedCall(startMillis, latencyNanos, failed, statusCode, classMethodName, host, path,
+                errorClass, args, response);
+    }
+
+    private static String getString(ByteBuffer body) {
+        byte[] bytes = getBytes(body);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] getBytes(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return bytes;
+    }
+}
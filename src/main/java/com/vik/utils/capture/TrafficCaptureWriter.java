@@ -0,0 +1,228 @@
+package com.vik.utils.capture;
+
+import com.fasterxml.jackson.databind.util.*;
+import com.vik.utils.*;
+import com.vik.utils.config.*;
+import com.vik.utils.exceptions.*;
+import com.vik.utils.logging.*;
+import io.micrometer.core.instrument.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.*;
+import org.apache.commons.lang3.exception.*;
+import org.springframework.boot.autoconfigure.condition.*;
+import org.springframework.stereotype.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Appends downstream calls to a rolling set of {@link CaptureSegment}s as compact binary records, cheap
+ * enough to leave on in production: a record is encoded into a fixed-size staging buffer and copied into the
+ * segment after a lock-free reservation. Platform threads keep their own staging buffer; virtual threads,
+ * which may number in the millions, borrow one from a small shared pool. Nothing blocks; a record that does
+ * not fit, that finds no free staging buffer, or that arrives while a segment is being rolled over, is
+ * dropped and counted.
+ * <p>
+ * Record body: {@code long startMillis, long latencyNanos, byte failed, int statusCode}, then
+ * {@code classMethodName, host, path, errorClass} as strings and {@code args, response} as JSON blobs, each
+ * prefixed with its length ({@link #NULL} when absent, {@link #NOT_CAPTURED} when it did not fit). The JSON
+ * blobs go through {@link PayloadSerializer}, so {@code utils.logging.payload.redacted-fields} are masked in
+ * captures as they are in logs; the staging buffer is their byte limit.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "utils.capture", name = "enabled", havingValue = "true")
+public class TrafficCaptureWriter {
+
+    static final int NULL = -1;
+    static final int NOT_CAPTURED = -2;
+
+    private final TrafficCaptureProperties properties;
+    private final PayloadSerializer payloadSerializer;
+    private final Counter written;
+    private final Counter dropped;
+    private final ThreadLocal<Staging> staging;
+    private final BlockingQueue<Staging> sharedStaging;
+    private final AtomicInteger sharedStagingUnallocated;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private volatile CaptureSegment current;
+
+    public TrafficCaptureWriter(TrafficCaptureProperties properties, PayloadSerializer payloadSerializer,
+                                MetricsService metricsService) {
+        this.properties = properties;
+        this.payloadSerializer = payloadSerializer;
+        this.written = metricsService.counter("Outgoing_Capture", "outcome", "written");
+        this.dropped = metricsService.counter("Outgoing_Capture", "outcome", "dropped");
+        this.staging = ThreadLocal.withInitial(() -> new Staging(properties.getStagingBufferBytes()));
+        int shared = properties.getSharedStagingBuffers() > 0
+                ? properties.getSharedStagingBuffers() : Runtime.getRuntime().availableProcessors();
+        // Allocated on first use, like the per-thread buffers
+        this.sharedStaging = new ArrayBlockingQueue<>(shared);
+        this.sharedStagingUnallocated = new AtomicInteger(shared);
+    }
+
+    @PostConstruct
+    void openSegment() throws IOException {
+        Files.createDirectories(Paths.get(properties.getDirectory()));
+        current = newSegment();
+    }
+
+    @PreDestroy
+    void flush() {
+        CaptureSegment segment = current;
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    public void capture(String classMethodName, String host, String path, Object[] args, Object response,
+                        Throwable error, long latencyNanos) {
+        if (properties.getSampleRate() < 1 && ThreadLocalRandom.current().nextDouble() >= properties.getSampleRate()) {
+            return;
+        }
+        boolean virtual = Thread.currentThread().isVirtual();
+        Staging stage = virtual ? borrowStaging() : staging.get();
+        if (stage == null) {
+            dropped.increment();
+            return;
+        }
+        try {
+            ByteBuffer body = stage.buffer;
+            body.clear();
+            try {
+                body.putLong(System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+                body.putLong(latencyNanos);
+                body.put((byte) (error == null ? 0 : 1));
+                body.putInt(statusCode(error));
+                putString(body, classMethodName);
+                putString(body, host);
+                putString(body, path);
+                putString(body, error == null ? null : error.getClass().getName());
+                putJson(stage, args);
+                putJson(stage, response);
+            } catch (BufferOverflowException e) {
+                dropped.increment();
+                return;
+            }
+            append(body, body.position());
+        } catch (RuntimeException e) {
+            log.error("Exception while capturing downstream call: {}", ExceptionUtils.getStackTrace(e));
+        } finally {
+            if (virtual) {
+                sharedStaging.offer(stage);
+            }
+        }
+    }
+
+    private Staging borrowStaging() {
+        Staging stage = sharedStaging.poll();
+        if (stage != null) {
+            return stage;
+        }
+        int unallocated = sharedStagingUnallocated.get();
+        while (unallocated > 0) {
+            if (sharedStagingUnallocated.compareAndSet(unallocated, unallocated - 1)) {
+                return new Staging(properties.getStagingBufferBytes());
+            }
+            unallocated = sharedStagingUnallocated.get();
+        }
+        return null;
+    }
+
+    private void append(ByteBuffer body, int length) {
+        int total = CaptureSegment.align(Integer.BYTES + length);
+        CaptureSegment segment = current;
+        if (segment == null || total > segment.getCapacity() - CaptureSegment.HEADER_BYTES) {
+            dropped.increment();
+            return;
+        }
+        long start = segment.reserve(total);
+        if (start == CaptureSegment.CROSSED) {
+            // This caller sealed the segment, so it alone opens the next one and retries there
+            segment = roll();
+            start = segment != null ? segment.reserve(total) : CaptureSegment.FULL;
+        }
+        if (start < 0) {
+            dropped.increment();
+            return;
+        }
+        segment.write(start, body, length);
+        written.increment();
+    }
+
+    private CaptureSegment roll() {
+        try {
+            CaptureSegment next = newSegment();
+            current = next;
+            deleteOldSegments();
+            return next;
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not roll over capture segment: {}", ExceptionUtils.getStackTrace(e));
+            return null;
+        }
+    }
+
+    private CaptureSegment newSegment() throws IOException {
+        String name = String.format("capture-%013d-%06d%s",
+                System.currentTimeMillis(), sequence.getAndIncrement(), TrafficCaptureReader.SEGMENT_SUFFIX);
+        return CaptureSegment.create(Paths.get(properties.getDirectory(), name), properties.getSegmentBytes());
+    }
+
+    private void deleteOldSegments() throws IOException {
+        List<Path> segments = TrafficCaptureReader.segments(Paths.get(properties.getDirectory()));
+        for (int i = 0; i < segments.size() - Math.max(1, properties.getMaxSegments()); i++) {
+            // Mappings of a deleted file stay valid until unmapped, so a concurrent replay is unaffected
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private static int statusCode(Throwable error) {
+        Throwable rootCause = error == null ? null : ExceptionUtils.getRootCause(error);
+        return rootCause instanceof DownStreamException ex && ex.getStatusCode() != null ? ex.getStatusCode() : -1;
+    }
+
+    private static void putString(ByteBuffer body, String value) {
+        if (value == null) {
+            body.putInt(NULL);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        body.putInt(bytes.length);
+        body.put(bytes);
+    }
+
+    private void putJson(Staging stage, Object value) {
+        ByteBuffer body = stage.buffer;
+        if (value == null) {
+            body.putInt(NULL);
+            return;
+        }
+        int lengthAt = body.position();
+        body.putInt(0);
+        try {
+            payloadSerializer.writeRedacted(stage.out, value);
+            body.putInt(lengthAt, body.position() - lengthAt - Integer.BYTES);
+        } catch (IOException | RuntimeException e) {
+            // Too large for the staging buffer, too deep, or not serializable: keep the rest of the record
+            body.position(lengthAt);
+            body.putInt(NOT_CAPTURED);
+        }
+    }
+
+    private static final class Staging {
+        private final ByteBuffer buffer;
+        private final ByteBufferBackedOutputStream out;
+
+        private Staging(int capacity) {
+            this.buffer = ByteBuffer.allocate(Math.max(256, capacity));
+            this.out = new ByteBufferBackedOutputStream(buffer);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.vik.utils.capture;
+
+import com.fasterxml.jackson.databind.*;
+import com.vik.utils.controller.*;
+import lombok.extern.slf4j.*;
+import reactor.core.publisher.*;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+
+/**
+ * Turns captured calls back into {@link DownstreamBatchItem}s for {@link DownstreamController}, paced to the
+ * captured inter-arrival times divided by a rate multiplier.
+ * <p>
+ * A call is matched to the dispatch entry whose declaring class and method name give the same
+ * {@code Class.method} it was captured under, and is replayable only if it was captured with exactly one
+ * argument; everything else is skipped.
+ */
+@Slf4j
+public final class TrafficReplayer {
+
+    private TrafficReplayer() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @param rateMultiplier replay speed relative to the captured traffic, which must be positive
+     */
+    public static Flux<DownstreamBatchItem> replay(Flux<CapturedCall> calls, DownstreamDispatchTable table,
+                                                   ObjectMapper objectMapper, double rateMultiplier) {
+        if (!(rateMultiplier > 0)) {
+            throw new IllegalArgumentException("rateMultiplier must be positive: " + rateMultiplier);
+        }
+        Map<String, DownstreamDispatchTable.Entry> entries = new HashMap<>();
+        for (DownstreamDispatchTable.Entry entry : table.entries()) {
+            entries.put(entry.getTarget().getDeclaringClass().getSimpleName() + "." + entry.getMethod(), entry);
+        }
+        return pace(calls, entries, objectMapper, rateMultiplier);
+    }
+
+    private static Flux<DownstreamBatchItem> pace(Flux<CapturedCall> calls,
+                                                  Map<String, DownstreamDispatchTable.Entry> entries,
+                                                  ObjectMapper objectMapper, double rateMultiplier) {
+        return Flux.defer(() -> {
+            // Captured start of the first call and when the replay started, per subscription
+            long[] origin = {-1, 0};
+            return calls.concatMap(call -> {
+                DownstreamBatchItem item = toItem(call, entries, objectMapper);
+                if (item == null) {
+                    return Mono.empty();
+                }
+                if (origin[0] < 0) {
+                    origin[0] = call.getStartMillis();
+                    origin[1] = System.nanoTime();
+                }
+                long dueNanos = (long) ((call.getStartMillis() - origin[0]) * 1_000_000 / rateMultiplier);
+                long waitNanos = dueNanos - (System.nanoTime() - origin[1]);
+                return waitNanos > 0 ? Mono.just(item).delayElement(Duration.ofNanos(waitNanos)) : Mono.just(item);
+            });
+        });
+    }
+
+    private static DownstreamBatchItem toItem(CapturedCall call, Map<String, DownstreamDispatchTable.Entry> entries,
+                                              ObjectMapper objectMapper) {
+        DownstreamDispatchTable.Entry entry = entries.get(call.getClassMethodName());
+        if (entry == null || call.getArgs() == null) {
+            return null;
+        }
+        try {
+            JsonNode args = objectMapper.readTree(call.getArgs());
+            if (!args.isArray() || args.size() != 1) {
+                return null;
+            }
+            return new DownstreamBatchItem(call.getClassMethodName(), entry.getService(), entry.getMethod(), args.get(0));
+        } catch (IOException e) {
+            log.debug("Skipping captured call {}: {}", call.getClassMethodName(), e.getMessage());
+            return null;
+        }
+    }
+}
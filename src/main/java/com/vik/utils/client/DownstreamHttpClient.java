@@ -0,0 +1,215 @@
+package com.vik.utils.client;
+
+import com.fasterxml.jackson.core.type.*;
+import com.fasterxml.jackson.databind.*;
+import com.vik.utils.*;
+import com.vik.utils.aop.annotations.*;
+import com.vik.utils.config.*;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.tuple.*;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.autoconfigure.condition.*;
+import org.springframework.stereotype.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Shared non-blocking HTTP client backed by a pooled HttpClient5 connection manager.
+ * <p>
+ * Every call goes through {@link PooledDownstreamLog}, so requests, responses and fallbacks are logged and
+ * counted like any hand-written downstream method: {@code dns}/{@code path} come from the URL, or from the
+ * {@link TagsParam} map of {@link #exchange} (pass {@code host} and {@code path} there to keep path templates
+ * instead of concrete ids). Request headers are {@link NotLogged}, so credentials never reach logs or captures.
+ * Typed methods parse 2xx bodies with {@link ResponseUtils} and fail the future with a
+ * {@code BadRequestException}, a {@code RetryableHttpException} for 502/503/504, or an
+ * {@code InternalServerErrorException} otherwise.
+ */
+@Service
+@ConditionalOnProperty(prefix = "utils.http-client", name = "enabled", havingValue = "true")
+public class DownstreamHttpClient {
+
+    private final ObjectMapper objectMapper;
+    private final PoolingAsyncClientConnectionManager connectionManager;
+    private final CloseableHttpAsyncClient client;
+
+    public DownstreamHttpClient(ObjectMapper objectMapper, MetricsService metricsService, HttpClientProperties properties) {
+        this.objectMapper = objectMapper;
+        this.connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnTotal())
+                .setMaxConnPerRoute(properties.getMaxConnPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(timeout(properties.getConnectTimeout()))
+                        .setValidateAfterInactivity(timeValue(properties.getValidateAfterInactivity()))
+                        .build())
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(properties.isHttp2() ? HttpVersionPolicy.NEGOTIATE : HttpVersionPolicy.FORCE_HTTP_1)
+                        .build())
+                .build();
+        properties.getRouteLimits().forEach((origin, max) -> connectionManager.setMaxPerRoute(route(origin), max));
+
+        IOReactorConfig.Builder ioReactor = IOReactorConfig.custom();
+        if (properties.getIoThreads() > 0) {
+            ioReactor.setIoThreadCount(properties.getIoThreads());
+        }
+        this.client = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setIOReactorConfig(ioReactor.build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(timeout(properties.getConnectionRequestTimeout()))
+                        .setResponseTimeout(timeout(properties.getResponseTimeout()))
+                        .setConnectionKeepAlive(timeValue(properties.getKeepAlive()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(timeValue(properties.getMaxIdleTime()))
+                .build();
+        this.client.start();
+
+        metricsService.registerGauge("Http_Client_Pool", connectionManager,
+                cm -> cm.getTotalStats().getLeased(), "state", "leased");
+        metricsService.registerGauge("Http_Client_Pool", connectionManager,
+                cm -> cm.getTotalStats().getPending(), "state", "pending");
+        metricsService.registerGauge("Http_Client_Pool", connectionManager,
+                cm -> cm.getTotalStats().getAvailable(), "state", "available");
+        metricsService.registerGauge("Http_Client_Pool", connectionManager,
+                cm -> cm.getTotalStats().getMax(), "state", "max");
+    }
+
+    @PooledDownstreamLog
+    public <T> CompletableFuture<T> get(String url, @NotLogged Map<String, String> headers, TypeReference<T> responseType) {
+        return parse(send(url, "GET", null, headers), responseType);
+    }
+
+    @PooledDownstreamLog
+    public <T> CompletableFuture<T> post(String url, Object body, @NotLogged Map<String, String> headers, TypeReference<T> responseType) {
+        return parse(send(url, "POST", body, headers), responseType);
+    }
+
+    @PooledDownstreamLog
+    public <T> CompletableFuture<T> put(String url, Object body, @NotLogged Map<String, String> headers, TypeReference<T> responseType) {
+        return parse(send(url, "PUT", body, headers), responseType);
+    }
+
+    @PooledDownstreamLog
+    public <T> CompletableFuture<T> delete(String url, @NotLogged Map<String, String> headers, TypeReference<T> responseType) {
+        return parse(send(url, "DELETE", null, headers), responseType);
+    }
+
+    /**
+     * Raw exchange returning the status code and body bytes for any status, for callers that handle
+     * non-2xx responses themselves (e.g. with {@link ResponseUtils#commandResponseHandlerErrorString}).
+     */
+    @PooledDownstreamLog
+    public CompletableFuture<Pair<Integer, byte[]>> exchange(String url, String method, Object body,
+                                                           @NotLogged Map<String, String> headers,
+                                                           @TagsParam Map<String, String> tags) {
+        return send(url, method, body, headers);
+    }
+
+    @PreDestroy
+    public void close() {
+        client.close(CloseMode.GRACEFUL);
+    }
+
+    private CompletableFuture<Pair<Integer, byte[]>> send(String url, String method, Object body, Map<String, String> headers) {
+        SimpleHttpRequest request;
+        try {
+            request = buildRequest(url, method, body, headers);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<Pair<Integer, byte[]>> result = new CompletableFuture<>();
+        Future<SimpleHttpResponse> call = client.execute(request, new FutureCallback<>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                result.complete(Pair.of(response.getCode(), response.getBodyBytes()));
+            }
+
+            @Override
+            public void failed(Exception e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+        // Cancelling the returned future releases the exchange and its pooled connection
+        result.whenComplete((ignored, error) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private SimpleHttpRequest buildRequest(String url, String method, Object body, Map<String, String> headers) throws IOException {
+        SimpleRequestBuilder builder = SimpleRequestBuilder.create(method).setUri(url);
+        if (headers != null) {
+            headers.forEach(builder::addHeader);
+        }
+        if (body instanceof byte[] bytes) {
+            builder.setBody(bytes, ContentType.APPLICATION_JSON);
+        } else if (body instanceof String string) {
+            builder.setBody(string.getBytes(StandardCharsets.UTF_8), ContentType.APPLICATION_JSON);
+        } else if (body != null) {
+            builder.setBody(objectMapper.writeValueAsBytes(body), ContentType.APPLICATION_JSON);
+        }
+        return builder.build();
+    }
+
+    private static <T> CompletableFuture<T> parse(CompletableFuture<Pair<Integer, byte[]>> response, TypeReference<T> responseType) {
+        CompletableFuture<T> parsed = response.thenApply(resp -> {
+            try {
+                return ResponseUtils.commandResponseHandlerV3(resp.getLeft(), resp.getRight(), responseType);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        parsed.whenComplete((ignored, error) -> {
+            if (parsed.isCancelled()) {
+                response.cancel(false);
+            }
+        });
+        return parsed;
+    }
+
+    private static HttpRoute route(String origin) {
+        URI uri = URI.create(origin);
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() != -1 ? uri.getPort() : secure ? 443 : 80;
+        return new HttpRoute(new HttpHost(uri.getScheme(), uri.getHost(), port), null, secure);
+    }
+
+    private static Timeout timeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+
+    private static TimeValue timeValue(Duration duration) {
+        return TimeValue.ofMilliseconds(duration.toMillis());
+    }
+}
@@ -0,0 +1,46 @@
+package com.vik.utils.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.*;
+import org.springframework.stereotype.*;
+import org.springframework.util.unit.*;
+
+import java.time.*;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "utils.downstream-controller")
+public class DownstreamControllerProperties {
+
+    /**
+     * Upper bound on a dispatched call, including waiting for its future or publisher. Zero disables it.
+     */
+    private Duration timeout = Duration.ofSeconds(30);
+    /**
+     * Run the service method itself on {@link #scheduler} rather than on the event loop, for service
+     * methods that block before returning.
+     */
+    private boolean offloadInvocation = true;
+    /**
+     * Where blocking work (plain {@code Future.get()} and offloaded invocations) runs.
+     */
+    private BlockingScheduler scheduler = BlockingScheduler.BOUNDED_ELASTIC;
+    /**
+     * Largest request body {@code hit} accepts before answering 413; unset uses
+     * {@code spring.codec.max-in-memory-size}, negative disables the limit.
+     */
+    private DataSize maxBodySize;
+    /**
+     * Number of batch items dispatched concurrently when the request does not ask for a value.
+     */
+    private int batchParallelism = 16;
+    /**
+     * Upper bound on the {@code parallelism} a batch request may ask for.
+     */
+    private int maxBatchParallelism = 256;
+
+    public enum BlockingScheduler {
+        BOUNDED_ELASTIC,
+        VIRTUAL_THREADS
+    }
+}
@@ -0,0 +1,57 @@
+package com.vik.utils.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.*;
+import org.springframework.stereotype.*;
+
+import java.time.*;
+import java.util.*;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "utils.http-client")
+public class HttpClientProperties {
+
+    /**
+     * Register the shared {@code DownstreamHttpClient} bean.
+     */
+    private boolean enabled = false;
+    /**
+     * Connections across all routes.
+     */
+    private int maxConnTotal = 200;
+    /**
+     * Connections per route unless overridden in {@link #routeLimits}.
+     */
+    private int maxConnPerRoute = 50;
+    /**
+     * Per-route connection limits keyed by origin, e.g. {@code "[https://payments.internal]": 100}.
+     */
+    private Map<String, Integer> routeLimits = new HashMap<>();
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    /**
+     * Time to wait for a connection from the pool.
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(2);
+    private Duration responseTimeout = Duration.ofSeconds(10);
+    /**
+     * Keep-alive applied when the server does not send a {@code Keep-Alive} header.
+     */
+    private Duration keepAlive = Duration.ofSeconds(30);
+    /**
+     * Pooled connections idle for longer than this are closed by a background evictor.
+     */
+    private Duration maxIdleTime = Duration.ofMinutes(1);
+    /**
+     * Re-validate pooled connections that have been idle for longer than this before reusing them.
+     */
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    /**
+     * Negotiate HTTP/2 through ALPN on TLS connections, falling back to HTTP/1.1.
+     */
+    private boolean http2 = true;
+    /**
+     * I/O reactor threads; zero uses the number of available processors.
+     */
+    private int ioThreads = 0;
+}
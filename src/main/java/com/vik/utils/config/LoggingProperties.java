@@ -0,0 +1,115 @@
+package com.vik.utils.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.*;
+import org.springframework.stereotype.*;
+
+import java.time.*;
+import java.util.*;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "utils.logging")
+public class LoggingProperties {
+
+    private Async async = new Async();
+    private Payload payload = new Payload();
+    private Sampling sampling = new Sampling();
+    private StackTraces stackTraces = new StackTraces();
+
+    @Data
+    public static class Async {
+        /**
+         * Hand downstream log events to a background drain thread instead of serializing and writing
+         * them on the calling thread.
+         */
+        private boolean enabled = false;
+        /**
+         * Ring buffer capacity, rounded up to the next power of two.
+         */
+        private int capacity = 8192;
+        /**
+         * Maximum number of events written per drain pass.
+         */
+        private int batchSize = 256;
+        /**
+         * What a caller does when the ring buffer is full.
+         */
+        private Backpressure backpressure = Backpressure.DROP;
+        /**
+         * How long a {@link Backpressure#BLOCK} caller waits for free space before the event is dropped.
+         */
+        private Duration blockTimeout = Duration.ofMillis(50);
+        /**
+         * How long the drain thread parks when the ring buffer is empty.
+         */
+        private Duration idleWait = Duration.ofMillis(1);
+        /**
+         * Copy the caller's MDC into each event so correlation ids survive the thread hand-off.
+         */
+        private boolean captureMdc = true;
+    }
+
+    @Data
+    public static class Payload {
+        /**
+         * Maximum UTF-8 bytes rendered per logged request or response; anything beyond is cut and
+         * replaced with {@link #truncationMarker}. Zero or negative disables the limit.
+         */
+        private int maxBytes = 16 * 1024;
+        private String truncationMarker = "...<truncated>";
+        /**
+         * Bean property and map key names whose values are replaced with {@link #redactionMask}.
+         * Matching is case-insensitive.
+         */
+        private Set<String> redactedFields = new HashSet<>();
+        private String redactionMask = "****";
+        /**
+         * Maximum object/array nesting rendered before the payload is cut.
+         */
+        private int maxDepth = 32;
+    }
+
+    /**
+     * Defaults for the log policy of {@code @PooledDownstreamLog} and {@code @ControlleraInstrumentation};
+     * annotation attributes override them per call site. Metrics are recorded for every call regardless.
+     */
+    @Data
+    public static class Sampling {
+        /**
+         * Fraction of successful calls whose request and response are logged, between 0 and 1.
+         */
+        private double sampleRate = 1.0;
+        /**
+         * Log failed calls even when they were not sampled.
+         */
+        private boolean alwaysLogErrors = true;
+        /**
+         * Per call site cap on sampled logs per second. Zero or negative disables rate limiting.
+         */
+        private double maxLogsPerSecond = 0;
+        /**
+         * Calls slower than this have their response logged even when not sampled. Zero disables it.
+         */
+        private Duration slowCallThreshold = Duration.ZERO;
+    }
+
+    @Data
+    public static class StackTraces {
+        /**
+         * Log each distinct stack trace in full at most once per {@link #fullTraceInterval}; repeats in between
+         * log the exception, its fingerprint and a repeat counter.
+         */
+        private boolean enabled = true;
+        private Duration fullTraceInterval = Duration.ofMinutes(1);
+        /**
+         * Distinct fingerprints tracked; past it the least recently seen ones are forgotten.
+         */
+        private int maxFingerprints = 10_000;
+    }
+
+    public enum Backpressure {
+        DROP,
+        BLOCK
+    }
+}
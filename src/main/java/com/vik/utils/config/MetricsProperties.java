@@ -0,0 +1,89 @@
+package com.vik.utils.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.*;
+import org.springframework.stereotype.*;
+
+import java.time.*;
+import java.util.*;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "utils.metrics")
+public class MetricsProperties {
+
+    /**
+     * Maximum number of distinct tag combinations cached per metric name. Further combinations are
+     * collapsed into a single meter whose tag values are all {@code other}.
+     */
+    private int maxTagCombinations = 2000;
+
+    /**
+     * Per-metric overrides of {@link #maxTagCombinations}, keyed by metric name.
+     */
+    private Map<String, Integer> maxTagCombinationsPerMetric = new HashMap<>();
+
+    private PathNormalization pathNormalization = new PathNormalization();
+
+    /**
+     * Distribution settings per timer name, e.g. {@code utils.metrics.timers.Outgoing_Latency.slo=100ms,500ms}.
+     * They override whatever the code (such as {@code @MeasureLatency}) configured.
+     */
+    private Map<String, Distribution> timers = new HashMap<>(Map.of("Outgoing_Latency", Distribution.histogram()));
+
+    @Data
+    public static class PathNormalization {
+        /**
+         * Collapse ids in the {@code path} tag of {@code Outgoing_*} metrics; log lines keep the raw path.
+         */
+        private boolean enabled = true;
+        /**
+         * Regex rewrites applied to the whole path in order before segment collapsing, e.g.
+         * {@code "[^/]+@[^/]+": "{email}"}. Replacements may refer to groups.
+         */
+        private LinkedHashMap<String, String> rewrites = new LinkedHashMap<>();
+        /**
+         * Extra regexes; a path segment fully matching one becomes {@code {var}}. Numeric, UUID and long
+         * hex segments are always collapsed to {@code {id}}, {@code {uuid}} and {@code {hash}}.
+         */
+        private List<String> segmentPatterns = new ArrayList<>();
+        /**
+         * Minimum length of an all-hex segment to be treated as a hash.
+         */
+        private int minHashLength = 16;
+    }
+
+    @Data
+    public static class Distribution {
+        /**
+         * Publish histogram buckets so quantiles can be aggregated across instances.
+         */
+        private Boolean percentileHistogram;
+        /**
+         * Client-side percentiles computed per instance, e.g. {@code 0.5,0.99}; these cannot be aggregated.
+         */
+        private double[] percentiles;
+        /**
+         * Digits of precision for client-side percentiles; higher costs more memory per timer.
+         */
+        private Integer percentilePrecision;
+        /**
+         * SLO boundaries published as extra histogram buckets.
+         */
+        private List<Duration> slo;
+        private Duration minimumExpectedValue;
+        private Duration maximumExpectedValue;
+        /**
+         * Window over which percentiles and max decay.
+         */
+        private Duration expiry;
+
+        static Distribution histogram() {
+            Distribution distribution = new Distribution();
+            distribution.setPercentileHistogram(true);
+            distribution.setMinimumExpectedValue(Duration.ofMillis(1));
+            distribution.setMaximumExpectedValue(Duration.ofSeconds(30));
+            return distribution;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.vik.utils.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.*;
+import org.springframework.stereotype.*;
+
+import java.time.*;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "utils.resilience")
+public class ResilienceProperties {
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private Bulkhead bulkhead = new Bulkhead();
+    private ThreadPoolBulkhead threadPoolBulkhead = new ThreadPoolBulkhead();
+    private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+    @Data
+    public static class CircuitBreaker {
+        /**
+         * Failure percentage over the sliding window that opens the breaker.
+         */
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 100;
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(5);
+        /**
+         * Number of most recent calls the failure rate is computed over.
+         */
+        private int slidingWindowSize = 50;
+        private int minimumNumberOfCalls = 20;
+        private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+        private int permittedNumberOfCallsInHalfOpenState = 5;
+    }
+
+    @Data
+    public static class Bulkhead {
+        private int maxConcurrentCalls = 25;
+        /**
+         * How long a call may wait for a permit; zero rejects immediately.
+         */
+        private Duration maxWaitDuration = Duration.ZERO;
+    }
+
+    @Data
+    public static class ThreadPoolBulkhead {
+        private int coreThreadPoolSize = 4;
+        private int maxThreadPoolSize = 16;
+        private int queueCapacity = 100;
+        private Duration keepAliveDuration = Duration.ofSeconds(20);
+    }
+
+    /**
+     * Adaptive per-API concurrency limit for {@code @ControlleraInstrumentation} endpoints.
+     */
+    @Data
+    public static class ConcurrencyLimit {
+        private boolean enabled = false;
+        private LimitAlgorithm algorithm = LimitAlgorithm.GRADIENT;
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        /**
+         * Status of fast-rejected requests, 503 or 429.
+         */
+        private int rejectStatus = 503;
+        /**
+         * AIMD: requests slower than this shrink the limit by {@link #backoffRatio}.
+         */
+        private Duration timeout = Duration.ofSeconds(1);
+        private double backoffRatio = 0.9;
+        /**
+         * GRADIENT: how far the short-term RTT may exceed the long-term average before the limit shrinks.
+         */
+        private double rttTolerance = 1.5;
+        /**
+         * GRADIENT: samples averaged into the short- and long-term RTT.
+         */
+        private int shortWindow = 10;
+        private int longWindow = 600;
+        /**
+         * GRADIENT: weight of each new limit estimate, between 0 and 1.
+         */
+        private double smoothing = 0.2;
+    }
+
+    public enum LimitAlgorithm {
+        AIMD,
+        GRADIENT
+    }
+}
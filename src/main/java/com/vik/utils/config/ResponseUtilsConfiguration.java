@@ -0,0 +1,31 @@
+package com.vik.utils.config;
+
+import com.fasterxml.jackson.databind.*;
+import com.vik.utils.*;
+import jakarta.annotation.PostConstruct;
+import lombok.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.context.annotation.*;
+
+/**
+ * Applies {@link ResponseUtilsProperties} to the static {@link ResponseUtils}: by default it parses with the
+ * application's {@link ObjectMapper} so response parsing honours the same modules and features as the rest
+ * of the service.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class ResponseUtilsConfiguration {
+
+    @Autowired
+    private final ObjectMapper objectMapper;
+    @Autowired
+    private final ResponseUtilsProperties properties;
+
+    @PostConstruct
+    void configureResponseUtils() {
+        if (properties.isUseSpringObjectMapper()) {
+            ResponseUtils.setObjectMapper(objectMapper);
+        }
+        ResponseUtils.setStacklessExceptions(properties.isStacklessExceptions());
+    }
+}
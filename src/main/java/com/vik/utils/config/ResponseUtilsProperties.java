@@ -0,0 +1,20 @@
+package com.vik.utils.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.*;
+import org.springframework.stereotype.*;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "utils.response-utils")
+public class ResponseUtilsProperties {
+
+    /**
+     * Parse responses with the application's {@code ObjectMapper} instead of a plain one.
+     */
+    private boolean useSpringObjectMapper = true;
+    /**
+     * Throw stackless exceptions for non-2xx responses, for services where those are routine.
+     */
+    private boolean stacklessExceptions = false;
+}
@@ -0,0 +1,25 @@
+package com.vik.utils.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.*;
+import org.springframework.stereotype.*;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "utils.retry")
+public class RetryProperties {
+
+    private Budget budget = new Budget();
+
+    @Data
+    public static class Budget {
+        /**
+         * Sustained retries per second allowed towards a single downstream host, across all methods.
+         */
+        private double retriesPerSecond = 10;
+        /**
+         * Retries that may be spent at once after a quiet period.
+         */
+        private double burst = 20;
+    }
+}
@@ -0,0 +1,47 @@
+package com.vik.utils.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.*;
+import org.springframework.stereotype.*;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "utils.capture")
+public class TrafficCaptureProperties {
+
+    /**
+     * Append every {@code @PooledDownstreamLog} call to memory-mapped segment files for later replay.
+     */
+    private boolean enabled = false;
+    private String directory = "capture";
+    /**
+     * Size of each segment file; a record that does not fit rolls over to a new segment.
+     */
+    private long segmentBytes = 64L * 1024 * 1024;
+    /**
+     * Segments kept on disk; the oldest is deleted when a new one is created.
+     */
+    private int maxSegments = 8;
+    /**
+     * Buffer a record is encoded into before it is copied into the segment. Payloads that do not fit are
+     * recorded as not captured.
+     */
+    private int stagingBufferBytes = 64 * 1024;
+    /**
+     * Staging buffers shared by virtual threads, which get no buffer of their own; a call captured while all
+     * of them are in use is dropped. Zero or negative uses the number of processors.
+     */
+    private int sharedStagingBuffers = 0;
+    /**
+     * Fraction of calls captured, between 0 and 1.
+     */
+    private double sampleRate = 1.0;
+    /**
+     * Replay speed relative to the captured traffic; 2 replays twice as fast. Must be positive.
+     */
+    private double replayRateMultiplier = 1.0;
+    /**
+     * Upper bound on the replay speed a request may ask for.
+     */
+    private double maxReplayRateMultiplier = 10.0;
+}
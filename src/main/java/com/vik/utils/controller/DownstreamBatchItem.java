@@ -0,0 +1,22 @@
+package com.vik.utils.controller;
+
+import com.fasterxml.jackson.annotation.*;
+import com.fasterxml.jackson.databind.*;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DownstreamBatchItem {
+    /**
+     * Optional caller-side correlation id, echoed back in the result.
+     */
+    @JsonProperty("id")
+    private String id;
+    @JsonProperty("service")
+    private String service;
+    @JsonProperty("method")
+    private String method;
+    @JsonProperty("request")
+    private JsonNode request;
+}
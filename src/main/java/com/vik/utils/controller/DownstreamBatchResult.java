@@ -0,0 +1,32 @@
+package com.vik.utils.controller;
+
+import com.fasterxml.jackson.annotation.*;
+import lombok.*;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DownstreamBatchResult {
+    /**
+     * Position of the item in the submitted batch; results arrive in completion order.
+     */
+    @JsonProperty("index")
+    private long index;
+    @JsonProperty("id")
+    private String id;
+    @JsonProperty("service")
+    private String service;
+    @JsonProperty("method")
+    private String method;
+    @JsonProperty("status")
+    private int status;
+    @JsonProperty("durationMicros")
+    private long durationMicros;
+    /**
+     * What the single-call endpoint would have returned as body, including its error shape.
+     */
+    @JsonProperty("body")
+    private Object body;
+}
@@ -2,16 +2,28 @@ package com.vik.utils.controller;
 
 import com.fasterxml.jackson.databind.*;
 import com.vik.utils.aop.annotations.*;
+import com.vik.utils.capture.*;
+import com.vik.utils.config.*;
+import jakarta.annotation.PreDestroy;
 import lombok.*;
 import lombok.Value;
 import lombok.extern.slf4j.*;
 import org.apache.commons.lang3.exception.*;
 import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.autoconfigure.codec.*;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.buffer.*;
 import org.springframework.http.*;
 import org.springframework.util.*;
+import org.springframework.util.unit.*;
 import org.springframework.web.bind.annotation.*;
+import org.reactivestreams.*;
+import reactor.core.publisher.*;
+import reactor.core.scheduler.*;
 
-import java.lang.reflect.*;
+import java.io.*;
+import java.time.*;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -21,113 +33,246 @@ import java.util.concurrent.*;
 @RequiredArgsConstructor
 public class DownstreamController {
 
+    // Spring's own codec default, used when spring.codec.max-in-memory-size is not available
+    private static final int DEFAULT_MAX_IN_MEMORY_SIZE = 256 * 1024;
+
     @Autowired
     private final ObjectMapper objectMapper;
 
-    // Cache for method lookups
-    private final Map<String, Method> methodCache = new ConcurrentHashMap<>();
-    private final Map<String, Class<?>> parameterTypeCache = new ConcurrentHashMap<>();
+    // Setter-injected so subclasses keep calling super(objectMapper)
+    private DownstreamControllerProperties properties = new DownstreamControllerProperties();
+    private int codecMaxInMemorySize = DEFAULT_MAX_IN_MEMORY_SIZE;
+
+    // service/method -> pre-resolved handle, rebuilt whenever the context is refreshed
+    private volatile DownstreamDispatchTable dispatchTable;
+    private volatile Scheduler blockingScheduler;
+
+    @Autowired(required = false)
+    public void setProperties(DownstreamControllerProperties properties) {
+        this.properties = properties;
+    }
+
+    @Autowired(required = false)
+    public void setCodecProperties(CodecProperties codecProperties) {
+        if (codecProperties.getMaxInMemorySize() != null) {
+            this.codecMaxInMemorySize = toIntBytes(codecProperties.getMaxInMemorySize());
+        }
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void refreshDispatchTable() {
+        dispatchTable = DownstreamDispatchTable.build(this, objectMapper);
+    }
 
     @PostMapping(value = "/{service}/{method}")
     @ControlleraInstrumentation(apiPath = "/{service}/{method}")
-    public <I, O> ResponseEntity<Object> hit(@PathVariable String service, @PathVariable String method, @RequestBody Map<String, Object> request) {
-        try {
-            // Input validation
-            if (!StringUtils.hasText(service) || !StringUtils.hasText(method)) {
-                return createErrorResponse(HttpStatus.BAD_REQUEST, "Service and method names cannot be empty");
-            }
+    public Mono<ResponseEntity<Object>> hit(@PathVariable String service, @PathVariable String method,
+                                            @RequestBody(required = false) Flux<DataBuffer> body) {
+        // Input validation
+        if (!StringUtils.hasText(service) || !StringUtils.hasText(method)) {
+            return Mono.just(createErrorResponse(HttpStatus.BAD_REQUEST, "Service and method names cannot be empty"));
+        }
 
-            // Get service instance
-            Object serviceInstance = getServiceInstance(service);
-            if (serviceInstance == null) {
-                return createErrorResponse(HttpStatus.NOT_FOUND, "Service not found: " + service);
-            }
+        // Resolve service method
+        DownstreamDispatchTable table = getDispatchTable();
+        DownstreamDispatchTable.Entry entry = table.find(service, method);
+        if (entry == null) {
+            return Mono.just(table.hasService(service)
+                    ? createErrorResponse(HttpStatus.NOT_FOUND, "Method not found: " + method)
+                    : createErrorResponse(HttpStatus.NOT_FOUND, "Service not found: " + service));
+        }
 
-            // Get method and parameter type
-            Method serviceMethod = getServiceMethod(serviceInstance, method);
-            if (serviceMethod == null) {
-                return createErrorResponse(HttpStatus.NOT_FOUND, "Method not found: " + method);
-            }
+        // The raw body is parsed straight into the parameter type, no intermediate Map
+        return DataBufferUtils.join(body, getMaxBodyBytes())
+                .map(buffer -> readRequest(entry, buffer))
+                .flatMap(request -> invoke(entry, request))
+                .switchIfEmpty(Mono.fromSupplier(
+                        () -> createErrorResponse(HttpStatus.BAD_REQUEST, "Request body is missing")))
+                .onErrorResume(e -> Mono.just(toErrorResponse(e)));
+    }
 
-            // Get parameter type
-            Class<?> parameterType = getParameterType(serviceMethod);
-
-//            // Validate request structure against target type
-//            ValidationResult validationResult = validateRequestStructure(request, parameterType);
-//            if (!validationResult.isValid()) {
-//                return createErrorResponse(HttpStatus.BAD_REQUEST, validationResult.getErrorMessage());
-//            }
-
-            // Convert request to target type
-            Object mappedRequest;
-            try {
-                mappedRequest = objectMapper.convertValue(request, parameterType);
-            } catch (IllegalArgumentException e) {
-                return createErrorResponse(HttpStatus.BAD_REQUEST, "Invalid request format: " + e.getMessage());
-            }
+    /**
+     * Dispatches a JSON array (or NDJSON stream) of {@link DownstreamBatchItem}s concurrently, at most
+     * {@code parallelism} at a time, streaming one {@link DownstreamBatchResult} per line as each completes.
+     */
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ControlleraInstrumentation(apiPath = "/batch")
+    public Flux<DownstreamBatchResult> batch(@RequestBody Flux<DownstreamBatchItem> items,
+                                             @RequestParam(required = false) Integer parallelism) {
+        return dispatchAll(getDispatchTable(), items, parallelism);
+    }
 
-//            // Validate converted object
-//            Set<ConstraintViolation<Object>> violations = validator.validate(mappedRequest);
-//            if (!violations.isEmpty()) {
-//                String errorMessage = violations.stream()
-//                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
-//                    .collect(Collectors.joining(", "));
-//                return createErrorResponse(HttpStatus.BAD_REQUEST, errorMessage);
-//            }
-
-            // Invoke method
-            Object response = serviceMethod.invoke(serviceInstance, mappedRequest);
-
-            // Handle async response
-            if (response instanceof Future<?> future) {
-                Object result = future.get();
-                return ResponseEntity.ok(result);
-            }
+    /**
+     * Dispatches captured calls the way {@link #batch} dispatches items, paced to {@code rateMultiplier}
+     * times the captured rate; mapped by {@link DownstreamReplayController} while capture is enabled.
+     */
+    Flux<DownstreamBatchResult> replay(Flux<CapturedCall> calls, double rateMultiplier, Long limit,
+                                       Integer parallelism) {
+        DownstreamDispatchTable table = getDispatchTable();
+        Flux<DownstreamBatchItem> items = TrafficReplayer.replay(calls, table, objectMapper, rateMultiplier);
+        if (limit != null && limit >= 0) {
+            items = items.take(limit);
+        }
+        return dispatchAll(table, items, parallelism);
+    }
 
-            return ResponseEntity.ok(response);
+    @PreDestroy
+    public void disposeScheduler() {
+        Scheduler scheduler = blockingScheduler;
+        if (scheduler != null && scheduler != Schedulers.boundedElastic()) {
+            scheduler.dispose();
+        }
+    }
 
-        } catch (IllegalArgumentException e) {
-            log.warn("Invalid request: {}", e.getMessage());
-            return createErrorResponse(HttpStatus.BAD_REQUEST, e.getMessage());
-        } catch (Exception e) {
-            log.error("Error processing request: {}", ExceptionUtils.getStackTrace(e));
-            return createErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+    private Flux<DownstreamBatchResult> dispatchAll(DownstreamDispatchTable table, Flux<DownstreamBatchItem> items,
+                                                    Integer parallelism) {
+        int concurrency = Math.max(1, Math.min(
+                parallelism != null ? parallelism : properties.getBatchParallelism(),
+                properties.getMaxBatchParallelism()));
+        return items.index()
+                .flatMap(indexed -> dispatchBatchItem(table, indexed.getT1(), indexed.getT2()), concurrency);
+    }
+
+    private Mono<DownstreamBatchResult> dispatchBatchItem(
+            DownstreamDispatchTable table, long index, DownstreamBatchItem item) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            // Deferred so that anything thrown while resolving the item becomes that item's error response
+            return Mono.defer(() -> dispatchBatchItem(table, item))
+                    .onErrorResume(e -> Mono.just(toErrorResponse(e)))
+                    .map(response -> DownstreamBatchResult.builder()
+                            .index(index)
+                            .id(item.getId())
+                            .service(item.getService())
+                            .method(item.getMethod())
+                            .status(response.getStatusCode().value())
+                            .durationMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start))
+                            .body(response.getBody())
+                            .build());
+        });
+    }
+
+    private Mono<ResponseEntity<Object>> dispatchBatchItem(DownstreamDispatchTable table, DownstreamBatchItem item) {
+        if (!StringUtils.hasText(item.getService()) || !StringUtils.hasText(item.getMethod())) {
+            return Mono.just(createErrorResponse(HttpStatus.BAD_REQUEST, "Service and method names cannot be empty"));
         }
+        DownstreamDispatchTable.Entry entry = table.find(item.getService(), item.getMethod());
+        if (entry == null) {
+            return Mono.just(table.hasService(item.getService())
+                    ? createErrorResponse(HttpStatus.NOT_FOUND, "Method not found: " + item.getMethod())
+                    : createErrorResponse(HttpStatus.NOT_FOUND, "Service not found: " + item.getService()));
+        }
+        if (item.getRequest() == null) {
+            return Mono.just(createErrorResponse(HttpStatus.BAD_REQUEST, "Request body is missing"));
+        }
+        return Mono.fromCallable(() -> readRequest(entry, item.getRequest()))
+                .flatMap(request -> invoke(entry, request));
     }
 
-    private Object getServiceInstance(String service) {
+    private Object readRequest(DownstreamDispatchTable.Entry entry, JsonNode body) {
         try {
-            Field field = this.getClass().getDeclaredField(service);
-            field.setAccessible(true);
-            return field.get(this);
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            log.warn("Service not found: {}", service);
-            return null;
-        }
-    }
-
-    private Method getServiceMethod(Object serviceInstance, String methodName) {
-        String cacheKey = serviceInstance.getClass().getName() + "#" + methodName;
-        return methodCache.computeIfAbsent(cacheKey, k -> {
-            try {
-                for (Method method : serviceInstance.getClass().getDeclaredMethods()) {
-                    if (method.getName().equals(methodName)) {
-                        return method;
-                    }
+            return entry.getReader().readValue(body);
+        } catch (IOException e) {
+            throw new DispatchException(HttpStatus.BAD_REQUEST, "Invalid request format: " + e.getMessage());
+        }
+    }
+
+    private Object readRequest(DownstreamDispatchTable.Entry entry, DataBuffer body) {
+        try (InputStream in = body.asInputStream(true)) {
+            return entry.getReader().readValue(in);
+        } catch (IOException e) {
+            throw new DispatchException(HttpStatus.BAD_REQUEST, "Invalid request format: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Invokes the service method and adapts whatever it returns into a {@link Mono} without blocking the
+     * calling thread; a {@code null} result or an empty publisher yields an empty 200.
+     */
+    private Mono<ResponseEntity<Object>> invoke(DownstreamDispatchTable.Entry entry, Object request) {
+        Mono<Object> invocation = Mono.fromCallable(() -> entry.invoke(request));
+        if (properties.isOffloadInvocation()) {
+            invocation = invocation.subscribeOn(getBlockingScheduler());
+        }
+        Mono<Object> result = invocation.flatMap(this::adapt);
+        Duration timeout = properties.getTimeout();
+        if (timeout != null && !timeout.isZero() && !timeout.isNegative()) {
+            result = result.timeout(timeout);
+        }
+        return result
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.ok().build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Mono<Object> adapt(Object response) {
+        if (response instanceof CompletionStage<?> stage) {
+            return Mono.fromCompletionStage((CompletionStage<Object>) stage);
+        }
+        if (response instanceof Mono<?> mono) {
+            return mono.cast(Object.class);
+        }
+        if (response instanceof Publisher<?> publisher) {
+            return Flux.from(publisher).collectList().cast(Object.class);
+        }
+        if (response instanceof Future<?> future) {
+            // Plain futures can only be waited on, so wait off the event loop
+            return Mono.fromCallable(() -> (Object) future.get())
+                    .subscribeOn(getBlockingScheduler())
+                    .doOnCancel(() -> future.cancel(true));
+        }
+        return Mono.just(response);
+    }
+
+    private ResponseEntity<Object> toErrorResponse(Throwable e) {
+        if (e instanceof DispatchException dispatchException) {
+            return createErrorResponse(dispatchException.getStatus(), dispatchException.getMessage());
+        }
+        if (e instanceof DataBufferLimitException) {
+            return createErrorResponse(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Request body exceeds " + getMaxBodyBytes() + " bytes");
+        }
+        if (e instanceof TimeoutException) {
+            log.warn("Downstream call timed out after {}", properties.getTimeout());
+            return createErrorResponse(HttpStatus.GATEWAY_TIMEOUT, "Downstream call timed out");
+        }
+        log.error("Error processing request: {}", ExceptionUtils.getStackTrace(e));
+        return createErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+    }
+
+    private Scheduler getBlockingScheduler() {
+        Scheduler scheduler = blockingScheduler;
+        if (scheduler == null) {
+            synchronized (this) {
+                scheduler = blockingScheduler;
+                if (scheduler == null) {
+                    scheduler = properties.getScheduler() == DownstreamControllerProperties.BlockingScheduler.VIRTUAL_THREADS
+                            ? Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "downstream-controller")
+                            : Schedulers.boundedElastic();
+                    blockingScheduler = scheduler;
                 }
-                return null;
-            } catch (SecurityException e) {
-                log.error("Security exception while accessing method", e);
-                return null;
             }
-        });
+        }
+        return scheduler;
+    }
+
+    // Negative means unlimited, as it does for the codecs
+    private int getMaxBodyBytes() {
+        DataSize maxBodySize = properties.getMaxBodySize();
+        return maxBodySize != null ? toIntBytes(maxBodySize) : codecMaxInMemorySize;
     }
 
-    private Class<?> getParameterType(Method method) {
-        return parameterTypeCache.computeIfAbsent(
-                method.toString(),
-                k -> method.getParameterTypes()[0]
-        );
+    private static int toIntBytes(DataSize size) {
+        return (int) Math.min(Integer.MAX_VALUE, size.toBytes());
+    }
+
+    private DownstreamDispatchTable getDispatchTable() {
+        DownstreamDispatchTable table = dispatchTable;
+        if (table == null) {
+            table = DownstreamDispatchTable.build(this, objectMapper);
+            dispatchTable = table;
+        }
+        return table;
     }
 
     private ResponseEntity<Object> createErrorResponse(HttpStatus status, String message) {
@@ -138,6 +283,16 @@ public class DownstreamController {
         return ResponseEntity.status(status).body(errorResponse);
     }
 
+    @Getter
+    private static class DispatchException extends RuntimeException {
+        private final HttpStatus status;
+
+        DispatchException(HttpStatus status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
     @Value
     private static class ValidationResult {
         boolean valid;
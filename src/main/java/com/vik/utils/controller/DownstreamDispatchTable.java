@@ -0,0 +1,139 @@
+package com.vik.utils.controller;
+
+import com.fasterxml.jackson.databind.*;
+import lombok.*;
+import lombok.extern.slf4j.*;
+import org.springframework.util.*;
+
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * Immutable {@code service/method -> handle} map for {@link DownstreamController}, built once from the
+ * controller's service fields so requests never touch reflection.
+ *
+ * <p>Services are the non-static fields declared by the controller subclass(es). Their public instance
+ * methods taking exactly one argument are dispatchable; when a name is overloaded, the candidate with
+ * the lexicographically smallest {@link Method#toGenericString()} wins.
+ */
+@Slf4j
+public final class DownstreamDispatchTable {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final Map<String, Map<String, Entry>> services;
+
+    private DownstreamDispatchTable(Map<String, Map<String, Entry>> services) {
+        this.services = services;
+    }
+
+    public static DownstreamDispatchTable build(Object controller, ObjectMapper objectMapper) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Map<String, Map<String, Entry>> services = new HashMap<>();
+        for (Class<?> type = ClassUtils.getUserClass(controller);
+             type != null && type != DownstreamController.class && type != Object.class;
+             type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()
+                        || services.containsKey(field.getName())) {
+                    continue;
+                }
+                Object instance = readField(controller, field);
+                if (instance != null) {
+                    services.put(field.getName(), resolveMethods(field.getName(), instance, objectMapper, lookup));
+                }
+            }
+        }
+        return new DownstreamDispatchTable(Map.copyOf(services));
+    }
+
+    public boolean hasService(String service) {
+        return service != null && services.containsKey(service);
+    }
+
+    public Entry find(String service, String method) {
+        // Map.copyOf maps reject null lookups
+        Map<String, Entry> methods = service != null ? services.get(service) : null;
+        return methods == null || method == null ? null : methods.get(method);
+    }
+
+    public Collection<Entry> entries() {
+        return services.values().stream()
+                .flatMap(methods -> methods.values().stream())
+                .toList();
+    }
+
+    private static Object readField(Object controller, Field field) {
+        try {
+            field.setAccessible(true);
+            return field.get(controller);
+        } catch (IllegalAccessException | RuntimeException e) {
+            log.warn("Skipping downstream service field {}: {}", field.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static Map<String, Entry> resolveMethods(
+            String service, Object instance, ObjectMapper objectMapper, MethodHandles.Lookup lookup) {
+        Map<String, List<Method>> candidates = new HashMap<>();
+        for (Method method : ClassUtils.getUserClass(instance).getDeclaredMethods()) {
+            int modifiers = method.getModifiers();
+            if (Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers) && !method.isSynthetic()
+                    && !method.isBridge() && method.getParameterCount() == 1) {
+                candidates.computeIfAbsent(method.getName(), k -> new ArrayList<>()).add(method);
+            }
+        }
+
+        Map<String, Entry> methods = new HashMap<>();
+        candidates.forEach((name, overloads) -> {
+            overloads.sort(Comparator.comparing(Method::toGenericString));
+            if (overloads.size() > 1) {
+                log.warn("Downstream method {}/{} is overloaded, dispatching to {}", service, name, overloads.get(0));
+            }
+            Entry entry = createEntry(service, instance, overloads.get(0), objectMapper, lookup);
+            if (entry != null) {
+                methods.put(name, entry);
+            }
+        });
+        return Map.copyOf(methods);
+    }
+
+    private static Entry createEntry(
+            String service, Object instance, Method method, ObjectMapper objectMapper, MethodHandles.Lookup lookup) {
+        try {
+            method.setAccessible(true);
+            MethodHandle invoker = lookup.unreflect(method)
+                    .bindTo(instance)
+                    .asType(INVOKER_TYPE);
+            JavaType parameterType = objectMapper.getTypeFactory().constructType(method.getGenericParameterTypes()[0]);
+            return new Entry(service, method.getName(), method, invoker, parameterType, objectMapper.readerFor(parameterType));
+        } catch (IllegalAccessException | RuntimeException e) {
+            log.warn("Skipping downstream method {}/{}: {}", service, method.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    @Value
+    public static class Entry {
+        String service;
+        String method;
+        Method target;
+        @Getter(AccessLevel.NONE)
+        MethodHandle invoker;
+        JavaType parameterType;
+        ObjectReader reader;
+
+        /**
+         * Invokes the service method. Like {@link Method#invoke}, anything the method throws is wrapped
+         * in an {@link InvocationTargetException}.
+         */
+        public Object invoke(Object request) throws InvocationTargetException {
+            try {
+                return (Object) invoker.invokeExact(request);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+}
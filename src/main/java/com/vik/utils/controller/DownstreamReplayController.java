@@ -0,0 +1,61 @@
+package com.vik.utils.controller;
+
+import com.vik.utils.aop.annotations.*;
+import com.vik.utils.capture.*;
+import com.vik.utils.config.*;
+import lombok.*;
+import org.springframework.beans.factory.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.autoconfigure.condition.*;
+import org.springframework.http.*;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.*;
+import reactor.core.publisher.*;
+import reactor.core.scheduler.*;
+
+import java.nio.file.*;
+
+/**
+ * Replays the calls captured under {@code utils.capture.directory} through {@link DownstreamController}'s
+ * dispatch. Only mapped while capture is enabled, and subject to the concurrency limit like any other API.
+ */
+@RestController
+@RequestMapping("/api/1.0/dev/downstream")
+@ConditionalOnProperty(prefix = "utils.capture", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class DownstreamReplayController {
+
+    @Autowired
+    private final ObjectProvider<DownstreamController> controllers;
+
+    @Autowired
+    private final TrafficCaptureProperties captureProperties;
+
+    /**
+     * Streams one {@link DownstreamBatchResult} per replayed call, at {@code rateMultiplier} times the captured
+     * rate. The rate must be positive and is capped at {@code utils.capture.max-replay-rate-multiplier}.
+     */
+    @PostMapping(value = "/replay", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ControlleraInstrumentation(apiPath = "/replay")
+    public Flux<DownstreamBatchResult> replay(@RequestParam(required = false) Double rateMultiplier,
+                                              @RequestParam(required = false) Long limit,
+                                              @RequestParam(required = false) Integer parallelism) {
+        double rate = rateMultiplier != null ? rateMultiplier : captureProperties.getReplayRateMultiplier();
+        if (!(rate > 0)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "rateMultiplier must be positive"));
+        }
+        Flux<CapturedCall> calls = TrafficCaptureReader.read(Paths.get(captureProperties.getDirectory()))
+                .subscribeOn(Schedulers.boundedElastic());
+        return controller().replay(calls, Math.min(rate, captureProperties.getMaxReplayRateMultiplier()),
+                limit, parallelism);
+    }
+
+    // Applications extend DownstreamController with their services, so prefer the subclass over the base bean
+    private DownstreamController controller() {
+        return controllers.orderedStream()
+                .filter(controller -> ClassUtils.getUserClass(controller) != DownstreamController.class)
+                .findFirst()
+                .orElseGet(controllers::getObject);
+    }
+}
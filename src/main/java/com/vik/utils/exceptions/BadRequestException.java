@@ -12,4 +12,10 @@ public class BadRequestException extends DownStreamException {
         this.message = message;
         this.statusCode = statusCode;
     }
+
+    public BadRequestException(Integer statusCode, String message, boolean writableStackTrace) {
+        super(statusCode, message, writableStackTrace);
+        this.message = message;
+        this.statusCode = statusCode;
+    }
 }
@@ -12,4 +12,14 @@ public class DownStreamException extends RuntimeException {
         this.statusCode = statusCode;
         this.message = message;
     }
+
+    /**
+     * With {@code writableStackTrace=false} no stack trace is captured, which makes expected 4xx/5xx
+     * failures cheap to create and to log.
+     */
+    public DownStreamException(Integer statusCode, String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+        this.statusCode = statusCode;
+        this.message = message;
+    }
 }
@@ -9,4 +9,10 @@ public class InternalServerErrorException extends DownStreamException {
         this.statusCode = statusCode;
         this.message = message;
     }
+
+    public InternalServerErrorException(Integer statusCode, String message, boolean writableStackTrace) {
+        super(statusCode, message, writableStackTrace);
+        this.statusCode = statusCode;
+        this.message = message;
+    }
 }
@@ -10,6 +10,12 @@ public class RetryableHttpException extends RuntimeException {
         this.responseBody = responseBody;
     }
 
+    public RetryableHttpException(int statusCode, String responseBody, boolean writableStackTrace) {
+        super("HTTP request failed with status code: " + statusCode, null, false, writableStackTrace);
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+    }
+
     public int getStatusCode() {
         return statusCode;
     }
@@ -0,0 +1,131 @@
+package com.vik.utils.logging;
+
+import com.vik.utils.*;
+import com.vik.utils.config.*;
+import io.micrometer.core.instrument.*;
+import lombok.extern.slf4j.*;
+import org.apache.commons.lang3.exception.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+/**
+ * Moves log writing off the calling thread. Callers publish events into a bounded {@link MpscRingBuffer};
+ * a single daemon thread drains it in batches and hands each event to the sink.
+ */
+@Slf4j
+public class AsyncLogPipeline<E> implements AutoCloseable {
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final MpscRingBuffer<E> queue;
+    private final Consumer<E> sink;
+    private final LoggingProperties.Async config;
+    private final Counter dropped;
+    private final Thread drainer;
+
+    private volatile boolean running = true;
+    private volatile boolean parked;
+
+    public AsyncLogPipeline(String name, LoggingProperties.Async config, Consumer<E> sink, MetricsService metricsService) {
+        this.queue = new MpscRingBuffer<>(config.getCapacity());
+        this.sink = sink;
+        this.config = config;
+        this.dropped = metricsService.counter("Log_Pipeline_Dropped", "pipeline", name);
+        metricsService.registerGauge("Log_Pipeline_Queue_Depth", queue, MpscRingBuffer::size, "pipeline", name);
+
+        this.drainer = new Thread(this::drainLoop, name);
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Returns {@code false} if the event was dropped because the buffer stayed full.
+     */
+    public boolean publish(E event) {
+        if (!running) {
+            write(event);
+            return true;
+        }
+        if (queue.offer(event)) {
+            wakeDrainer();
+            return true;
+        }
+        if (config.getBackpressure() == LoggingProperties.Backpressure.BLOCK) {
+            long deadline = System.nanoTime() + config.getBlockTimeout().toNanos();
+            while (running && System.nanoTime() < deadline) {
+                wakeDrainer();
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                if (queue.offer(event)) {
+                    wakeDrainer();
+                    return true;
+                }
+            }
+        }
+        dropped.increment();
+        return false;
+    }
+
+    public int depth() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void wakeDrainer() {
+        if (parked) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    private void drainLoop() {
+        long idleNanos = config.getIdleWait().toNanos();
+        int batchSize = Math.max(1, config.getBatchSize());
+        while (true) {
+            int drained = drainBatch(batchSize);
+            if (drained > 0) {
+                continue;
+            }
+            if (!running) {
+                // Producers may still be finishing a publish that raced with close()
+                if (drainBatch(Integer.MAX_VALUE) == 0) {
+                    return;
+                }
+                continue;
+            }
+            parked = true;
+            if (queue.isEmpty()) {
+                LockSupport.parkNanos(this, idleNanos);
+            }
+            parked = false;
+        }
+    }
+
+    private int drainBatch(int limit) {
+        int drained = 0;
+        E event;
+        while (drained < limit && (event = queue.poll()) != null) {
+            write(event);
+            drained++;
+        }
+        return drained;
+    }
+
+    private void write(E event) {
+        try {
+            sink.accept(event);
+        } catch (Exception e) {
+            log.error("Exception while writing async log event: {}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.vik.utils.logging;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Growable byte sink that refuses to hold more than {@code limit} bytes. Once the limit is hit it keeps
+ * what fits, up to the last whole UTF-8 sequence, flags itself as truncated and throws, so the serializer
+ * writing into it stops early.
+ */
+final class CappedOutputStream extends OutputStream {
+
+    // Buffers that grew past this are dropped after use instead of being kept per thread
+    private static final int RETAINED_CAPACITY = 256 * 1024;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int limit;
+    private byte[] buf;
+    private int count;
+    private boolean truncated;
+    private boolean discarding;
+
+    CappedOutputStream(int limit) {
+        this.limit = limit > 0 ? limit : Integer.MAX_VALUE - 8;
+        this.buf = new byte[Math.min(this.limit, INITIAL_CAPACITY)];
+    }
+
+    void reset() {
+        if (buf.length > RETAINED_CAPACITY) {
+            buf = new byte[Math.min(limit, INITIAL_CAPACITY)];
+        }
+        count = 0;
+        truncated = false;
+        discarding = false;
+    }
+
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    void markTruncated() {
+        truncated = true;
+    }
+
+    /**
+     * While discarding, writes are silently ignored; used to let a generator close after an abort.
+     */
+    void setDiscarding(boolean discarding) {
+        this.discarding = discarding;
+    }
+
+    int size() {
+        return count;
+    }
+
+    void rewind(int mark) {
+        count = Math.min(count, mark);
+    }
+
+    void writeString(String s) throws IOException {
+        // Every char encodes to at least one byte, so this prefix is enough to reach the limit
+        int end = Math.max(0, limit - count) + 1;
+        if (end < s.length() && Character.isHighSurrogate(s.charAt(end - 1))) {
+            end++;
+        }
+        String prefix = s.length() > end ? s.substring(0, end) : s;
+        write(prefix.getBytes(StandardCharsets.UTF_8));
+    }
+
+    String toString(String truncationMarker) {
+        String rendered = new String(buf, 0, count, StandardCharsets.UTF_8);
+        return truncated ? rendered + truncationMarker : rendered;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (discarding) {
+            return;
+        }
+        if (count >= limit) {
+            truncate();
+        }
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (discarding) {
+            return;
+        }
+        int accepted = Math.min(len, limit - count);
+        ensureCapacity(count + accepted);
+        System.arraycopy(b, off, buf, count, accepted);
+        count += accepted;
+        if (accepted < len) {
+            truncate();
+        }
+    }
+
+    private void truncate() throws LimitReachedException {
+        truncated = true;
+        // Drop a multi-byte sequence the limit cut in half
+        int start = count - 1;
+        while (start >= 0 && (buf[start] & 0xC0) == 0x80) {
+            start--;
+        }
+        if (start >= 0 && count - start < sequenceLength(buf[start])) {
+            count = start;
+        }
+        throw LimitReachedException.INSTANCE;
+    }
+
+    private static int sequenceLength(byte lead) {
+        if ((lead & 0x80) == 0) {
+            return 1;
+        }
+        if ((lead & 0xE0) == 0xC0) {
+            return 2;
+        }
+        if ((lead & 0xF0) == 0xE0) {
+            return 3;
+        }
+        return (lead & 0xF8) == 0xF0 ? 4 : 1;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > buf.length) {
+            int grown = (int) Math.min((long) limit, Math.max((long) buf.length << 1, required));
+            buf = Arrays.copyOf(buf, grown);
+        }
+    }
+
+    static final class LimitReachedException extends IOException {
+        static final LimitReachedException INSTANCE = new LimitReachedException();
+
+        private LimitReachedException() {
+            super("payload limit reached");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.vik.utils.logging;
+
+import lombok.*;
+
+import java.util.*;
+
+/**
+ * Downstream request/response captured by reference; serialization is deferred to whoever writes it.
+ */
+@Value
+public class DownstreamLogEvent {
+
+    public enum Kind {
+        REQUEST,
+        RESPONSE,
+        CACHE_HIT
+    }
+
+    Kind kind;
+    String classMethodName;
+    String dns;
+    String path;
+    Object response;
+    Object[] args;
+    long timestamp;
+    Map<String, String> mdc;
+
+    public static DownstreamLogEvent request(
+            String classMethodName, String dns, String path, Object[] args, Map<String, String> mdc) {
+        return new DownstreamLogEvent(
+                Kind.REQUEST, classMethodName, dns, path, null, args, System.currentTimeMillis(), mdc);
+    }
+
+    public static DownstreamLogEvent response(
+            String classMethodName, String dns, String path, Object response, Object[] args, Map<String, String> mdc) {
+        return new DownstreamLogEvent(
+                Kind.RESPONSE, classMethodName, dns, path, response, args, System.currentTimeMillis(), mdc);
+    }
+
+    public static DownstreamLogEvent cacheHit(
+            String classMethodName, String dns, String path, Object response, Object[] args, Map<String, String> mdc) {
+        return new DownstreamLogEvent(
+                Kind.CACHE_HIT, classMethodName, dns, path, response, args, System.currentTimeMillis(), mdc);
+    }
+}
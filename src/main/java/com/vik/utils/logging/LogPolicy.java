@@ -0,0 +1,18 @@
+package com.vik.utils.logging;
+
+import lombok.*;
+
+/**
+ * Effective logging policy of one call site, resolved from its annotation and the global defaults.
+ */
+@Value
+public class LogPolicy {
+    double sampleRate;
+    double maxLogsPerSecond;
+    long slowCallThresholdNanos;
+    boolean alwaysLogErrors;
+
+    public boolean isSlow(long elapsedNanos) {
+        return slowCallThresholdNanos > 0 && elapsedNanos >= slowCallThresholdNanos;
+    }
+}
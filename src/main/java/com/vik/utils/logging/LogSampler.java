@@ -0,0 +1,84 @@
+package com.vik.utils.logging;
+
+import com.vik.utils.*;
+import com.vik.utils.config.*;
+import com.vik.utils.resilience.*;
+import io.micrometer.core.instrument.Counter;
+import lombok.*;
+import org.springframework.stereotype.*;
+
+import java.time.*;
+import java.util.concurrent.*;
+
+/**
+ * Decides up front, before anything is serialized, whether a call's request and response get logged.
+ * Keys are call-site names ({@code classMethodName} or {@code apiPath}). Policies are cached per key and
+ * annotation values, so call sites that share a name (overloads, same-named classes) but not their settings
+ * each keep their own policy and token bucket.
+ */
+@Component
+@RequiredArgsConstructor
+public class LogSampler {
+
+    private final LoggingProperties loggingProperties;
+    private final MetricsService metricsService;
+
+    private final ConcurrentMap<PolicyKey, LogPolicy> policies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<BucketKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> suppressed = new ConcurrentHashMap<>();
+
+    /**
+     * Resolves the policy for {@code key}; negative annotation values fall back to the global defaults.
+     * Policies are resolved once per key and set of annotation values.
+     */
+    public LogPolicy policy(String key, double sampleRate, double maxLogsPerSecond, long slowCallThresholdMs,
+                            boolean alwaysLogErrors) {
+        PolicyKey policyKey = new PolicyKey(key, sampleRate, maxLogsPerSecond, slowCallThresholdMs, alwaysLogErrors);
+        LogPolicy policy = policies.get(policyKey);
+        if (policy != null) {
+            return policy;
+        }
+        return policies.computeIfAbsent(policyKey, k -> {
+            LoggingProperties.Sampling defaults = loggingProperties.getSampling();
+            return new LogPolicy(
+                    sampleRate >= 0 ? sampleRate : defaults.getSampleRate(),
+                    maxLogsPerSecond >= 0 ? maxLogsPerSecond : defaults.getMaxLogsPerSecond(),
+                    slowCallThresholdMs >= 0
+                            ? Duration.ofMillis(slowCallThresholdMs).toNanos()
+                            : defaults.getSlowCallThreshold().toNanos(),
+                    alwaysLogErrors && defaults.isAlwaysLogErrors());
+        });
+    }
+
+    public boolean sample(String key, LogPolicy policy) {
+        double rate = policy.getSampleRate();
+        boolean sampled = rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+        if (sampled && policy.getMaxLogsPerSecond() > 0) {
+            sampled = buckets.computeIfAbsent(new BucketKey(key, policy),
+                    k -> new TokenBucket(policy.getMaxLogsPerSecond(), policy.getMaxLogsPerSecond())).tryAcquire();
+        }
+        if (!sampled) {
+            Counter counter = suppressed.get(key);
+            if (counter == null) {
+                counter = suppressed.computeIfAbsent(key, k -> metricsService.counter("Log_Suppressed", "key", k));
+            }
+            counter.increment();
+        }
+        return sampled;
+    }
+
+    @Value
+    private static class PolicyKey {
+        String key;
+        double sampleRate;
+        double maxLogsPerSecond;
+        long slowCallThresholdMs;
+        boolean alwaysLogErrors;
+    }
+
+    @Value
+    private static class BucketKey {
+        String key;
+        LogPolicy policy;
+    }
+}
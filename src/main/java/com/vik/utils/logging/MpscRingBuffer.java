@@ -0,0 +1,73 @@
+package com.vik.utils.logging;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Producers claim a slot by CAS on
+ * the producer index and publish the element with an ordered store; the consumer frees the slot
+ * before advancing its index, so a producer never overwrites an element that has not been read.
+ */
+public final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    public MpscRingBuffer(int requestedCapacity) {
+        int capacity = 1 << (32 - Integer.numberOfLeadingZeros(Math.max(2, requestedCapacity) - 1));
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    public boolean offer(E element) {
+        Objects.requireNonNull(element);
+        long capacity = mask + 1L;
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex.get() >= capacity) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+        buffer.lazySet((int) index & mask, element);
+        return true;
+    }
+
+    /**
+     * Must only be called from the single consumer thread.
+     */
+    public E poll() {
+        long index = consumerIndex.get();
+        int offset = (int) index & mask;
+        E element = buffer.get(offset);
+        if (element == null) {
+            if (index == producerIndex.get()) {
+                return null;
+            }
+            // A producer has claimed the slot but not published into it yet
+            do {
+                Thread.onSpinWait();
+                element = buffer.get(offset);
+            } while (element == null);
+        }
+        buffer.lazySet(offset, null);
+        consumerIndex.lazySet(index + 1);
+        return element;
+    }
+
+    public int size() {
+        long consumed = consumerIndex.get();
+        long produced = producerIndex.get();
+        return (int) Math.max(0, Math.min(produced - consumed, mask + 1L));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
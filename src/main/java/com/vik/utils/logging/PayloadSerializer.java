@@ -0,0 +1,250 @@
+package com.vik.utils.logging;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.core.exc.*;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.module.*;
+import com.fasterxml.jackson.databind.ser.*;
+import com.fasterxml.jackson.databind.ser.impl.*;
+import com.fasterxml.jackson.databind.ser.std.*;
+import com.fasterxml.jackson.databind.type.*;
+import com.vik.utils.config.*;
+import org.springframework.boot.configurationprocessor.json.*;
+import org.springframework.stereotype.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Renders payloads for logging by streaming them through a {@link JsonGenerator} into a thread-local,
+ * size-capped buffer. Serialization stops as soon as the cap or the nesting limit is reached, so the
+ * cost of logging a payload is bounded by the configured limit rather than by the payload size.
+ */
+@Component
+public class PayloadSerializer {
+
+    private static final String UNSERIALIZABLE = "\"<unserializable>\"";
+    private static final String REDACTION_FILTER = PayloadSerializer.class.getName() + ".redaction";
+
+    private final ObjectMapper mapper;
+    private final LoggingProperties.Payload config;
+    private final ThreadLocal<CappedOutputStream> buffers;
+
+    public PayloadSerializer(ObjectMapper objectMapper, LoggingProperties loggingProperties) {
+        this.config = loggingProperties.getPayload();
+        this.mapper = objectMapper.copy();
+        this.mapper.getFactory().setStreamWriteConstraints(StreamWriteConstraints.builder()
+                .maxNestingDepth(config.getMaxDepth())
+                .build());
+        this.mapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (!config.getRedactedFields().isEmpty()) {
+            Set<String> redacted = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            redacted.addAll(config.getRedactedFields());
+            this.mapper.registerModule(new SimpleModule("payload-redaction")
+                    .setSerializerModifier(new RedactingSerializerModifier(redacted, config.getRedactionMask())));
+            this.mapper.setFilterProvider(new RedactingFilterProvider(
+                    new RedactingMapEntryFilter(redacted, config.getRedactionMask()),
+                    this.mapper.getSerializationConfig().getFilterProvider()));
+        }
+        this.buffers = ThreadLocal.withInitial(() -> new CappedOutputStream(config.getMaxBytes()));
+    }
+
+    public String serialize(Object value) {
+        if (value == null) {
+            return null;
+        }
+        CappedOutputStream out = buffers.get();
+        out.reset();
+        try {
+            writeValue(out, value);
+        } catch (IOException e) {
+            // Limit reached; whatever fit is kept
+        }
+        return out.toString(config.getTruncationMarker());
+    }
+
+    /**
+     * Writes {@code value} to {@code out} as complete JSON, redacted like {@link #serialize(Object)} and cut at
+     * the same nesting depth but without the byte limit, for callers that bound the output themselves.
+     */
+    public void writeRedacted(OutputStream out, Object value) throws IOException {
+        mapper.writeValue(out, value);
+    }
+
+    public String serializeAll(Object[] args) {
+        if (args == null || args.length == 0) {
+            return "[]";
+        }
+        CappedOutputStream out = buffers.get();
+        out.reset();
+        try {
+            out.write('[');
+            for (int i = 0; i < args.length; i++) {
+                if (i > 0) {
+                    out.writeString(", ");
+                }
+                writeValue(out, args[i]);
+                if (out.isTruncated()) {
+                    return out.toString(config.getTruncationMarker());
+                }
+            }
+            out.write(']');
+        } catch (IOException e) {
+            // Limit reached; whatever fit is kept
+        }
+        return out.toString(config.getTruncationMarker());
+    }
+
+    private void writeValue(CappedOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeString("null");
+        } else if (value instanceof String s) {
+            out.writeString(s);
+        } else if (value instanceof JSONArray || value instanceof JSONObject) {
+            out.writeString(value.toString());
+        } else {
+            writeJson(out, value);
+        }
+    }
+
+    private void writeJson(CappedOutputStream out, Object value) throws IOException {
+        int mark = out.size();
+        JsonGenerator gen = mapper.getFactory().createGenerator(out);
+        try {
+            mapper.writeValue(gen, value);
+            gen.flush();
+        } catch (IOException | RuntimeException e) {
+            if (out.isTruncated()) {
+                return;
+            }
+            if (isDepthExceeded(e)) {
+                flushQuietly(gen);
+                out.markTruncated();
+                return;
+            }
+            out.rewind(mark);
+            out.writeString(UNSERIALIZABLE);
+        } finally {
+            out.setDiscarding(true);
+            try {
+                gen.close();
+            } catch (IOException ignored) {
+                // Output after an abort is discarded anyway
+            }
+            out.setDiscarding(false);
+        }
+    }
+
+    private static void flushQuietly(JsonGenerator gen) {
+        try {
+            gen.flush();
+        } catch (IOException ignored) {
+            // Partial output is best effort
+        }
+    }
+
+    private static boolean isDepthExceeded(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StreamConstraintsException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class RedactingSerializerModifier extends BeanSerializerModifier {
+        private final Set<String> redactedFields;
+        private final String mask;
+
+        private RedactingSerializerModifier(Set<String> redactedFields, String mask) {
+            this.redactedFields = redactedFields;
+            this.mask = mask;
+        }
+
+        @Override
+        public List<BeanPropertyWriter> changeProperties(
+                SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+            for (int i = 0; i < beanProperties.size(); i++) {
+                BeanPropertyWriter writer = beanProperties.get(i);
+                if (redactedFields.contains(writer.getName())) {
+                    beanProperties.set(i, new RedactingPropertyWriter(writer, mask));
+                }
+            }
+            return beanProperties;
+        }
+
+        /**
+         * Standard map serializers keep their key, null and ordering handling and only route their entries
+         * through the redaction filter; custom map serializers are left as they are.
+         */
+        @Override
+        public JsonSerializer<?> modifyMapSerializer(
+                SerializationConfig config, MapType valueType, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+            if (serializer instanceof MapSerializer mapSerializer) {
+                return mapSerializer.withFilterId(REDACTION_FILTER);
+            }
+            return serializer;
+        }
+    }
+
+    private static final class RedactingPropertyWriter extends BeanPropertyWriter {
+        private final String mask;
+
+        private RedactingPropertyWriter(BeanPropertyWriter base, String mask) {
+            super(base);
+            this.mask = mask;
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+            gen.writeFieldName(_name);
+            gen.writeString(mask);
+        }
+    }
+
+    private static final class RedactingMapEntryFilter extends SimpleBeanPropertyFilter {
+        private final Set<String> redactedFields;
+        private final String mask;
+
+        private RedactingMapEntryFilter(Set<String> redactedFields, String mask) {
+            this.redactedFields = redactedFields;
+            this.mask = mask;
+        }
+
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator gen, SerializerProvider provider, PropertyWriter writer)
+                throws Exception {
+            if (redactedFields.contains(writer.getName())) {
+                gen.writeFieldName(writer.getName());
+                gen.writeString(mask);
+            } else {
+                writer.serializeAsField(pojo, gen, provider);
+            }
+        }
+    }
+
+    // Answers the redaction filter id and hands every other id to the filters the application configured
+    private static final class RedactingFilterProvider extends FilterProvider {
+        private final PropertyFilter redaction;
+        private final FilterProvider applicationFilters;
+
+        private RedactingFilterProvider(PropertyFilter redaction, FilterProvider applicationFilters) {
+            this.redaction = redaction;
+            this.applicationFilters = applicationFilters;
+        }
+
+        @Override
+        @Deprecated
+        public BeanPropertyFilter findFilter(Object filterId) {
+            throw new UnsupportedOperationException("Access to deprecated filters not supported");
+        }
+
+        @Override
+        public PropertyFilter findPropertyFilter(Object filterId, Object valueToFilter) {
+            if (REDACTION_FILTER.equals(filterId)) {
+                return redaction;
+            }
+            return applicationFilters != null ? applicationFilters.findPropertyFilter(filterId, valueToFilter) : null;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.vik.utils.logging;
+
+import com.github.benmanes.caffeine.cache.*;
+import com.vik.utils.config.*;
+import org.apache.commons.lang3.exception.*;
+import org.springframework.stereotype.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Renders stack traces for error logs so that a recurring failure is logged in full at most once per
+ * {@code fullTraceInterval}. Repeats in between only log the exception, the fingerprint and how many repeats
+ * were suppressed. The fingerprint hashes exception classes and the top stack frames over the cause chain, so
+ * the same failure path maps to the same fingerprint whatever the message says.
+ */
+@Component
+public class StackTraceFingerprinter {
+
+    private static final int MAX_CAUSE_DEPTH = 16;
+    // Where a failure was thrown from; deeper frames are mostly the same framework plumbing
+    private static final int MAX_FRAMES = 32;
+
+    private final LoggingProperties.StackTraces config;
+    // Size-bounded so a burst of new traces evicts the coldest fingerprints instead of resetting every counter
+    private final Cache<Long, Entry> seen;
+
+    public StackTraceFingerprinter(LoggingProperties loggingProperties) {
+        this.config = loggingProperties.getStackTraces();
+        this.seen = Caffeine.newBuilder()
+                .maximumSize(config.getMaxFingerprints())
+                .build();
+    }
+
+    public String render(Throwable t) {
+        if (t == null) {
+            return null;
+        }
+        if (!config.isEnabled()) {
+            return ExceptionUtils.getStackTrace(t);
+        }
+        long fingerprint = fingerprint(t);
+        String hex = Long.toHexString(fingerprint);
+        long now = System.nanoTime();
+
+        Entry entry = seen.get(fingerprint, k -> new Entry(now));
+
+        long suppressed = entry.claimFullTrace(now, config.getFullTraceInterval().toNanos());
+        if (suppressed < 0) {
+            return t + " [stack trace fingerprint " + hex + ", " + entry.suppressed.sum() + " repeats suppressed]";
+        }
+        StringBuilder sb = new StringBuilder("[fingerprint ").append(hex);
+        if (suppressed > 0) {
+            sb.append(", ").append(suppressed).append(" repeats suppressed since last full trace");
+        }
+        return sb.append("] ").append(ExceptionUtils.getStackTrace(t)).toString();
+    }
+
+    public long fingerprint(Throwable t) {
+        long h = 0xcbf29ce484222325L;
+        Set<Throwable> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Throwable cause = t; cause != null && visited.size() < MAX_CAUSE_DEPTH && visited.add(cause);
+             cause = cause.getCause()) {
+            h = mix(h, cause.getClass().getName().hashCode());
+            StackTraceElement[] frames = cause.getStackTrace();
+            for (int i = 0; i < Math.min(frames.length, MAX_FRAMES); i++) {
+                StackTraceElement frame = frames[i];
+                h = mix(h, frame.getClassName().hashCode());
+                h = mix(h, frame.getMethodName().hashCode());
+                h = mix(h, frame.getLineNumber());
+            }
+        }
+        return h;
+    }
+
+    private static long mix(long h, int value) {
+        return (h ^ value) * 0x100000001b3L;
+    }
+
+    private static final class Entry {
+        private final AtomicLong nextFullTrace;
+        private final LongAdder suppressed = new LongAdder();
+
+        private Entry(long now) {
+            this.nextFullTrace = new AtomicLong(now);
+        }
+
+        // Number of repeats suppressed since the last full trace when this caller should log it, -1 otherwise
+        private long claimFullTrace(long now, long intervalNanos) {
+            long next = nextFullTrace.get();
+            if (now - next >= 0 && nextFullTrace.compareAndSet(next, now + intervalNanos)) {
+                return suppressed.sumThenReset();
+            }
+            suppressed.increment();
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.vik.utils.metrics;
+
+import com.vik.utils.config.*;
+import org.springframework.stereotype.*;
+
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * Turns concrete request paths into templates for metric tags, so {@code /orders/1234/items} and
+ * {@code /orders/98/items} share the {@code /orders/{id}/items} series. The built-in rules scan each segment
+ * once without regexes; configured rewrites and segment patterns are applied on top.
+ */
+@Component
+public class PathNormalizer {
+
+    static final String ID = "{id}";
+    static final String UUID = "{uuid}";
+    static final String HASH = "{hash}";
+    static final String VAR = "{var}";
+
+    private final boolean enabled;
+    private final int minHashLength;
+    private final List<Map.Entry<Pattern, String>> rewrites = new ArrayList<>();
+    private final List<Pattern> segmentPatterns = new ArrayList<>();
+
+    public PathNormalizer(MetricsProperties metricsProperties) {
+        MetricsProperties.PathNormalization config = metricsProperties.getPathNormalization();
+        this.enabled = config.isEnabled();
+        this.minHashLength = config.getMinHashLength();
+        config.getRewrites().forEach((regex, replacement) ->
+                rewrites.add(Map.entry(Pattern.compile(regex), replacement)));
+        config.getSegmentPatterns().forEach(regex -> segmentPatterns.add(Pattern.compile(regex)));
+    }
+
+    public String normalize(String path) {
+        if (!enabled || path == null || path.isEmpty() || "-".equals(path)) {
+            return path;
+        }
+        for (Map.Entry<Pattern, String> rewrite : rewrites) {
+            path = rewrite.getKey().matcher(path).replaceAll(rewrite.getValue());
+        }
+
+        StringBuilder normalized = null;
+        int segmentStart = 0;
+        int length = path.length();
+        for (int i = 0; i <= length; i++) {
+            if (i < length && path.charAt(i) != '/') {
+                continue;
+            }
+            String replacement = i > segmentStart ? classify(path, segmentStart, i) : null;
+            if (replacement != null) {
+                if (normalized == null) {
+                    normalized = new StringBuilder(length).append(path, 0, segmentStart);
+                }
+                normalized.append(replacement);
+            } else if (normalized != null) {
+                normalized.append(path, segmentStart, i);
+            }
+            if (normalized != null && i < length) {
+                normalized.append('/');
+            }
+            segmentStart = i + 1;
+        }
+        return normalized == null ? path : normalized.toString();
+    }
+
+    private String classify(String path, int start, int end) {
+        int length = end - start;
+        boolean digits = true;
+        boolean hex = true;
+        for (int i = start; i < end && (digits || hex); i++) {
+            char c = path.charAt(i);
+            digits &= c >= '0' && c <= '9';
+            hex &= isHex(c);
+        }
+        if (digits) {
+            return ID;
+        }
+        if (hex && length >= minHashLength) {
+            return HASH;
+        }
+        if (length == 36 && isUuid(path, start)) {
+            return UUID;
+        }
+        if (!segmentPatterns.isEmpty()) {
+            CharSequence segment = path.subSequence(start, end);
+            for (Pattern pattern : segmentPatterns) {
+                if (pattern.matcher(segment).matches()) {
+                    return VAR;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isUuid(String path, int start) {
+        for (int i = 0; i < 36; i++) {
+            char c = path.charAt(start + i);
+            boolean dash = i == 8 || i == 13 || i == 18 || i == 23;
+            if (dash ? c != '-' : !isHex(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+}
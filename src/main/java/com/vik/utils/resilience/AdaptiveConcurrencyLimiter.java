@@ -0,0 +1,109 @@
+package com.vik.utils.resilience;
+
+import com.vik.utils.config.*;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Concurrency limit that adapts to observed latency. {@link #tryAcquire()} admits a request only while
+ * fewer than {@link #getLimit()} are in flight; every completed request feeds its round trip time back
+ * into the limit.
+ * <ul>
+ *     <li>{@code AIMD} adds one while the limit is being used and multiplies by {@code backoffRatio} when
+ *     a request takes longer than {@code timeout}.</li>
+ *     <li>{@code GRADIENT} compares the short-term RTT against a long-term average and scales the limit by
+ *     their ratio, plus a {@code sqrt(limit)} queue allowance, so the limit shrinks as soon as latency climbs
+ *     above its baseline.</li>
+ * </ul>
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private final ResilienceProperties.ConcurrencyLimit config;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    // Guarded by this; only touched when a sample is recorded
+    private double longRttNanos = -1;
+    private double shortRttNanos = -1;
+
+    public AdaptiveConcurrencyLimiter(ResilienceProperties.ConcurrencyLimit config) {
+        this.config = config;
+        this.limit = clamp(config.getInitialLimit());
+    }
+
+    /**
+     * Returns {@code false} when the limit is reached. Every successful acquire must be matched by one
+     * {@link #release}.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param rttNanos time the request held its permit
+     * @param sample   {@code false} for requests whose latency says nothing about capacity (cancellations)
+     */
+    public void release(long rttNanos, boolean sample) {
+        int inFlightAtStart = inFlight.getAndDecrement();
+        if (sample) {
+            onSample(rttNanos, inFlightAtStart);
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        double current = limit;
+        double next = config.getAlgorithm() == ResilienceProperties.LimitAlgorithm.AIMD
+                ? aimd(current, rttNanos, inFlightAtStart)
+                : gradient(current, rttNanos, inFlightAtStart);
+        limit = clamp(next);
+    }
+
+    private double aimd(double current, long rttNanos, int inFlightAtStart) {
+        if (rttNanos > config.getTimeout().toNanos()) {
+            return current * config.getBackoffRatio();
+        }
+        // Only grow while the limit is actually being used
+        return inFlightAtStart * 2 >= current ? current + 1 : current;
+    }
+
+    private double gradient(double current, long rttNanos, int inFlightAtStart) {
+        shortRttNanos = shortRttNanos < 0 ? rttNanos : ema(shortRttNanos, rttNanos, config.getShortWindow());
+        longRttNanos = longRttNanos < 0 ? rttNanos : ema(longRttNanos, rttNanos, config.getLongWindow());
+
+        // Drift the baseline back down after a sustained slowdown so the limit can recover
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+        if (inFlightAtStart < current / 2) {
+            return current;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, config.getRttTolerance() * longRttNanos / shortRttNanos));
+        double next = current * gradient + Math.sqrt(current);
+        return current * (1 - config.getSmoothing()) + next * config.getSmoothing();
+    }
+
+    private double clamp(double value) {
+        return Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), value));
+    }
+
+    private static double ema(double average, double sample, int window) {
+        double factor = 2.0 / (Math.max(1, window) + 1);
+        return average + (sample - average) * factor;
+    }
+}
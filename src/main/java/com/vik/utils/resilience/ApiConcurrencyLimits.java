@@ -0,0 +1,52 @@
+package com.vik.utils.resilience;
+
+import com.vik.utils.*;
+import com.vik.utils.aop.annotations.*;
+import com.vik.utils.config.*;
+import org.springframework.http.*;
+import org.springframework.stereotype.*;
+
+import java.util.concurrent.*;
+
+/**
+ * One {@link AdaptiveConcurrencyLimiter} per {@link ControlleraInstrumentation#apiPath()}, created on first use
+ * and exported as {@code Controller_Concurrency_Limit} and {@code Controller_Concurrency_In_Flight} gauges.
+ */
+@Component
+public class ApiConcurrencyLimits {
+
+    private final ResilienceProperties.ConcurrencyLimit config;
+    private final MetricsService metricsService;
+    private final ConcurrentMap<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public ApiConcurrencyLimits(ResilienceProperties properties, MetricsService metricsService) {
+        this.config = properties.getConcurrencyLimit();
+        this.metricsService = metricsService;
+    }
+
+    /**
+     * The limiter for {@code apiPath}, or {@code null} when limiting is off for it.
+     */
+    public AdaptiveConcurrencyLimiter limiter(String apiPath, ControlleraInstrumentation annotation) {
+        if (!config.isEnabled() || !annotation.limitConcurrency()) {
+            return null;
+        }
+        AdaptiveConcurrencyLimiter limiter = limiters.get(apiPath);
+        return limiter != null ? limiter : limiters.computeIfAbsent(apiPath, this::create);
+    }
+
+    public HttpStatus getRejectStatus() {
+        return config.getRejectStatus() == HttpStatus.TOO_MANY_REQUESTS.value()
+                ? HttpStatus.TOO_MANY_REQUESTS
+                : HttpStatus.SERVICE_UNAVAILABLE;
+    }
+
+    private AdaptiveConcurrencyLimiter create(String apiPath) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+        metricsService.registerGauge("Controller_Concurrency_Limit", limiter,
+                AdaptiveConcurrencyLimiter::getLimit, "api", apiPath);
+        metricsService.registerGauge("Controller_Concurrency_In_Flight", limiter,
+                AdaptiveConcurrencyLimiter::getInFlight, "api", apiPath);
+        return limiter;
+    }
+}
@@ -0,0 +1,241 @@
+package com.vik.utils.resilience;
+
+import com.vik.utils.*;
+import com.vik.utils.aop.annotations.*;
+import com.vik.utils.aop.support.*;
+import com.vik.utils.config.*;
+import com.vik.utils.exceptions.*;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkhead;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadConfig;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.*;
+import org.aspectj.lang.*;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.reactivestreams.*;
+import org.slf4j.MDC;
+import org.springframework.stereotype.*;
+import reactor.core.publisher.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Per-host circuit breakers and bulkheads for {@link PooledDownstreamLog} calls. Rejections surface as
+ * {@link CallNotPermittedException} / {@link BulkheadFullException}, which the logging aspect reports through
+ * the regular fallback path, tagged with that exception as {@code error}.
+ * <p>
+ * Reactive results acquire their permits on subscription; blocking and {@link CompletionStage} results
+ * acquire them before the method runs and release them when the result completes.
+ */
+@Slf4j
+@Component
+public class DownstreamResilience {
+
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final BulkheadRegistry bulkheads;
+    private final ThreadPoolBulkheadRegistry threadPoolBulkheads;
+
+    public DownstreamResilience(ResilienceProperties properties, MetricsService metricsService) {
+        ResilienceProperties.CircuitBreaker cb = properties.getCircuitBreaker();
+        this.circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(cb.getFailureRateThreshold())
+                .slowCallRateThreshold(cb.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(cb.getSlowCallDurationThreshold())
+                .slidingWindowSize(cb.getSlidingWindowSize())
+                .minimumNumberOfCalls(cb.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(cb.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(cb.getPermittedNumberOfCallsInHalfOpenState())
+                // A 4xx is the caller's fault, not a sign the host is unhealthy
+                .ignoreExceptions(BadRequestException.class)
+                .build());
+        this.circuitBreakers.getEventPublisher().onEntryAdded(event -> {
+            CircuitBreaker breaker = event.getAddedEntry();
+            breaker.getEventPublisher().onStateTransition(transition ->
+                    log.warn("Circuit breaker for {} moved {}", breaker.getName(), transition.getStateTransition()));
+            metricsService.registerGauge("Outgoing_Circuit_State", breaker,
+                    b -> b.getState().getOrder(), "dns", breaker.getName());
+        });
+
+        ResilienceProperties.Bulkhead bh = properties.getBulkhead();
+        this.bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(bh.getMaxConcurrentCalls())
+                .maxWaitDuration(bh.getMaxWaitDuration())
+                .build());
+
+        ResilienceProperties.ThreadPoolBulkhead tp = properties.getThreadPoolBulkhead();
+        this.threadPoolBulkheads = ThreadPoolBulkheadRegistry.of(ThreadPoolBulkheadConfig.custom()
+                .coreThreadPoolSize(tp.getCoreThreadPoolSize())
+                .maxThreadPoolSize(Math.max(tp.getCoreThreadPoolSize(), tp.getMaxThreadPoolSize()))
+                .queueCapacity(tp.getQueueCapacity())
+                .keepAliveDuration(tp.getKeepAliveDuration())
+                .build());
+    }
+
+    public static boolean isEnabled(PooledDownstreamLog downstreamLog) {
+        return downstreamLog.circuitBreaker() || downstreamLog.bulkhead() != PooledDownstreamLog.BulkheadType.NONE;
+    }
+
+    /**
+     * Proceeds with {@code joinPoint} under the breaker/bulkhead {@code downstreamLog} asks for, keyed by
+     * {@code host}, which should already be resolved so breakers are named (and tagged) by dns rather than by
+     * placeholder; callers without a known host pass something method-specific instead. {@code reactive}
+     * tells whether the method returns a {@link Publisher}.
+     */
+    public Object proceed(ProceedingJoinPoint joinPoint, PooledDownstreamLog downstreamLog, String host,
+                          boolean reactive) throws Throwable {
+        CircuitBreaker breaker = downstreamLog.circuitBreaker() ? circuitBreakers.circuitBreaker(host) : null;
+        if (reactive) {
+            Bulkhead bulkhead = downstreamLog.bulkhead() != PooledDownstreamLog.BulkheadType.NONE
+                    ? bulkheads.bulkhead(host) : null;
+            return decorate(joinPoint.proceed(), breaker, bulkhead);
+        }
+        if (downstreamLog.bulkhead() == PooledDownstreamLog.BulkheadType.THREAD_POOL) {
+            return proceedOnPool(joinPoint, breaker, threadPoolBulkheads.bulkhead(host));
+        }
+        Bulkhead bulkhead = downstreamLog.bulkhead() == PooledDownstreamLog.BulkheadType.SEMAPHORE
+                ? bulkheads.bulkhead(host) : null;
+        return proceedGuarded(joinPoint, breaker, bulkhead);
+    }
+
+    @PreDestroy
+    public void close() {
+        threadPoolBulkheads.getAllBulkheads().forEach(bulkhead -> {
+            try {
+                bulkhead.close();
+            } catch (Exception e) {
+                log.warn("Failed to close thread pool bulkhead {}", bulkhead.getName(), e);
+            }
+        });
+    }
+
+    private static Object decorate(Object result, CircuitBreaker breaker, Bulkhead bulkhead) {
+        if (result instanceof Mono<?> mono) {
+            if (breaker != null) {
+                mono = mono.transformDeferred(CircuitBreakerOperator.of(breaker));
+            }
+            return bulkhead != null ? mono.transformDeferred(BulkheadOperator.of(bulkhead)) : mono;
+        }
+        if (result instanceof Flux<?> flux) {
+            if (breaker != null) {
+                flux = flux.transformDeferred(CircuitBreakerOperator.of(breaker));
+            }
+            return bulkhead != null ? flux.transformDeferred(BulkheadOperator.of(bulkhead)) : flux;
+        }
+        return result;
+    }
+
+    private static Object proceedGuarded(ProceedingJoinPoint joinPoint, CircuitBreaker breaker, Bulkhead bulkhead)
+            throws Throwable {
+        Permit permit = Permit.acquire(breaker, bulkhead);
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable t) {
+            permit.release(t);
+            throw t;
+        }
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((ignored, error) -> permit.release(error));
+        } else {
+            permit.release(null);
+        }
+        return result;
+    }
+
+    private static Object proceedOnPool(ProceedingJoinPoint joinPoint, CircuitBreaker breaker, ThreadPoolBulkhead pool)
+            throws Throwable {
+        boolean returnsStage = CompletionStage.class.isAssignableFrom(
+                ((MethodSignature) joinPoint.getSignature()).getReturnType());
+        Permit permit = Permit.acquire(breaker, null);
+        Map<String, String> callerMdc = MDC.getCopyOfContextMap();
+        CompletableFuture<Object> result;
+        try {
+            result = pool.executeCallable(() -> {
+                // Pool threads are reused, so the caller's MDC is installed per call and always cleared
+                if (callerMdc != null) {
+                    MDC.setContextMap(callerMdc);
+                }
+                try {
+                    return joinPoint.proceed();
+                } catch (Exception e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new CompletionException(t);
+                } finally {
+                    MDC.clear();
+                }
+            }).toCompletableFuture();
+        } catch (BulkheadFullException e) {
+            permit.release(null);
+            throw e;
+        }
+
+        if (returnsStage) {
+            CompletableFuture<Object> completed = result.thenCompose(value -> value == null
+                    ? CompletableFuture.<Object>completedFuture(null)
+                    : ((CompletionStage<?>) value).toCompletableFuture().thenApply(v -> (Object) v));
+            completed.whenComplete((ignored, error) -> permit.release(error));
+            return completed;
+        }
+        // Blocking methods still block their caller, but the blocking work is bounded per host
+        try {
+            Object value = result.join();
+            permit.release(null);
+            return value;
+        } catch (CompletionException e) {
+            Throwable cause = AsyncResults.unwrap(e);
+            permit.release(cause);
+            throw cause;
+        }
+    }
+
+    private static final class Permit {
+        private final CircuitBreaker breaker;
+        private final Bulkhead bulkhead;
+        private final long start;
+
+        private Permit(CircuitBreaker breaker, Bulkhead bulkhead) {
+            this.breaker = breaker;
+            this.bulkhead = bulkhead;
+            this.start = breaker != null ? breaker.getCurrentTimestamp() : 0;
+        }
+
+        static Permit acquire(CircuitBreaker breaker, Bulkhead bulkhead) {
+            if (bulkhead != null && !bulkhead.tryAcquirePermission()) {
+                throw BulkheadFullException.createBulkheadFullException(bulkhead);
+            }
+            if (breaker != null && !breaker.tryAcquirePermission()) {
+                if (bulkhead != null) {
+                    bulkhead.onComplete();
+                }
+                throw CallNotPermittedException.createCallNotPermittedException(breaker);
+            }
+            return new Permit(breaker, bulkhead);
+        }
+
+        void release(Throwable error) {
+            if (bulkhead != null) {
+                bulkhead.onComplete();
+            }
+            if (breaker != null) {
+                long duration = breaker.getCurrentTimestamp() - start;
+                if (error == null) {
+                    breaker.onSuccess(duration, breaker.getTimestampUnit());
+                } else {
+                    breaker.onError(duration, breaker.getTimestampUnit(), AsyncResults.unwrap(error));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.vik.utils.resilience;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Caps extra work (hedges, retries) at a fraction of the primary traffic: every call deposits
+ * {@code ratio} of a permit, every extra attempt spends a whole one. Credit is capped at {@code burst}
+ * permits so a quiet period cannot bank an unbounded allowance.
+ */
+public final class RatioBudget {
+
+    // Fixed point so deposits and withdrawals are a single CAS on a long
+    private static final long UNIT = 1_000_000L;
+
+    private final long deposit;
+    private final long maxCredit;
+    private final AtomicLong credit = new AtomicLong();
+
+    public RatioBudget(double ratio, double burst) {
+        if (ratio < 0) {
+            throw new IllegalArgumentException("ratio must not be negative");
+        }
+        this.deposit = (long) (ratio * UNIT);
+        this.maxCredit = (long) (Math.max(1.0, burst) * UNIT);
+    }
+
+    public void onCall() {
+        credit.getAndUpdate(current -> Math.min(maxCredit, current + deposit));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            long current = credit.get();
+            if (current < UNIT) {
+                return false;
+            }
+            if (credit.compareAndSet(current, current - UNIT)) {
+                return true;
+            }
+        }
+    }
+}
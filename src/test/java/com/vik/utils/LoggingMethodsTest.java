@@ -0,0 +1,88 @@
+package com.vik.utils;
+
+import com.vik.utils.config.LoggingProperties;
+import com.vik.utils.config.MetricsProperties;
+import com.vik.utils.logging.PayloadSerializer;
+import com.vik.utils.logging.StackTraceFingerprinter;
+import com.vik.utils.metrics.PathNormalizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LoggingMethodsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Environment environment = mock(Environment.class);
+    private final LoggingMethods loggingMethods = new LoggingMethods(
+            mock(PayloadSerializer.class),
+            environment,
+            new MetricsService(registry),
+            new LoggingProperties(),
+            new PathNormalizer(new MetricsProperties()),
+            mock(StackTraceFingerprinter.class));
+
+    @Test
+    void countsUnderResolvedHostAndNormalizedPath() {
+        when(environment.getProperty("inventory.host")).thenReturn("inventory");
+
+        loggingMethods.countDownstreamRequest("${inventory.host}", "/items/42");
+        loggingMethods.countDownstreamRequest("${inventory.host}", "/items/42");
+        loggingMethods.countDownstreamRequest("${inventory.host}", "/items/43");
+
+        assertEquals(3, registry.get("Outgoing_Request")
+                .tag("dns", "inventory")
+                .tag("path", "/items/{id}")
+                .counter().count(), 0);
+        verify(environment, times(1)).getProperty("inventory.host");
+    }
+
+    @Test
+    void reResolvesHostAfterEnvironmentChange() {
+        when(environment.getProperty("inventory.host")).thenReturn("inventory-a", "inventory-b");
+
+        loggingMethods.countDownstreamRetry("${inventory.host}", "/items", "retried");
+        loggingMethods.clearResolvedProperties();
+        loggingMethods.countDownstreamRetry("${inventory.host}", "/items", "retried");
+
+        assertEquals(1, registry.get("Outgoing_Retry").tag("dns", "inventory-a").counter().count(), 0);
+        assertEquals(1, registry.get("Outgoing_Retry").tag("dns", "inventory-b").counter().count(), 0);
+    }
+
+    @Test
+    void keepsRetryingUnresolvedPlaceholders() {
+        when(environment.getProperty("inventory.host")).thenReturn(null, "inventory");
+
+        loggingMethods.recordDownstreamLatency("${inventory.host}", "/items", "success", 1_000_000);
+        loggingMethods.recordDownstreamLatency("${inventory.host}", "/items", "success", 1_000_000);
+
+        assertEquals(1, registry.get("Outgoing_Latency").tag("dns", "inventory").timer().count());
+    }
+
+    @Test
+    void refreshEventsDropResolvedPlaceholders() {
+        when(environment.getProperty("inventory.host")).thenReturn("inventory-a", "inventory-b", "inventory-c");
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(LoggingMethods.class, () -> loggingMethods);
+            context.refresh();
+
+            loggingMethods.countDownstreamRequest("${inventory.host}", "/items");
+            context.publishEvent(new EnvironmentChangeEvent(Set.of("inventory.host")));
+            loggingMethods.countDownstreamRequest("${inventory.host}", "/items");
+            context.publishEvent(new RefreshScopeRefreshedEvent());
+            loggingMethods.countDownstreamRequest("${inventory.host}", "/items");
+        }
+
+        for (String dns : new String[]{"inventory-a", "inventory-b", "inventory-c"}) {
+            assertEquals(1, registry.get("Outgoing_Request").tag("dns", dns).counter().count(), 0);
+        }
+    }
+}
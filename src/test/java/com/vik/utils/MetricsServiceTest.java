@@ -0,0 +1,138 @@
+package com.vik.utils;
+
+import com.vik.utils.config.MetricsProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsServiceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void reusesMeterForSameTags() {
+        MetricsService metricsService = new MetricsService(registry);
+
+        assertSame(metricsService.counter("Outgoing_Request", "dns", "inventory"),
+                metricsService.counter("Outgoing_Request", "dns", "inventory"));
+    }
+
+    @Test
+    void collapsesTagCombinationsPastTheLimit() {
+        MetricsProperties properties = new MetricsProperties();
+        properties.setMaxTagCombinations(2);
+        MetricsService metricsService = new MetricsService(registry, properties);
+
+        metricsService.incrementCounter("Outgoing_Request", "dns", "a", "path", "/a");
+        metricsService.incrementCounter("Outgoing_Request", "dns", "b", "path", "/b");
+        metricsService.incrementCounter("Outgoing_Request", "dns", "c", "path", "/c");
+        metricsService.incrementCounter("Outgoing_Request", "dns", "d", "path", "/d");
+        // Existing combinations keep their own meter after the limit is reached
+        metricsService.incrementCounter("Outgoing_Request", "dns", "a", "path", "/a");
+
+        assertEquals(2, registry.get("Outgoing_Request").tag("dns", "a").counter().count(), 0);
+        Counter overflow = registry.get("Outgoing_Request")
+                .tag("dns", MetricsService.OVERFLOW_TAG_VALUE)
+                .tag("path", MetricsService.OVERFLOW_TAG_VALUE)
+                .counter();
+        assertEquals(2, overflow.count(), 0);
+        assertEquals(3, registry.get("Outgoing_Request").counters().size());
+    }
+
+    @Test
+    void repeatMissesPastTheLimitShareOneOverflowMeter() {
+        MetricsProperties properties = new MetricsProperties();
+        properties.setMaxTagCombinations(1);
+        MetricsService metricsService = new MetricsService(registry, properties);
+
+        Counter first = metricsService.counter("Outgoing_Request", "dns", "a");
+        Counter overflow = metricsService.counter("Outgoing_Request", "dns", "b");
+
+        assertNotSame(first, overflow);
+        assertSame(overflow, metricsService.counter("Outgoing_Request", "dns", "c"));
+        assertSame(overflow, metricsService.counter("Outgoing_Request", "dns", "b"));
+        // Other tag keys or meter types collapse into their own overflow meter
+        assertNotSame(overflow, metricsService.counter("Outgoing_Request", "host", "d"));
+        assertEquals(3, registry.get("Outgoing_Request").meters().size());
+    }
+
+    @Test
+    void perMetricLimitOverridesDefault() {
+        MetricsProperties properties = new MetricsProperties();
+        properties.setMaxTagCombinations(1);
+        properties.getMaxTagCombinationsPerMetric().put("Outgoing_Latency", 3);
+        MetricsService metricsService = new MetricsService(registry, properties);
+
+        for (String dns : new String[]{"a", "b", "c"}) {
+            metricsService.incrementCounter("Outgoing_Latency", "dns", dns);
+            metricsService.incrementCounter("Outgoing_Request", "dns", dns);
+        }
+
+        assertEquals(3, registry.get("Outgoing_Latency").counters().size());
+        assertEquals(2, registry.get("Outgoing_Request").counters().size());
+    }
+
+    @Test
+    void configuredTimersPublishPercentilesAndSloBuckets() {
+        MetricsProperties properties = new MetricsProperties();
+        MetricsProperties.Distribution distribution = new MetricsProperties.Distribution();
+        distribution.setPercentiles(new double[]{0.5, 0.99});
+        distribution.setSlo(List.of(Duration.ofMillis(100), Duration.ofMillis(500)));
+        properties.getTimers().put("Inventory_Latency", distribution);
+        MetricsService metricsService = new MetricsService(registry, properties);
+
+        Timer timer = metricsService.timer("Inventory_Latency", "dns", "inventory");
+        timer.record(50, TimeUnit.MILLISECONDS);
+        timer.record(300, TimeUnit.MILLISECONDS);
+
+        HistogramSnapshot snapshot = registry.get("Inventory_Latency").timer().takeSnapshot();
+        assertArrayEquals(new double[]{0.5, 0.99},
+                Arrays.stream(snapshot.percentileValues()).mapToDouble(ValueAtPercentile::percentile).toArray());
+        CountAtBucket[] buckets = snapshot.histogramCounts();
+        assertEquals(2, buckets.length);
+        assertEquals(100, buckets[0].bucket(TimeUnit.MILLISECONDS), 0);
+        assertEquals(1, buckets[0].count(), 0);
+        assertEquals(500, buckets[1].bucket(TimeUnit.MILLISECONDS), 0);
+        assertEquals(2, buckets[1].count(), 0);
+    }
+
+    @Test
+    void configurationOverridesWhatTheCallerAskedFor() {
+        MetricsProperties properties = new MetricsProperties();
+        MetricsProperties.Distribution distribution = new MetricsProperties.Distribution();
+        distribution.setPercentiles(new double[]{0.5});
+        properties.getTimers().put("Inventory_Latency", distribution);
+        MetricsService metricsService = new MetricsService(registry, properties);
+
+        metricsService.timer("Inventory_Latency", builder -> builder.publishPercentiles(0.9), "dns", "inventory")
+                .record(10, TimeUnit.MILLISECONDS);
+
+        ValueAtPercentile[] percentiles = registry.get("Inventory_Latency").timer().takeSnapshot().percentileValues();
+        assertEquals(1, percentiles.length);
+        assertEquals(0.5, percentiles[0].percentile(), 0);
+    }
+
+    @Test
+    void onlyOutgoingLatencyHasAHistogramByDefault() {
+        MetricsService metricsService = new MetricsService(registry, new MetricsProperties());
+
+        metricsService.timer("Outgoing_Latency", "dns", "inventory").record(10, TimeUnit.MILLISECONDS);
+        metricsService.timer("Inventory_Latency", "dns", "inventory").record(10, TimeUnit.MILLISECONDS);
+
+        assertTrue(registry.get("Outgoing_Latency").timer().takeSnapshot().histogramCounts().length > 0);
+        HistogramSnapshot plain = registry.get("Inventory_Latency").timer().takeSnapshot();
+        assertEquals(0, plain.histogramCounts().length);
+        assertEquals(0, plain.percentileValues().length);
+    }
+}
@@ -0,0 +1,184 @@
+package com.vik.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vik.utils.exceptions.BadRequestException;
+import com.vik.utils.exceptions.InternalServerErrorException;
+import com.vik.utils.exceptions.ResolveFutureException;
+import com.vik.utils.exceptions.RetryableHttpException;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseUtilsTest {
+
+    private static final TypeReference<Map<String, Integer>> COUNTS = new TypeReference<>() {
+    };
+    private static final TypeReference<Amount> AMOUNT = new TypeReference<>() {
+    };
+    private static final String JSON = "{\"a\":1,\"b\":2}";
+
+    @Test
+    void parsesEveryBodyShapeAlike() throws IOException {
+        byte[] bytes = JSON.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        ByteBuffer sliced = ByteBuffer.wrap(("xx" + JSON).getBytes(StandardCharsets.UTF_8)).position(2).slice();
+        Map<String, Integer> expected = Map.of("a", 1, "b", 2);
+
+        assertEquals(expected, ResponseUtils.commandResponseHandlerV3(Pair.of(200, JSON), COUNTS));
+        assertEquals(expected, ResponseUtils.commandResponseHandlerV3(200, bytes, COUNTS));
+        assertEquals(expected, ResponseUtils.commandResponseHandlerV3(200, direct, COUNTS));
+        assertEquals(expected, ResponseUtils.commandResponseHandlerV3(200, sliced, COUNTS));
+        assertEquals(expected, ResponseUtils.commandResponseHandlerV3(200, new ByteArrayInputStream(bytes), COUNTS));
+        // Buffers are read without moving their position
+        assertEquals(0, direct.position());
+        assertEquals(0, sliced.position());
+    }
+
+    @Test
+    void emptyBodiesParseToNull() throws IOException {
+        assertNull(ResponseUtils.commandResponseHandlerV3(Pair.of(200, ""), COUNTS));
+        assertNull(ResponseUtils.commandResponseHandlerV3(204, new byte[0], COUNTS));
+        assertNull(ResponseUtils.commandResponseHandlerV3(204, (byte[]) null, COUNTS));
+        assertNull(ResponseUtils.commandResponseHandlerV3(204, ByteBuffer.allocate(0), COUNTS));
+        assertNull(ResponseUtils.commandResponseHandlerV3(204, new ByteArrayInputStream(new byte[0]), COUNTS));
+    }
+
+    @Test
+    void nonSuccessBodiesBecomeTheErrorMessage() {
+        byte[] error = "{\"error\":\"bad\"}".getBytes(StandardCharsets.UTF_8);
+
+        BadRequestException badRequest = assertThrows(BadRequestException.class,
+                () -> ResponseUtils.commandResponseHandlerV3(404, new ByteArrayInputStream(error), COUNTS));
+        assertEquals(404, badRequest.getStatusCode());
+        assertEquals("{\"error\":\"bad\"}", badRequest.getMessage());
+
+        InternalServerErrorException serverError = assertThrows(InternalServerErrorException.class,
+                () -> ResponseUtils.commandResponseHandlerV3(500, ByteBuffer.wrap(error), COUNTS));
+        assertEquals(500, serverError.getStatusCode());
+    }
+
+    @Test
+    void transientServerErrorsAreRetryable() {
+        RetryableHttpException unavailable = assertThrows(RetryableHttpException.class,
+                () -> ResponseUtils.commandResponseHandlerV3(503, "busy".getBytes(StandardCharsets.UTF_8), COUNTS));
+        assertEquals(503, unavailable.getStatusCode());
+        assertEquals("busy", unavailable.getResponseBody());
+
+        assertThrows(RetryableHttpException.class,
+                () -> ResponseUtils.commandResponseHandlerV3(Pair.of(502, "bad gateway"), COUNTS));
+        assertThrows(RetryableHttpException.class,
+                () -> ResponseUtils.commandResponseHandlerErrorString(Pair.of(504, "timeout"), COUNTS));
+    }
+
+    @Test
+    void stacklessSettingAppliesToRetryableErrors() {
+        try {
+            ResponseUtils.setStacklessExceptions(true);
+            RetryableHttpException stackless = assertThrows(RetryableHttpException.class,
+                    () -> ResponseUtils.commandResponseHandlerV3(503, (byte[]) null, COUNTS));
+            assertEquals(0, stackless.getStackTrace().length);
+        } finally {
+            ResponseUtils.setStacklessExceptions(false);
+        }
+        RetryableHttpException withStack = assertThrows(RetryableHttpException.class,
+                () -> ResponseUtils.commandResponseHandlerV3(503, (byte[]) null, COUNTS));
+        assertTrue(withStack.getStackTrace().length > 0);
+    }
+
+    @Test
+    void swappingTheMapperDropsCachedReaders() throws IOException {
+        String withUnknownField = "{\"a\":1,\"unknown\":\"x\"}";
+        ObjectMapper original = ResponseUtils.getObjectMapper();
+        try {
+            ResponseUtils.setObjectMapper(new ObjectMapper());
+            assertThrows(IOException.class,
+                    () -> ResponseUtils.commandResponseHandlerV3(Pair.of(200, withUnknownField), AMOUNT));
+
+            ResponseUtils.setObjectMapper(new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+            assertEquals(1, ResponseUtils.commandResponseHandlerV3(Pair.of(200, withUnknownField), AMOUNT).getA());
+        } finally {
+            ResponseUtils.setObjectMapper(original);
+        }
+    }
+
+    @Test
+    void resolvesAllInIterationOrder() {
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(() -> slow.complete("a"));
+        FutureTask<String> plain = new FutureTask<>(() -> "c");
+        plain.run();
+        List<Future<String>> futures = Arrays.asList(slow, CompletableFuture.completedFuture("b"), plain, null);
+
+        assertEquals(Arrays.asList("a", "b", "c", null), ResponseUtils.resolveAll(futures));
+    }
+
+    @Test
+    void failsFastAndCancelsTheRest() {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> failed = CompletableFuture.failedFuture(new IllegalStateException("down"));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> ResponseUtils.resolveAll(List.of(pending, failed)));
+
+        assertEquals("down", error.getMessage());
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test
+    void cancelsTheRestOnCheckedFailures() {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> failed = CompletableFuture.failedFuture(new IOException("down"));
+
+        assertThrows(IOException.class, () -> ResponseUtils.resolveAll(List.of(pending, failed)));
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test
+    void cancelsEverythingPendingOnTimeout() {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        // Never run, so only the virtual thread waiting on it can notice the cancellation
+        FutureTask<String> plain = new FutureTask<>(() -> "never");
+
+        ResolveFutureException error = assertThrows(ResolveFutureException.class,
+                () -> ResponseUtils.resolveAll(List.of(pending, plain), Duration.ofMillis(50)));
+
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertTrue(pending.isCancelled());
+        assertTrue(plain.isCancelled());
+    }
+
+    @Test
+    void emptyInputResolvesToAnEmptyList() {
+        assertTrue(ResponseUtils.resolveAll(List.<Future<String>>of()).isEmpty());
+        assertTrue(ResponseUtils.resolveAll(null).isEmpty());
+    }
+
+    public static class Amount {
+        private int a;
+
+        public int getA() {
+            return a;
+        }
+
+        public void setA(int a) {
+            this.a = a;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.vik.utils.aop.aspects;
+
+import com.vik.utils.LoggingMethods;
+import com.vik.utils.MetricsService;
+import com.vik.utils.aop.annotations.CachedDownstream;
+import com.vik.utils.logging.LogSampler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachedDownstreamAspectTest {
+
+    private static final String URL = "http://inventory/items";
+
+    private final LoggingMethods loggingMethods = mock(LoggingMethods.class);
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+    }
+
+    @Test
+    void concurrentMissesShareOneLoadAndLaterCallsHitTheCache() {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        CompletableFuture<String> first = client.stage(URL);
+        CompletableFuture<String> second = client.stage(URL);
+        assertEquals(1, target.calls.get());
+
+        target.pending.get(0).complete("value");
+        assertEquals("value", first.orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals("value", second.orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals("value", client.stage(URL).orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals(1, target.calls.get());
+    }
+
+    @Test
+    void failedLoadsAreNotCached() {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        CompletableFuture<String> failed = client.stage(URL);
+        target.pending.get(0).completeExceptionally(new IllegalStateException("down"));
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> failed.orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+
+        client.stage(URL);
+        assertEquals(2, target.calls.get());
+    }
+
+    @Test
+    void blockingLoadsRunUnderTheCallersMdc() {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        MDC.put("traceId", "t-1");
+        assertEquals("t-1", client.blocking(URL));
+        assertNotSame(Thread.currentThread(), target.loadThread);
+    }
+
+    @Test
+    void weighsBytesAndStringsByLengthAndOtherValuesByElement() {
+        assertEquals(3, CachedDownstreamAspect.weigh(new byte[3]));
+        assertEquals(5, CachedDownstreamAspect.weigh("value"));
+        assertEquals(2 * CachedDownstream.OBJECT_WEIGHT, CachedDownstreamAspect.weigh(List.of("a", "b")));
+        assertEquals(CachedDownstream.OBJECT_WEIGHT, CachedDownstreamAspect.weigh(Map.of("a", "b")));
+        assertEquals(CachedDownstream.OBJECT_WEIGHT, CachedDownstreamAspect.weigh(new Object()));
+        assertEquals(1, CachedDownstreamAspect.weigh(""));
+    }
+
+    private Client proxy(Client target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new CachedDownstreamAspect(loggingMethods, mock(LogSampler.class),
+                new MetricsService(new SimpleMeterRegistry())));
+        return factory.getProxy();
+    }
+
+    static class Client {
+        private final List<CompletableFuture<String>> pending = new CopyOnWriteArrayList<>();
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile Thread loadThread;
+
+        @CachedDownstream(maxWeightBytes = 1024)
+        public CompletableFuture<String> stage(String url) {
+            calls.incrementAndGet();
+            CompletableFuture<String> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        }
+
+        @CachedDownstream
+        public String blocking(String url) {
+            loadThread = Thread.currentThread();
+            return MDC.get("traceId");
+        }
+    }
+}
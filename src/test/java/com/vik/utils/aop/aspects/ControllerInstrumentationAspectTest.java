@@ -0,0 +1,144 @@
+package com.vik.utils.aop.aspects;
+
+import com.vik.utils.MetricsService;
+import com.vik.utils.aop.annotations.ControlleraInstrumentation;
+import com.vik.utils.config.LoggingProperties;
+import com.vik.utils.config.ResilienceProperties;
+import com.vik.utils.data.responses.BaseResponse;
+import com.vik.utils.logging.LogSampler;
+import com.vik.utils.logging.StackTraceFingerprinter;
+import com.vik.utils.resilience.ApiConcurrencyLimits;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ControllerInstrumentationAspectTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void onlyDeclaredResponseEntitiesGetAnErrorBody() throws NoSuchMethodException {
+        assertTrue(isEntityResult("entity"));
+        assertFalse(isEntityResult("object"));
+        assertTrue(isEntityResult("monoOfEntity"));
+        assertFalse(isEntityResult("monoOfObject"));
+    }
+
+    @Test
+    void appliesTheSameRuleToOtherShapes() throws NoSuchMethodException {
+        assertTrue(isEntityResult("futureOfEntity"));
+        assertFalse(isEntityResult("futureOfObject"));
+        assertFalse(isEntityResult("fluxOfEntity"));
+        assertFalse(isEntityResult("string"));
+    }
+
+    @Test
+    void reactiveHandlersRunOnlyOnceTheyHoldAPermit() {
+        Controller target = new Controller();
+        Controller controller = proxy(target);
+
+        Mono<ResponseEntity<BaseResponse>> first = controller.mono();
+        assertEquals(0, target.invocations.get());
+        assertTrue(registry.find("Controller_Request").counters().isEmpty());
+
+        Disposable inFlight = first.subscribe();
+        StepVerifier.create(controller.mono())
+                .assertNext(rejection -> assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejection.getStatusCode()))
+                .verifyComplete();
+        inFlight.dispose();
+
+        // Like a rejected blocking request, the rejected one never reached the handler nor counted as a request
+        assertEquals(1, target.invocations.get());
+        assertEquals(1, registry.get("Controller_Request").tag("api", "/mono").counter().count(), 0);
+        assertEquals(1, registry.get("Controller_Concurrency_Rejected").tag("api", "/mono").counter().count(), 0);
+    }
+
+    @Test
+    void rejectedStreamsFailWithoutRunningTheHandler() {
+        Controller target = new Controller();
+        Controller controller = proxy(target);
+
+        Disposable inFlight = controller.stream().subscribe();
+        StepVerifier.create(controller.stream())
+                .expectError(ResponseStatusException.class)
+                .verify(Duration.ofSeconds(5));
+        inFlight.dispose();
+
+        assertEquals(1, target.invocations.get());
+        assertEquals(1, registry.get("Controller_Request").tag("api", "/stream").counter().count(), 0);
+
+        // The permit is back once the first subscription is gone
+        StepVerifier.create(controller.stream().take(1))
+                .expectNext("tick")
+                .verifyComplete();
+        assertEquals(2, target.invocations.get());
+    }
+
+    private Controller proxy(Controller target) {
+        ResilienceProperties properties = new ResilienceProperties();
+        properties.getConcurrencyLimit().setEnabled(true);
+        properties.getConcurrencyLimit().setInitialLimit(1);
+        properties.getConcurrencyLimit().setMinLimit(1);
+        properties.getConcurrencyLimit().setMaxLimit(1);
+        MetricsService metricsService = new MetricsService(registry);
+        LoggingProperties loggingProperties = new LoggingProperties();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ControllerInstrumentationAspect(metricsService,
+                new LogSampler(loggingProperties, metricsService), new StackTraceFingerprinter(loggingProperties),
+                new ApiConcurrencyLimits(properties, metricsService)));
+        return factory.getProxy();
+    }
+
+    private static boolean isEntityResult(String handler) throws NoSuchMethodException {
+        return ControllerInstrumentationAspect.isEntityResult(Handlers.class.getDeclaredMethod(handler));
+    }
+
+    @SuppressWarnings("unused")
+    private interface Handlers {
+        ResponseEntity<BaseResponse> entity();
+
+        Object object();
+
+        Mono<ResponseEntity<BaseResponse>> monoOfEntity();
+
+        Mono<Object> monoOfObject();
+
+        CompletableFuture<ResponseEntity<BaseResponse>> futureOfEntity();
+
+        CompletableFuture<Object> futureOfObject();
+
+        Flux<ResponseEntity<BaseResponse>> fluxOfEntity();
+
+        String string();
+    }
+
+    static class Controller {
+        private final AtomicInteger invocations = new AtomicInteger();
+
+        @ControlleraInstrumentation(apiPath = "/mono")
+        public Mono<ResponseEntity<BaseResponse>> mono() {
+            invocations.incrementAndGet();
+            return Mono.never();
+        }
+
+        @ControlleraInstrumentation(apiPath = "/stream")
+        public Flux<String> stream() {
+            invocations.incrementAndGet();
+            return Flux.just("tick").concatWith(Flux.never());
+        }
+    }
+}
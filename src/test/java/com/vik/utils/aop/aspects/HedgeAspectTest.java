@@ -0,0 +1,181 @@
+package com.vik.utils.aop.aspects;
+
+import com.vik.utils.LoggingMethods;
+import com.vik.utils.aop.annotations.HedgedDownstream;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class HedgeAspectTest {
+
+    private static final String URL = "http://inventory/items";
+
+    private final LoggingMethods loggingMethods = mock(LoggingMethods.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void hedgeWinsOverSlowPrimaryAndCancelsIt() {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        assertEquals("hedge", client.stage(URL).orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals(2, target.calls.get());
+        // The loser is cancelled, and the win counted, once the result has completed
+        assertThrows(CancellationException.class, () -> target.slowPrimary.get(5, TimeUnit.SECONDS));
+        verify(loggingMethods).countDownstreamHedge("inventory", "/items", "fired");
+        verify(loggingMethods, timeout(5000)).countDownstreamHedge("inventory", "/items", "won");
+    }
+
+    @Test
+    void primaryFailureIsFinal() {
+        Client target = new Client();
+        target.slowPrimary.completeExceptionally(new IllegalStateException("primary failed"));
+        Client client = proxy(target);
+
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> client.stage(URL).orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertEquals(1, target.calls.get());
+    }
+
+    @Test
+    void doesNotHedgeWithoutBudget() throws InterruptedException {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        CompletableFuture<String> result = client.unbudgetedStage(URL);
+        // Well past the hedge delay
+        Thread.sleep(200);
+        assertFalse(result.isDone());
+        assertEquals(1, target.calls.get());
+        verify(loggingMethods).countDownstreamHedge("inventory", "/items", "budget_exhausted");
+
+        target.slowPrimary.complete("primary");
+        assertEquals("primary", result.orTimeout(5, TimeUnit.SECONDS).join());
+    }
+
+    @Test
+    void hedgedMonoTakesFirstSuccessAndCancelsTheOther() {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        StepVerifier.create(client.mono(URL))
+                .expectNext("hedge")
+                .verifyComplete();
+        assertEquals(2, target.calls.get());
+        assertTrue(target.primaryCancelled.get());
+    }
+
+    @Test
+    void cancelsThePendingHedgeOnceThePrimaryAnswers() throws InterruptedException {
+        Client target = new Client();
+        target.slowPrimary.complete("primary");
+        Client client = proxy(target);
+
+        assertEquals("primary", client.stage(URL).orTimeout(5, TimeUnit.SECONDS).join());
+        // Well past the hedge delay
+        Thread.sleep(200);
+        assertEquals(1, target.calls.get());
+        verify(loggingMethods, never()).countDownstreamHedge(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void readsThePublishedPercentile() {
+        Timer latency = Timer.builder("Outgoing_Latency").publishPercentiles(0.5, 0.95).register(registry);
+        recordOneToHundredMillis(latency);
+
+        long delay = HedgeAspect.percentileNanos(latency.takeSnapshot(), 0.95);
+        assertTrue(delay >= TimeUnit.MILLISECONDS.toNanos(90) && delay <= TimeUnit.MILLISECONDS.toNanos(100),
+                "delay " + delay);
+    }
+
+    @Test
+    void fallsBackToHistogramBucketsWhenThePercentileIsNotPublished() {
+        Timer latency = Timer.builder("Outgoing_Latency")
+                .publishPercentiles(0.5)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+        recordOneToHundredMillis(latency);
+
+        // The upper bound of the bucket the 95th call falls in
+        long delay = HedgeAspect.percentileNanos(latency.takeSnapshot(), 0.95);
+        assertTrue(delay >= TimeUnit.MILLISECONDS.toNanos(95) && delay <= TimeUnit.MILLISECONDS.toNanos(150),
+                "delay " + delay);
+    }
+
+    @Test
+    void hasNoPercentileWithoutADistribution() {
+        Timer latency = Timer.builder("Outgoing_Latency").register(registry);
+        recordOneToHundredMillis(latency);
+
+        assertEquals(-1, HedgeAspect.percentileNanos(latency.takeSnapshot(), 0.95));
+    }
+
+    @Test
+    void callsBlockingMethodsOnce() {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        assertEquals("primary", client.blocking(URL));
+        assertEquals(1, target.calls.get());
+    }
+
+    private Client proxy(Client target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new HedgeAspect(loggingMethods));
+        return factory.getProxy();
+    }
+
+    private static void recordOneToHundredMillis(Timer latency) {
+        for (int millis = 1; millis <= 100; millis++) {
+            latency.record(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    static class Client {
+        // Returned by the first call only; later calls answer immediately
+        private final CompletableFuture<String> slowPrimary = new CompletableFuture<>();
+        private final AtomicBoolean primaryCancelled = new AtomicBoolean();
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @HedgedDownstream(initialDelayMs = 20, minDelayMs = 1, maxHedgeRatio = 1)
+        public CompletableFuture<String> stage(String url) {
+            return calls.incrementAndGet() == 1 ? slowPrimary : CompletableFuture.completedFuture("hedge");
+        }
+
+        @HedgedDownstream(initialDelayMs = 20, minDelayMs = 1, maxHedgeRatio = 0)
+        public CompletableFuture<String> unbudgetedStage(String url) {
+            return calls.incrementAndGet() == 1 ? slowPrimary : CompletableFuture.completedFuture("hedge");
+        }
+
+        @HedgedDownstream(initialDelayMs = 20, minDelayMs = 1, maxHedgeRatio = 1)
+        public Mono<String> mono(String url) {
+            return calls.incrementAndGet() == 1
+                    ? Mono.<String>never().doOnCancel(() -> primaryCancelled.set(true))
+                    : Mono.just("hedge");
+        }
+
+        @HedgedDownstream(initialDelayMs = 1, minDelayMs = 1, maxHedgeRatio = 1)
+        public String blocking(String url) {
+            calls.incrementAndGet();
+            return "primary";
+        }
+    }
+}
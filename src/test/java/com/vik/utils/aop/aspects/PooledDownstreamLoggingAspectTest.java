@@ -0,0 +1,70 @@
+package com.vik.utils.aop.aspects;
+
+import com.vik.utils.LoggingMethods;
+import com.vik.utils.MetricsService;
+import com.vik.utils.aop.annotations.PooledDownstreamLog;
+import com.vik.utils.config.ResilienceProperties;
+import com.vik.utils.logging.LogSampler;
+import com.vik.utils.resilience.DownstreamResilience;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PooledDownstreamLoggingAspectTest {
+
+    private final LoggingMethods loggingMethods = mock(LoggingMethods.class);
+    private DownstreamResilience resilience;
+
+    @AfterEach
+    void tearDown() {
+        resilience.close();
+    }
+
+    @Test
+    void methodsWithoutAKnownHostGetTheirOwnBreaker() {
+        ResilienceProperties properties = new ResilienceProperties();
+        properties.getCircuitBreaker().setSlidingWindowSize(2);
+        properties.getCircuitBreaker().setMinimumNumberOfCalls(2);
+        resilience = new DownstreamResilience(properties, new MetricsService(new SimpleMeterRegistry()));
+        Client client = proxy(new Client());
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(IllegalStateException.class, client::failing);
+        }
+
+        assertThrows(CallNotPermittedException.class, client::failing);
+        assertEquals("ok", client.healthy());
+        verify(loggingMethods, never()).resolveHost(anyString());
+    }
+
+    private Client proxy(Client target) {
+        PooledDownstreamLoggingAspect aspect = new PooledDownstreamLoggingAspect();
+        aspect.loggingMethods = loggingMethods;
+        LogSampler logSampler = mock(LogSampler.class);
+        when(logSampler.sample(anyString(), any())).thenReturn(true);
+        aspect.logSampler = logSampler;
+        aspect.downstreamResilience = resilience;
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    static class Client {
+
+        @PooledDownstreamLog(circuitBreaker = true)
+        public String failing() {
+            throw new IllegalStateException("down");
+        }
+
+        @PooledDownstreamLog(circuitBreaker = true)
+        public String healthy() {
+            return "ok";
+        }
+    }
+}
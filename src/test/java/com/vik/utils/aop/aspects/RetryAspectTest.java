@@ -0,0 +1,210 @@
+package com.vik.utils.aop.aspects;
+
+import com.vik.utils.LoggingMethods;
+import com.vik.utils.aop.annotations.RetryableDownstream;
+import com.vik.utils.aop.support.RetryableDownstreamValidator;
+import com.vik.utils.config.RetryProperties;
+import com.vik.utils.exceptions.RetryableHttpException;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.BeanInitializationException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RetryAspectTest {
+
+    private static final String URL = "http://inventory/items";
+
+    private final LoggingMethods loggingMethods = mock(LoggingMethods.class);
+    private final RetryProperties retryProperties = new RetryProperties();
+
+    RetryAspectTest() {
+        when(loggingMethods.resolveHost(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void retriesFailedStageUntilItRecovers() {
+        Client target = new Client(2);
+        Client client = proxy(target);
+
+        assertEquals("ok", client.stage(URL).orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals(3, target.calls.get());
+        verify(loggingMethods, times(2)).countDownstreamRetry("inventory", "/items", "retried");
+        verify(loggingMethods).countDownstreamRetry("inventory", "/items", "recovered");
+    }
+
+    @Test
+    void givesUpWhenTheHostRetryBudgetIsExhausted() {
+        retryProperties.getBudget().setRetriesPerSecond(0.001);
+        retryProperties.getBudget().setBurst(1);
+        Client target = new Client(Integer.MAX_VALUE);
+        Client client = proxy(target);
+
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> client.stage(URL).orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(RetryableHttpException.class, failure.getCause());
+        // The first call plus the single retry the budget allows
+        assertEquals(2, target.calls.get());
+        verify(loggingMethods).countDownstreamRetry("inventory", "/items", "budget_exhausted");
+        verify(loggingMethods, never()).countDownstreamRetry("inventory", "/items", "attempts_exhausted");
+    }
+
+    @Test
+    void resubscribesMonoUntilAttemptsAreExhausted() {
+        Client target = new Client(Integer.MAX_VALUE);
+        Client client = proxy(target);
+
+        StepVerifier.create(client.mono(URL))
+                .expectError(RetryableHttpException.class)
+                .verify(Duration.ofSeconds(5));
+        assertEquals(3, target.calls.get());
+        verify(loggingMethods).countDownstreamRetry("inventory", "/items", "attempts_exhausted");
+    }
+
+    @Test
+    void doesNotRetryFailuresItWasNotAskedTo() {
+        Client target = new Client(Integer.MAX_VALUE);
+        Client client = proxy(target);
+
+        StepVerifier.create(client.monoFailingWith(URL, new IllegalStateException("bad request")))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(5));
+        assertEquals(1, target.calls.get());
+        verify(loggingMethods, never()).countDownstreamRetry(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void retriesBlockingMethodsOnTheCallingThread() {
+        Client target = new Client(Integer.MAX_VALUE);
+        Client client = proxy(target);
+
+        assertThrows(RetryableHttpException.class, () -> client.blocking(URL));
+        assertEquals(3, target.calls.get());
+        assertEquals(List.of(Thread.currentThread()), target.callingThreads());
+        verify(loggingMethods, times(2)).countDownstreamRetry("inventory", "/items", "retried");
+        verify(loggingMethods).countDownstreamRetry("inventory", "/items", "attempts_exhausted");
+    }
+
+    @Test
+    void blockingRetriesRecover() {
+        Client target = new Client(1);
+        Client client = proxy(target);
+
+        assertEquals("ok", client.blocking(URL));
+        assertEquals(2, target.calls.get());
+        verify(loggingMethods).countDownstreamRetry("inventory", "/items", "recovered");
+    }
+
+    @Test
+    void interruptedCallerStopsRetrying() {
+        Client target = new Client(Integer.MAX_VALUE);
+        Client client = proxy(target);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(RetryableHttpException.class, () -> client.blocking(URL));
+            assertEquals(1, target.calls.get());
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    @Test
+    void hostsResolvingToTheSameDnsShareARetryBudget() {
+        retryProperties.getBudget().setRetriesPerSecond(0.001);
+        retryProperties.getBudget().setBurst(1);
+        when(loggingMethods.resolveHost("inventory")).thenReturn("inventory.internal");
+        when(loggingMethods.resolveHost("inventory-alias")).thenReturn("inventory.internal");
+        Client target = new Client(Integer.MAX_VALUE);
+        Client client = proxy(target);
+
+        assertThrows(RetryableHttpException.class, () -> client.blocking(URL));
+        assertThrows(RetryableHttpException.class, () -> client.blocking("http://inventory-alias/items"));
+
+        // One retry for the first call; the alias finds the shared budget empty
+        assertEquals(3, target.calls.get());
+        verify(loggingMethods).countDownstreamRetry("inventory-alias", "/items", "budget_exhausted");
+    }
+
+    @Test
+    void rejectsResultsItCannotRetryAtStartup() {
+        RetryableDownstreamValidator validator = new RetryableDownstreamValidator();
+
+        assertSame(validator, validator.postProcessBeforeInitialization(validator, "validator"));
+        assertDoesNotThrow(() -> validator.postProcessBeforeInitialization(new Client(0), "client"));
+        BeanInitializationException failure = assertThrows(BeanInitializationException.class,
+                () -> validator.postProcessBeforeInitialization(new StreamingClient(), "streamingClient"));
+        assertTrue(failure.getMessage().contains("StreamingClient.stream"), failure.getMessage());
+    }
+
+    private Client proxy(Client target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new RetryAspect(loggingMethods, retryProperties));
+        return factory.getProxy();
+    }
+
+    static class Client {
+        private final int failures;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final List<Thread> callingThreads = new CopyOnWriteArrayList<>();
+
+        Client(int failures) {
+            this.failures = failures;
+        }
+
+        @RetryableDownstream(initialBackoffMs = 1, maxBackoffMs = 5)
+        public CompletableFuture<String> stage(String url) {
+            return calls.incrementAndGet() > failures
+                    ? CompletableFuture.completedFuture("ok")
+                    : CompletableFuture.failedFuture(new RetryableHttpException(503, null));
+        }
+
+        @RetryableDownstream(initialBackoffMs = 1, maxBackoffMs = 5)
+        public Mono<String> mono(String url) {
+            return Mono.defer(() -> calls.incrementAndGet() > failures
+                    ? Mono.just("ok")
+                    : Mono.error(new RetryableHttpException(503, null)));
+        }
+
+        @RetryableDownstream(initialBackoffMs = 1, maxBackoffMs = 5)
+        public Mono<String> monoFailingWith(String url, RuntimeException failure) {
+            return Mono.defer(() -> {
+                calls.incrementAndGet();
+                return Mono.error(failure);
+            });
+        }
+
+        @RetryableDownstream(initialBackoffMs = 1, maxBackoffMs = 5)
+        public String blocking(String url) {
+            callingThreads.add(Thread.currentThread());
+            if (calls.incrementAndGet() > failures) {
+                return "ok";
+            }
+            throw new RetryableHttpException(503, null);
+        }
+
+        List<Thread> callingThreads() {
+            return callingThreads.stream().distinct().toList();
+        }
+    }
+
+    static class StreamingClient {
+        @RetryableDownstream
+        public Flux<String> stream(String url) {
+            return Flux.just("a", "b");
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.vik.utils.aop.aspects;
+
+import com.vik.utils.LoggingMethods;
+import com.vik.utils.aop.annotations.SingleFlight;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SingleFlightAspectTest {
+
+    private static final String URL = "http://inventory/items";
+
+    private final LoggingMethods loggingMethods = mock(LoggingMethods.class);
+
+    @Test
+    void concurrentStageCallsShareOneCall() {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        CompletableFuture<String> leader = client.stage(URL);
+        CompletableFuture<String> follower = client.stage(URL);
+        assertEquals(1, target.calls.get());
+        verify(loggingMethods).countDownstreamCoalesced("inventory", "/items");
+
+        target.pending.get(0).complete("value");
+        assertEquals("value", leader.join());
+        assertEquals("value", follower.join());
+
+        // Completed calls are not cached
+        client.stage(URL);
+        assertEquals(2, target.calls.get());
+    }
+
+    @Test
+    void callsWithDifferentKeysAreNotCoalesced() {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        client.stage(URL);
+        client.stage(URL + "/1");
+        assertEquals(2, target.calls.get());
+        verify(loggingMethods, never()).countDownstreamCoalesced(anyString(), anyString());
+    }
+
+    @Test
+    void onlyKeyArgsMakeUpTheKey() {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        client.keyedStage(URL, "trace-1");
+        client.keyedStage(URL, "trace-2");
+        assertEquals(1, target.calls.get());
+    }
+
+    @Test
+    void cancellingOneCallerDoesNotAffectTheOthers() {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        CompletableFuture<String> cancelled = client.stage(URL);
+        CompletableFuture<String> follower = client.stage(URL);
+        cancelled.cancel(true);
+
+        target.pending.get(0).complete("value");
+        assertEquals("value", follower.join());
+        assertFalse(target.pending.get(0).isCancelled());
+    }
+
+    @Test
+    void failureReachesEveryCallerAndClearsTheEntry() {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        CompletableFuture<String> leader = client.stage(URL);
+        CompletableFuture<String> follower = client.stage(URL);
+        target.pending.get(0).completeExceptionally(new IllegalStateException("down"));
+
+        assertInstanceOf(IllegalStateException.class, assertThrows(CompletionException.class, leader::join).getCause());
+        assertInstanceOf(IllegalStateException.class, assertThrows(CompletionException.class, follower::join).getCause());
+        client.stage(URL);
+        assertEquals(2, target.calls.get());
+    }
+
+    @Test
+    void concurrentMonoSubscribersShareOneSubscription() {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        AtomicReference<String> first = new AtomicReference<>();
+        AtomicReference<String> second = new AtomicReference<>();
+        client.mono(URL).subscribe(first::set);
+        client.mono(URL).subscribe(second::set);
+        assertEquals(1, target.calls.get());
+
+        target.sink.get().tryEmitValue("value");
+        assertEquals("value", first.get());
+        assertEquals("value", second.get());
+
+        client.mono(URL).subscribe();
+        assertEquals(2, target.calls.get());
+    }
+
+    @Test
+    void sharedMonoIsCancelledOnceEverySubscriberHasCancelled() {
+        Client target = new Client();
+        Client client = proxy(target);
+
+        Disposable first = client.mono(URL).subscribe();
+        Disposable second = client.mono(URL).subscribe();
+        first.dispose();
+        assertFalse(target.monoCancelled.get());
+        second.dispose();
+        assertTrue(target.monoCancelled.get());
+
+        // A cancelled call is no longer in flight
+        client.mono(URL).subscribe();
+        assertEquals(2, target.calls.get());
+    }
+
+    private Client proxy(Client target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new SingleFlightAspect(loggingMethods));
+        return factory.getProxy();
+    }
+
+    static class Client {
+        private final List<CompletableFuture<String>> pending = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Sinks.One<String>> sink = new AtomicReference<>();
+        private final AtomicBoolean monoCancelled = new AtomicBoolean();
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @SingleFlight
+        public CompletableFuture<String> stage(String url) {
+            calls.incrementAndGet();
+            CompletableFuture<String> result = new CompletableFuture<>();
+            pending.add(result);
+            return result;
+        }
+
+        @SingleFlight(keyArgs = 0)
+        public CompletableFuture<String> keyedStage(String url, String traceId) {
+            return stage(url);
+        }
+
+        @SingleFlight
+        public Mono<String> mono(String url) {
+            calls.incrementAndGet();
+            Sinks.One<String> one = Sinks.one();
+            sink.set(one);
+            return one.asMono().doOnCancel(() -> monoCancelled.set(true));
+        }
+    }
+}
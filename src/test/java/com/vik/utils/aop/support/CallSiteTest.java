@@ -0,0 +1,85 @@
+package com.vik.utils.aop.support;
+
+import com.vik.utils.aop.annotations.NotLogged;
+import com.vik.utils.aop.annotations.TagsParam;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CallSiteTest {
+
+    @Test
+    void reusesTheCallSiteOfAMethodOnTheSameTargetClass() throws NoSuchMethodException {
+        Method method = Client.class.getDeclaredMethod("get", String.class, Map.class);
+
+        CallSite first = CallSite.of(joinPoint(method, new Client()));
+        CallSite second = CallSite.of(joinPoint(method, new Client()));
+
+        assertSame(first, second);
+        assertSame(method, first.getMethod());
+        assertEquals("Client.get", first.getClassMethodName());
+    }
+
+    @Test
+    void namesInheritedMethodsAfterTheTargetClass() throws NoSuchMethodException {
+        Method method = Client.class.getDeclaredMethod("get", String.class, Map.class);
+
+        CallSite base = CallSite.of(joinPoint(method, new Client()));
+        CallSite sub = CallSite.of(joinPoint(method, new InventoryClient()));
+
+        assertNotSame(base, sub);
+        assertEquals("InventoryClient.get", sub.getClassMethodName());
+        assertSame(sub, CallSite.of(joinPoint(method, new InventoryClient())));
+    }
+
+    @Test
+    void findsTagsParamsAndMasksNotLoggedArguments() throws NoSuchMethodException {
+        CallSite callSite = CallSite.of(joinPoint(
+                Client.class.getDeclaredMethod("get", String.class, Map.class), new Client()));
+        Object[] args = {"secret", Map.of("host", "inventory")};
+
+        assertArrayEquals(new int[]{1}, callSite.getTagsParamIndexes());
+        Object[] loggable = callSite.loggableArgs(args);
+        assertArrayEquals(new Object[]{CallSite.NOT_LOGGED, Map.of("host", "inventory")}, loggable);
+        // The arguments passed on to the method are left alone
+        assertEquals("secret", args[0]);
+    }
+
+    @Test
+    void logsArgumentsAsGivenWhenNothingIsMasked() throws NoSuchMethodException {
+        CallSite callSite = CallSite.of(joinPoint(Client.class.getDeclaredMethod("list", String.class), new Client()));
+        Object[] args = {"http://inventory/items"};
+
+        assertEquals(0, callSite.getTagsParamIndexes().length);
+        assertSame(args, callSite.loggableArgs(args));
+    }
+
+    private static JoinPoint joinPoint(Method method, Object target) {
+        JoinPoint joinPoint = mock(JoinPoint.class);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(method);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getTarget()).thenReturn(target);
+        return joinPoint;
+    }
+
+    static class Client {
+
+        String get(@NotLogged String token, @TagsParam Map<String, String> tags) {
+            return token;
+        }
+
+        String list(String url) {
+            return url;
+        }
+    }
+
+    static class InventoryClient extends Client {
+    }
+}
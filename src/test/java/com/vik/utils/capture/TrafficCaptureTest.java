@@ -0,0 +1,171 @@
+package com.vik.utils.capture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vik.utils.MetricsService;
+import com.vik.utils.config.LoggingProperties;
+import com.vik.utils.config.TrafficCaptureProperties;
+import com.vik.utils.controller.DownstreamDispatchTable;
+import com.vik.utils.exceptions.DownStreamException;
+import com.vik.utils.logging.PayloadSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrafficCaptureTest {
+
+    private static final long LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(12);
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TrafficCaptureProperties properties = new TrafficCaptureProperties();
+    private final LoggingProperties loggingProperties = new LoggingProperties();
+
+    @Test
+    void capturedCallsReadBackInOrder() throws IOException {
+        TrafficCaptureWriter writer = writer();
+        writer.capture("Client.get", "inventory", "/items", new Object[]{Map.of("id", 7)}, List.of("a", "b"),
+                null, LATENCY_NANOS);
+        writer.capture("Client.put", "inventory", "/items", new Object[]{"x"}, null,
+                new DownStreamException(503, "unavailable"), LATENCY_NANOS);
+
+        List<CapturedCall> calls = TrafficCaptureReader.read(directory).collectList().block();
+        assertEquals(2, calls.size());
+
+        CapturedCall success = calls.get(0);
+        assertEquals("Client.get", success.getClassMethodName());
+        assertEquals("inventory", success.getHost());
+        assertEquals("/items", success.getPath());
+        assertEquals(LATENCY_NANOS, success.getLatencyNanos());
+        assertFalse(success.isFailed());
+        assertEquals(-1, success.getStatusCode());
+        assertNull(success.getErrorClass());
+        assertEquals("[{\"id\":7}]", json(success.getArgs()));
+        assertEquals("[\"a\",\"b\"]", json(success.getResponse()));
+
+        CapturedCall failure = calls.get(1);
+        assertEquals("Client.put", failure.getClassMethodName());
+        assertTrue(failure.isFailed());
+        assertEquals(503, failure.getStatusCode());
+        assertEquals(DownStreamException.class.getName(), failure.getErrorClass());
+        assertEquals("[\"x\"]", json(failure.getArgs()));
+        assertNull(failure.getResponse());
+
+        assertEquals(2, registry.get("Outgoing_Capture").tag("outcome", "written").counter().count(), 0);
+    }
+
+    @Test
+    void redactsConfiguredFieldsWithoutTheLogByteLimit() throws IOException {
+        loggingProperties.getPayload().setRedactedFields(Set.of("password"));
+        loggingProperties.getPayload().setMaxBytes(8);
+        TrafficCaptureWriter writer = writer();
+        writer.capture("Client.login", "auth", "/login", new Object[]{Map.of("password", "secret")}, "token",
+                null, LATENCY_NANOS);
+
+        CapturedCall call = TrafficCaptureReader.read(directory).single().block();
+        assertEquals("[{\"password\":\"****\"}]", json(call.getArgs()));
+        assertEquals("\"token\"", json(call.getResponse()));
+    }
+
+    @Test
+    void payloadTooLargeForStagingIsRecordedAsNotCaptured() throws IOException {
+        properties.setStagingBufferBytes(256);
+        TrafficCaptureWriter writer = writer();
+        writer.capture("Client.get", "inventory", "/items", new Object[]{"x"}, "y".repeat(1_000), null, LATENCY_NANOS);
+
+        CapturedCall call = TrafficCaptureReader.read(directory).single().block();
+        assertEquals("[\"x\"]", json(call.getArgs()));
+        assertNull(call.getResponse());
+    }
+
+    @Test
+    void rollsOverToNewSegmentsAndKeepsTheNewest() throws IOException {
+        properties.setSegmentBytes(512);
+        properties.setMaxSegments(2);
+        TrafficCaptureWriter writer = writer();
+        for (int i = 0; i < 50; i++) {
+            writer.capture("Client.get", "inventory", "/items/" + i, new Object[]{i}, i, null, LATENCY_NANOS);
+        }
+
+        assertEquals(2, TrafficCaptureReader.segments(directory).size());
+        List<CapturedCall> calls = TrafficCaptureReader.read(directory).collectList().block();
+        assertFalse(calls.isEmpty());
+        // Whatever survived is the most recent, contiguous run of calls
+        int first = Integer.parseInt(json(calls.get(0).getArgs()).replaceAll("\\D", ""));
+        for (int i = 0; i < calls.size(); i++) {
+            assertEquals("/items/" + (first + i), calls.get(i).getPath());
+        }
+        assertEquals("/items/49", calls.get(calls.size() - 1).getPath());
+    }
+
+    @Test
+    void callsCompletedAfterTheReadStartedAreNotRead() throws Exception {
+        TrafficCaptureWriter writer = writer();
+        writer.capture("Client.get", "inventory", "/before", new Object[]{"x"}, null, null, LATENCY_NANOS);
+        Thread.sleep(5);
+
+        StepVerifier.create(TrafficCaptureReader.read(directory), 0)
+                .then(() -> writer.capture("Client.get", "inventory", "/during", new Object[]{"x"}, null, null,
+                        LATENCY_NANOS))
+                .thenRequest(Long.MAX_VALUE)
+                .assertNext(call -> assertEquals("/before", call.getPath()))
+                .verifyComplete();
+    }
+
+    @Test
+    void virtualThreadsShareBoundedStagingBuffers() throws Exception {
+        properties.setSharedStagingBuffers(1);
+        TrafficCaptureWriter writer = writer();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                int call = i;
+                executor.execute(() -> writer.capture("Client.get", "inventory", "/items", new Object[]{call},
+                        call, null, LATENCY_NANOS));
+            }
+        }
+
+        double written = registry.get("Outgoing_Capture").tag("outcome", "written").counter().count();
+        double dropped = registry.get("Outgoing_Capture").tag("outcome", "dropped").counter().count();
+        assertEquals(100, written + dropped, 0);
+        assertTrue(written > 0);
+        assertEquals((long) written, TrafficCaptureReader.read(directory).count().block());
+    }
+
+    private TrafficCaptureWriter writer() throws IOException {
+        properties.setDirectory(directory.toString());
+        TrafficCaptureWriter writer = new TrafficCaptureWriter(properties,
+                new PayloadSerializer(new ObjectMapper(), loggingProperties), new MetricsService(registry));
+        writer.openSegment();
+        return writer;
+    }
+
+    @Test
+    void replayNeedsAPositiveRate() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        DownstreamDispatchTable table = DownstreamDispatchTable.build(new Object(), objectMapper);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> TrafficReplayer.replay(Flux.empty(), table, objectMapper, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> TrafficReplayer.replay(Flux.empty(), table, objectMapper, Double.NaN));
+    }
+
+    private static String json(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,143 @@
+package com.vik.utils.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.vik.utils.config.DownstreamControllerProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownstreamControllerTest {
+
+    private final DownstreamControllerProperties properties = new DownstreamControllerProperties();
+    private final Controller controller = new Controller(new ObjectMapper());
+
+    DownstreamControllerTest() {
+        controller.setProperties(properties);
+    }
+
+    @Test
+    void parsesTheBodyStraightIntoTheParameterType() {
+        StepVerifier.create(controller.hit("orders", "total",
+                        body("{\"items\":[{\"sku\":\"a\",\"quantity\":2},{\"sku\":\"b\",\"quantity\":3}]}")))
+                .assertNext(response -> {
+                    assertEquals(HttpStatus.OK, response.getStatusCode());
+                    assertEquals(5, response.getBody());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void rejectsBodiesOverTheLimit() {
+        properties.setMaxBodySize(DataSize.ofBytes(16));
+
+        StepVerifier.create(controller.hit("orders", "total", body("{\"items\":[{\"sku\":\"" + "a".repeat(64) + "\"}]}")))
+                .assertNext(response -> {
+                    assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, response.getStatusCode());
+                    assertEquals(413, ((Map<?, ?>) response.getBody()).get("status"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void acceptsBodiesSplitAcrossBuffersWithinTheLimit() {
+        properties.setMaxBodySize(DataSize.ofBytes(64));
+        String json = "{\"items\":[{\"sku\":\"a\",\"quantity\":4}]}";
+
+        StepVerifier.create(controller.hit("orders", "total", Flux.concat(
+                        body(json.substring(0, 10)), body(json.substring(10)))))
+                .assertNext(response -> assertEquals(4, response.getBody()))
+                .verifyComplete();
+    }
+
+    @Test
+    void answersMalformedBodiesWithBadRequest() {
+        StepVerifier.create(controller.hit("orders", "total", body("{\"items\":")))
+                .assertNext(response -> assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode()))
+                .verifyComplete();
+    }
+
+    @Test
+    void answersEveryBatchItemWithItsOwnStatus() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Flux<DownstreamBatchItem> items = Flux.just(
+                new DownstreamBatchItem("ok", "orders", "total",
+                        objectMapper.readTree("{\"items\":[{\"sku\":\"a\",\"quantity\":2}]}")),
+                new DownstreamBatchItem("no-method", "orders", null, objectMapper.readTree("{}")),
+                new DownstreamBatchItem("unknown", "payments", "charge", objectMapper.readTree("{}")),
+                new DownstreamBatchItem("no-body", "orders", "total", null),
+                new DownstreamBatchItem("malformed", "orders", "total", objectMapper.readTree("[1]")));
+
+        List<DownstreamBatchResult> results = controller.batch(items, 2)
+                .collectSortedList(Comparator.comparingLong(DownstreamBatchResult::getIndex))
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(List.of(200, 400, 404, 400, 400),
+                results.stream().map(DownstreamBatchResult::getStatus).toList());
+        assertEquals(List.of("ok", "no-method", "unknown", "no-body", "malformed"),
+                results.stream().map(DownstreamBatchResult::getId).toList());
+        assertEquals(2, results.get(0).getBody());
+    }
+
+    @Test
+    void capsBatchParallelism() {
+        properties.setMaxBatchParallelism(2);
+        Flux<DownstreamBatchItem> items = Flux.range(0, 8)
+                .map(i -> new DownstreamBatchItem(null, "orders", "slow", IntNode.valueOf(i)));
+
+        List<DownstreamBatchResult> results = controller.batch(items, 16).collectList().block(Duration.ofSeconds(5));
+
+        assertEquals(8, results.size());
+        assertTrue(controller.orders.maxActive.get() <= 2, "max active " + controller.orders.maxActive.get());
+    }
+
+    private static Flux<DataBuffer> body(String json) {
+        return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static class Controller extends DownstreamController {
+        private final Orders orders = new Orders();
+
+        Controller(ObjectMapper objectMapper) {
+            super(objectMapper);
+        }
+    }
+
+    static class Orders {
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger maxActive = new AtomicInteger();
+
+        public int total(Order order) {
+            return order.items().stream().mapToInt(Item::quantity).sum();
+        }
+
+        public int slow(Integer value) throws InterruptedException {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                return value;
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    record Order(List<Item> items) {
+    }
+
+    record Item(String sku, int quantity) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.vik.utils.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownstreamDispatchTableTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DownstreamDispatchTable table = DownstreamDispatchTable.build(new Controller(), objectMapper);
+
+    @Test
+    void findsSingleArgumentPublicMethodsOfServiceFields() throws InvocationTargetException {
+        DownstreamDispatchTable.Entry entry = table.find("inventory", "count");
+
+        assertNotNull(entry);
+        assertEquals(3, entry.invoke(List.of("a", "b", "c")));
+        assertTrue(table.hasService("inventory"));
+        assertFalse(table.hasService("missing"));
+        assertNull(table.find("missing", "count"));
+        assertNull(table.find(null, "count"));
+        assertNull(table.find("inventory", null));
+    }
+
+    @Test
+    void skipsMethodsThatCannotBeDispatched() {
+        assertNull(table.find("inventory", "twoArguments"));
+        assertNull(table.find("inventory", "noArguments"));
+        assertNull(table.find("inventory", "staticMethod"));
+        assertNull(table.find("inventory", "hidden"));
+        assertNull(table.find("constant", "length"));
+    }
+
+    @Test
+    void overloadsResolveToTheSmallestGenericSignature() throws InvocationTargetException {
+        DownstreamDispatchTable.Entry entry = table.find("inventory", "lookup");
+
+        // "...lookup(java.lang.Integer)" sorts before "...lookup(java.lang.String)"
+        assertEquals(Integer.class, entry.getTarget().getParameterTypes()[0]);
+        assertEquals("int:7", entry.invoke(7));
+    }
+
+    @Test
+    void keepsTheGenericParameterTypeForReading() throws Exception {
+        DownstreamDispatchTable.Entry entry = table.find("inventory", "total");
+
+        Object request = entry.getReader().readValue("{\"a\":2,\"b\":3}");
+
+        assertEquals(Map.class, entry.getParameterType().getRawClass());
+        assertEquals(Long.class, entry.getParameterType().getContentType().getRawClass());
+        assertEquals(5L, entry.invoke(request));
+    }
+
+    @Test
+    void wrapsWhateverTheServiceThrows() {
+        DownstreamDispatchTable.Entry entry = table.find("inventory", "fail");
+
+        InvocationTargetException error = assertThrows(InvocationTargetException.class, () -> entry.invoke("boom"));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals("boom", error.getCause().getMessage());
+    }
+
+    static class Controller {
+        private final Inventory inventory = new Inventory();
+        private static final String constant = "static fields are not services";
+    }
+
+    static class Inventory {
+        public int count(List<String> items) {
+            return items.size();
+        }
+
+        public String lookup(String id) {
+            return "string:" + id;
+        }
+
+        public String lookup(Integer id) {
+            return "int:" + id;
+        }
+
+        public long total(Map<String, Long> amounts) {
+            return amounts.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public String fail(String message) {
+            throw new IllegalStateException(message);
+        }
+
+        public String twoArguments(String a, String b) {
+            return a + b;
+        }
+
+        public String noArguments() {
+            return "";
+        }
+
+        public static String staticMethod(String value) {
+            return value;
+        }
+
+        private String hidden(String value) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.vik.utils.load;
+
+import com.vik.utils.aop.annotations.ControlleraInstrumentation;
+import com.vik.utils.aop.annotations.PooledDownstreamLog;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end per-request cost of {@code @ControlleraInstrumentation} + {@code @PooledDownstreamLog} +
+ * {@code MetricsService}: the same handler and downstream call are served on {@code /load/bare} without any
+ * instrumentation and on {@code /load/instrumented} with it, against an in-process stub downstream, and
+ * driven closed- and open-loop. Results go to stdout and {@code load.report}.
+ * <p>
+ * Excluded from {@code test}; run with {@code ./gradlew loadTest}, tuning it with {@code -Dload.*} (see
+ * {@link Settings}) and the library itself with {@code -Dutils.*}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.cloud.config.enabled=false",
+    "spring.cloud.discovery.enabled=false",
+    "spring.cloud.bus.enabled=false"
+})
+class DownstreamOverheadLoadTest {
+
+    private static final Settings SETTINGS = new Settings();
+    private static StubDownstreamServer stub;
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void stubDownstream(DynamicPropertyRegistry registry) {
+        stub = new StubDownstreamServer(LatencyDistribution.parse(SETTINGS.stubLatency), SETTINGS.payloadBytes);
+        registry.add("load.stub-url", stub::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void instrumentationOverhead() throws IOException {
+        WebClient client = webClient("load-generator", SETTINGS.maxOutstanding);
+        Supplier<Mono<?>> bare = () -> client.get().uri("/load/bare").retrieve().toBodilessEntity();
+        Supplier<Mono<?>> instrumented = () -> client.get().uri("/load/instrumented").retrieve().toBodilessEntity();
+
+        // JIT, connection pools and meter registration settle before anything is measured
+        LoadGenerator.closedLoop("warmup bare", bare, SETTINGS.concurrency, SETTINGS.warmup);
+        LoadGenerator.closedLoop("warmup instrumented", instrumented, SETTINGS.concurrency, SETTINGS.warmup);
+
+        List<LoadGenerator.LoadResult> results = new ArrayList<>();
+        if (!"open".equals(SETTINGS.mode)) {
+            results.add(LoadGenerator.closedLoop("bare", bare, SETTINGS.concurrency, SETTINGS.duration));
+            results.add(LoadGenerator.closedLoop("instrumented", instrumented, SETTINGS.concurrency, SETTINGS.duration));
+        }
+        if (!"closed".equals(SETTINGS.mode)) {
+            results.add(LoadGenerator.openLoop("bare", bare, SETTINGS.rate, SETTINGS.maxOutstanding, SETTINGS.duration));
+            results.add(LoadGenerator.openLoop(
+                    "instrumented", instrumented, SETTINGS.rate, SETTINGS.maxOutstanding, SETTINGS.duration));
+        }
+        report(results);
+
+        for (LoadGenerator.LoadResult result : results) {
+            assertTrue(result.requests() > 0, () -> "No request completed in " + result);
+        }
+    }
+
+    private WebClient webClient(String name, int maxConnections) {
+        ConnectionProvider connections = ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        return WebClient.builder()
+                .baseUrl("http://127.0.0.1:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+    }
+
+    private void report(List<LoadGenerator.LoadResult> results) throws IOException {
+        StringBuilder report = new StringBuilder()
+                .append("stub latency ").append(SETTINGS.stubLatency)
+                .append(", payload ").append(SETTINGS.payloadBytes).append(" B")
+                .append(", duration ").append(SETTINGS.duration).append('\n')
+                .append(LoadGenerator.LoadResult.header()).append('\n');
+        results.forEach(result -> report.append(result).append('\n'));
+        System.out.print(report);
+
+        Path path = Paths.get(SETTINGS.report);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.writeString(path, report);
+    }
+
+    /**
+     * Harness knobs, read from {@code -Dload.*} system properties.
+     */
+    static final class Settings {
+        final Duration warmup = duration("load.warmup", "10s");
+        final Duration duration = duration("load.duration", "30s");
+        /**
+         * {@code closed}, {@code open} or {@code both}.
+         */
+        final String mode = System.getProperty("load.mode", "both");
+        final int concurrency = Integer.getInteger("load.concurrency", 64);
+        final double rate = Double.parseDouble(System.getProperty("load.rate", "2000"));
+        final int maxOutstanding = Integer.getInteger("load.max-outstanding", 1024);
+        final String stubLatency = System.getProperty("load.stub-latency", "lognormal:5ms:0.5");
+        final int payloadBytes = Integer.getInteger("load.payload-bytes", 2048);
+        final String report = System.getProperty("load.report", "build/reports/load/overhead.txt");
+
+        private static Duration duration(String key, String defaultValue) {
+            return DurationStyle.detectAndParse(System.getProperty(key, defaultValue));
+        }
+    }
+
+    @TestConfiguration
+    static class LoadHarnessConfiguration {
+
+        @Bean
+        StubClient stubClient(@Value("${load.stub-url}") String stubUrl) {
+            ConnectionProvider connections = ConnectionProvider.builder("stub-downstream")
+                    .maxConnections(SETTINGS.maxOutstanding)
+                    .pendingAcquireMaxCount(-1)
+                    .build();
+            return new StubClient(WebClient.builder()
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                    .build(), stubUrl);
+        }
+
+        @Bean
+        LoadEndpoints loadEndpoints(StubClient stubClient) {
+            return new LoadEndpoints(stubClient);
+        }
+
+        // Functional routes, so the harness endpoints never leak into component scanning of other tests
+        @Bean
+        RouterFunction<ServerResponse> loadRoutes(LoadEndpoints endpoints) {
+            return RouterFunctions.route()
+                    .GET("/load/bare", request -> respond(endpoints.bare()))
+                    .GET("/load/instrumented", request -> respond(endpoints.instrumented()))
+                    .build();
+        }
+
+        private static Mono<ServerResponse> respond(Mono<ResponseEntity<Object>> result) {
+            return result.flatMap(entity -> ServerResponse.status(entity.getStatusCode())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(entity.getBody() != null ? entity.getBody() : ""));
+        }
+    }
+
+    /**
+     * The downstream call, with and without {@link PooledDownstreamLog}.
+     */
+    static class StubClient {
+        private final WebClient webClient;
+        private final String baseUrl;
+
+        StubClient(WebClient webClient, String baseUrl) {
+            this.webClient = webClient;
+            this.baseUrl = baseUrl;
+        }
+
+        @PooledDownstreamLog
+        public Mono<String> instrumented(String url) {
+            return fetch(url);
+        }
+
+        public Mono<String> bare(String url) {
+            return fetch(url);
+        }
+
+        String url(String path) {
+            return baseUrl + path;
+        }
+
+        private Mono<String> fetch(String url) {
+            return webClient.get().uri(url).retrieve().bodyToMono(String.class);
+        }
+    }
+
+    /**
+     * The handler, with and without {@link ControlleraInstrumentation}.
+     */
+    static class LoadEndpoints {
+        private final StubClient stubClient;
+
+        LoadEndpoints(StubClient stubClient) {
+            this.stubClient = stubClient;
+        }
+
+        @ControlleraInstrumentation(apiPath = "/load/instrumented")
+        public Mono<ResponseEntity<Object>> instrumented() {
+            return stubClient.instrumented(stubClient.url("/stub/instrumented")).map(ResponseEntity::ok);
+        }
+
+        public Mono<ResponseEntity<Object>> bare() {
+            return stubClient.bare(stubClient.url("/stub/bare")).map(ResponseEntity::ok);
+        }
+    }
+}
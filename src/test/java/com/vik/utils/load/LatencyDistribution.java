@@ -0,0 +1,41 @@
+package com.vik.utils.load;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Response delay of the stub downstream, parsed from {@code fixed:5ms}, {@code uniform:2ms:10ms} or
+ * {@code lognormal:5ms:0.5} (median and sigma of the underlying normal).
+ */
+interface LatencyDistribution {
+
+    long nextNanos();
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        switch (parts[0].toLowerCase()) {
+            case "fixed": {
+                long nanos = DurationStyle.detectAndParse(parts[1]).toNanos();
+                return () -> nanos;
+            }
+            case "uniform": {
+                long min = DurationStyle.detectAndParse(parts[1]).toNanos();
+                long max = DurationStyle.detectAndParse(parts[2]).toNanos();
+                return () -> min + (long) (ThreadLocalRandom.current().nextDouble() * (max - min));
+            }
+            case "lognormal": {
+                double median = DurationStyle.detectAndParse(parts[1]).toNanos();
+                double sigma = Double.parseDouble(parts[2]);
+                return () -> (long) (median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+            }
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        }
+    }
+
+    default Duration next() {
+        return Duration.ofNanos(Math.max(0, nextNanos()));
+    }
+}
@@ -0,0 +1,144 @@
+package com.vik.utils.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Drives a request supplier either closed-loop (a fixed number of callers, each sending its next request when
+ * the previous one completes) or open-loop (requests sent at a fixed rate whether or not earlier ones
+ * completed). Open-loop latencies are measured from each request's intended send time, so a stalled server
+ * is not hidden by the generator slowing down with it.
+ */
+final class LoadGenerator {
+
+    private LoadGenerator() {
+    }
+
+    static LoadResult closedLoop(String name, Supplier<Mono<?>> call, int concurrency, Duration duration) {
+        Recorder recorder = new Recorder();
+        long deadline = System.nanoTime() + duration.toNanos();
+        Flux.range(0, concurrency)
+                .flatMap(worker -> Mono.defer(() -> recorder.timed(call, System.nanoTime()))
+                        .repeat(() -> System.nanoTime() < deadline), concurrency)
+                .blockLast();
+        return recorder.finish(name + " closed(" + concurrency + ")");
+    }
+
+    static LoadResult openLoop(String name, Supplier<Mono<?>> call, double ratePerSecond, int maxOutstanding,
+                               Duration duration) {
+        Recorder recorder = new Recorder();
+        long periodNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        long count = duration.toNanos() / periodNanos;
+        long start = System.nanoTime();
+        Flux.interval(Duration.ZERO, Duration.ofNanos(periodNanos))
+                .take(count)
+                .onBackpressureDrop(tick -> recorder.dropped.increment())
+                .flatMap(tick -> recorder.timed(call, start + tick * periodNanos), maxOutstanding)
+                .blockLast();
+        return recorder.finish(name + " open(" + (long) ratePerSecond + "/s)");
+    }
+
+    /**
+     * Bytes allocated so far by all threads of this JVM, or -1 when the JVM cannot tell.
+     */
+    static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getTotalThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static final class Recorder {
+        private final Histogram latencyMicros = new ConcurrentHistogram(3);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final long startNanos = System.nanoTime();
+        private final long startAllocated = allocatedBytes();
+
+        private Mono<Object> timed(Supplier<Mono<?>> call, long intendedNanos) {
+            return call.get()
+                    .cast(Object.class)
+                    .doOnSuccess(value -> latencyMicros.recordValue(
+                            TimeUnit.NANOSECONDS.toMicros(Math.max(0, System.nanoTime() - intendedNanos))))
+                    .onErrorResume(e -> {
+                        errors.increment();
+                        return Mono.empty();
+                    });
+        }
+
+        private LoadResult finish(String name) {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            long allocated = startAllocated < 0 ? -1 : allocatedBytes() - startAllocated;
+            return new LoadResult(name, latencyMicros, errors.sum(), dropped.sum(), elapsedNanos, allocated);
+        }
+    }
+
+    static final class LoadResult {
+        private final String name;
+        private final Histogram latencyMicros;
+        private final long errors;
+        private final long dropped;
+        private final long elapsedNanos;
+        private final long allocatedBytes;
+
+        private LoadResult(String name, Histogram latencyMicros, long errors, long dropped, long elapsedNanos,
+                           long allocatedBytes) {
+            this.name = name;
+            this.latencyMicros = latencyMicros;
+            this.errors = errors;
+            this.dropped = dropped;
+            this.elapsedNanos = elapsedNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        long requests() {
+            return latencyMicros.getTotalCount();
+        }
+
+        long errors() {
+            return errors;
+        }
+
+        double throughput() {
+            return requests() / (elapsedNanos / 1e9);
+        }
+
+        long percentileMicros(double percentile) {
+            return latencyMicros.getValueAtPercentile(percentile);
+        }
+
+        /**
+         * Allocation rate in MB/s and per completed request; includes the load generator itself, which costs
+         * the same whether instrumentation is on or off.
+         */
+        double allocationMbPerSecond() {
+            return allocatedBytes < 0 ? -1 : allocatedBytes / (elapsedNanos / 1e9) / (1024 * 1024);
+        }
+
+        long allocatedBytesPerRequest() {
+            return allocatedBytes < 0 || requests() == 0 ? -1 : allocatedBytes / requests();
+        }
+
+        static String header() {
+            return String.format("%-36s %10s %8s %8s %10s %9s %9s %9s %10s %10s",
+                    "scenario", "requests", "errors", "dropped", "req/s", "p50(us)", "p99(us)", "p999(us)",
+                    "alloc MB/s", "B/request");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-36s %10d %8d %8d %10.0f %9d %9d %9d %10.1f %10d",
+                    name, requests(), errors, dropped, throughput(), percentileMicros(50), percentileMicros(99),
+                    percentileMicros(99.9), allocationMbPerSecond(), allocatedBytesPerRequest());
+        }
+    }
+}
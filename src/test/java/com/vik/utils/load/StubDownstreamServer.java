@@ -0,0 +1,49 @@
+package com.vik.utils.load;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * In-process downstream on loopback: every request is answered with a JSON payload of roughly
+ * {@code payloadBytes} after a delay drawn from the latency distribution.
+ */
+final class StubDownstreamServer implements AutoCloseable {
+
+    private final DisposableServer server;
+
+    StubDownstreamServer(LatencyDistribution latency, int payloadBytes) {
+        byte[] payload = payload(payloadBytes);
+        this.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle((request, response) -> {
+                    Duration delay = latency.next();
+                    Mono<Void> send = Mono.from(response
+                            .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                            .sendByteArray(Mono.just(payload)));
+                    return delay.isZero() ? send : Mono.delay(delay).then(send);
+                })
+                .bindNow();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private static byte[] payload(int payloadBytes) {
+        String prefix = "{\"data\":\"";
+        String suffix = "\"}";
+        int fill = Math.max(0, payloadBytes - prefix.length() - suffix.length());
+        return (prefix + "x".repeat(fill) + suffix).getBytes(StandardCharsets.UTF_8);
+    }
+}
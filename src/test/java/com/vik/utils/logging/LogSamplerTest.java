@@ -0,0 +1,59 @@
+package com.vik.utils.logging;
+
+import com.vik.utils.MetricsService;
+import com.vik.utils.config.LoggingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogSamplerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LogSampler sampler = new LogSampler(new LoggingProperties(), new MetricsService(registry));
+
+    @Test
+    void negativeAnnotationValuesFallBackToDefaults() {
+        LogPolicy policy = sampler.policy("Client.get", -1, -1, -1, true);
+        assertEquals(1.0, policy.getSampleRate(), 0);
+        assertEquals(0, policy.getMaxLogsPerSecond(), 0);
+        assertEquals(0, policy.getSlowCallThresholdNanos());
+        assertTrue(policy.isAlwaysLogErrors());
+    }
+
+    @Test
+    void sameKeyWithDifferentSettingsGetsItsOwnPolicy() {
+        LogPolicy sampled = sampler.policy("Client.get", 0.5, -1, -1, true);
+        LogPolicy unsampled = sampler.policy("Client.get", 0, -1, 100, false);
+        assertEquals(0.5, sampled.getSampleRate(), 0);
+        assertEquals(0, unsampled.getSampleRate(), 0);
+        assertFalse(unsampled.isAlwaysLogErrors());
+        assertSame(sampled, sampler.policy("Client.get", 0.5, -1, -1, true));
+    }
+
+    @Test
+    void capsSampledLogsPerSecondAndCountsSuppressed() {
+        LogPolicy policy = sampler.policy("Client.get", 1, 2, -1, true);
+        assertTrue(sampler.sample("Client.get", policy));
+        assertTrue(sampler.sample("Client.get", policy));
+        assertFalse(sampler.sample("Client.get", policy));
+        assertEquals(1, registry.get("Log_Suppressed").tag("key", "Client.get").counter().count(), 0);
+    }
+
+    @Test
+    void sameKeyWithDifferentRateLimitsDoesNotShareABucket() {
+        LogPolicy strict = sampler.policy("Client.get", 1, 1, -1, true);
+        LogPolicy loose = sampler.policy("Client.get", 1, 100, -1, true);
+        assertTrue(sampler.sample("Client.get", strict));
+        assertFalse(sampler.sample("Client.get", strict));
+        assertTrue(sampler.sample("Client.get", loose));
+    }
+
+    @Test
+    void zeroSampleRateNeverSamples() {
+        LogPolicy policy = sampler.policy("Client.get", 0, -1, -1, true);
+        for (int i = 0; i < 100; i++) {
+            assertFalse(sampler.sample("Client.get", policy));
+        }
+    }
+}
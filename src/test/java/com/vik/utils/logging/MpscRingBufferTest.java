@@ -0,0 +1,95 @@
+package com.vik.utils.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingBufferTest {
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(2, new MpscRingBuffer<String>(0).capacity());
+        assertEquals(8, new MpscRingBuffer<String>(5).capacity());
+        assertEquals(8, new MpscRingBuffer<String>(8).capacity());
+    }
+
+    @Test
+    void rejectsOffersWhenFullAndAcceptsAgainAfterPoll() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        assertEquals(List.of(1, 2, 3, 4), drain(buffer));
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void rejectsNull() {
+        assertThrows(NullPointerException.class, () -> new MpscRingBuffer<String>(4).offer(null));
+    }
+
+    @Test
+    void deliversEveryElementOncePerProducerInOrder() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 50_000;
+        MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (long i = 0; i < perProducer; i++) {
+                        long[] element = {producer, i};
+                        while (!buffer.offer(element)) {
+                            Thread.yield();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+
+            long[] next = new long[producers];
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            for (int received = 0; received < producers * perProducer; ) {
+                long[] element = buffer.poll();
+                if (element == null) {
+                    assertTrue(System.nanoTime() < deadline, "producers stalled");
+                    Thread.yield();
+                    continue;
+                }
+                assertEquals(next[(int) element[0]]++, element[1]);
+                received++;
+            }
+            assertNull(buffer.poll());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <E> List<E> drain(MpscRingBuffer<E> buffer) {
+        List<E> drained = new ArrayList<>();
+        for (E element = buffer.poll(); element != null; element = buffer.poll()) {
+            drained.add(element);
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,91 @@
+package com.vik.utils.logging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vik.utils.config.LoggingProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadSerializerTest {
+
+    private static final String MARKER = "...<truncated>";
+
+    @Test
+    void cutsPayloadsAtTheByteLimit() {
+        PayloadSerializer serializer = serializer(payload -> payload.setMaxBytes(10));
+
+        assertEquals("abcdefghij" + MARKER, serializer.serialize("abcdefghijklmnop"));
+        assertEquals("[\"abcdefgh" + MARKER, serializer.serialize(List.of("abcdefghijklmnop")));
+        assertEquals("short", serializer.serialize("short"));
+    }
+
+    @Test
+    void truncatesOnCodePointBoundaries() {
+        // The euro sign is three UTF-8 bytes and the emoji a surrogate pair encoded in four
+        assertEquals("ab" + MARKER, serializer(payload -> payload.setMaxBytes(4)).serialize("ab€cd"));
+        assertEquals("a" + MARKER, serializer(payload -> payload.setMaxBytes(3)).serialize("a😀b"));
+        assertEquals("a😀" + MARKER,
+                serializer(payload -> payload.setMaxBytes(5)).serialize("a😀b"));
+    }
+
+    @Test
+    void stopsAtTheNestingLimit() {
+        PayloadSerializer serializer = serializer(payload -> payload.setMaxDepth(2));
+
+        String rendered = serializer.serialize(Map.of("a", Map.of("b", Map.of("c", 1))));
+
+        assertTrue(rendered.startsWith("{\"a\":{\"b\":"), rendered);
+        assertTrue(rendered.endsWith(MARKER), rendered);
+        assertFalse(rendered.contains("\"c\""), rendered);
+    }
+
+    @Test
+    void redactsBeanPropertiesAndMapKeys() {
+        PayloadSerializer serializer = serializer(payload -> payload.setRedactedFields(Set.of("password", "TOKEN")));
+        Map<String, Object> headers = new TreeMap<>(Map.of("token", "abc", "user", "bob"));
+
+        String bean = serializer.serialize(new Credentials("alice", "secret"));
+
+        assertTrue(bean.contains("\"user\":\"alice\""), bean);
+        assertTrue(bean.contains("\"password\":\"****\""), bean);
+        assertFalse(bean.contains("secret"), bean);
+        // The map keeps its own serializer, and so its ordering, with only the entry masked
+        assertEquals("{\"token\":\"****\",\"user\":\"bob\"}", serializer.serialize(headers));
+    }
+
+    @Test
+    void leavesMapsAloneWithoutRedactedFields() {
+        PayloadSerializer serializer = serializer(payload -> { });
+
+        assertEquals("{\"password\":\"secret\"}", serializer.serialize(Map.of("password", "secret")));
+    }
+
+    private static PayloadSerializer serializer(java.util.function.Consumer<LoggingProperties.Payload> customizer) {
+        LoggingProperties properties = new LoggingProperties();
+        customizer.accept(properties.getPayload());
+        return new PayloadSerializer(new ObjectMapper(), properties);
+    }
+
+    public static class Credentials {
+        private final String user;
+        private final String password;
+
+        Credentials(String user, String password) {
+            this.user = user;
+            this.password = password;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.vik.utils.logging;
+
+import com.vik.utils.config.LoggingProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StackTraceFingerprinterTest {
+
+    private final LoggingProperties properties = new LoggingProperties();
+
+    @Test
+    void logsTheFullTraceOnceAndSuppressesRepeats() {
+        StackTraceFingerprinter fingerprinter = new StackTraceFingerprinter(properties);
+        IllegalStateException failure = failure("Client.get", 40, "down");
+
+        String first = fingerprinter.render(failure);
+        String repeat = fingerprinter.render(failure);
+
+        assertTrue(first.startsWith("[fingerprint "), first);
+        assertTrue(first.contains("at Client.get"), first);
+        assertTrue(repeat.endsWith("1 repeats suppressed]"), repeat);
+        assertFalse(repeat.contains("at Client.get"), repeat);
+    }
+
+    @Test
+    void sameFailurePathGetsTheSameFingerprintWhateverTheMessage() {
+        StackTraceFingerprinter fingerprinter = new StackTraceFingerprinter(properties);
+
+        assertEquals(fingerprinter.fingerprint(failure("Client.get", 40, "order 1")),
+                fingerprinter.fingerprint(failure("Client.get", 40, "order 2")));
+        assertNotEquals(fingerprinter.fingerprint(failure("Client.get", 40, "down")),
+                fingerprinter.fingerprint(failure("Client.list", 40, "down")));
+    }
+
+    @Test
+    void onlyTheTopFramesMakeUpTheFingerprint() {
+        StackTraceFingerprinter fingerprinter = new StackTraceFingerprinter(properties);
+        IllegalStateException shallow = failure("Client.get", 40, "down");
+        IllegalStateException deep = failure("Client.get", 400, "down");
+
+        assertEquals(fingerprinter.fingerprint(shallow), fingerprinter.fingerprint(deep));
+    }
+
+    @Test
+    void newTracesPastTheLimitDoNotResetRecurringOnes() {
+        properties.getStackTraces().setMaxFingerprints(2);
+        StackTraceFingerprinter fingerprinter = new StackTraceFingerprinter(properties);
+        IllegalStateException recurring = failure("Client.get", 40, "down");
+        for (int i = 0; i < 3; i++) {
+            fingerprinter.render(recurring);
+        }
+
+        fingerprinter.render(failure("Client.list", 40, "down"));
+        fingerprinter.render(failure("Client.put", 40, "down"));
+
+        assertTrue(fingerprinter.render(recurring).endsWith("3 repeats suppressed]"));
+    }
+
+    // A trace whose top frame is the given method, padded to depth with identical framework frames
+    private static IllegalStateException failure(String method, int depth, String message) {
+        IllegalStateException failure = new IllegalStateException(message);
+        StackTraceElement[] frames = new StackTraceElement[depth];
+        frames[0] = new StackTraceElement(method.substring(0, method.indexOf('.')),
+                method.substring(method.indexOf('.') + 1), "Client.java", 10);
+        for (int i = 1; i < depth; i++) {
+            frames[i] = new StackTraceElement("Framework", "invoke", "Framework.java", i);
+        }
+        failure.setStackTrace(frames);
+        return failure;
+    }
+}
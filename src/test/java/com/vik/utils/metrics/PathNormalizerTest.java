@@ -0,0 +1,70 @@
+package com.vik.utils.metrics;
+
+import com.vik.utils.config.MetricsProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathNormalizerTest {
+
+    private final PathNormalizer normalizer = new PathNormalizer(new MetricsProperties());
+
+    @Test
+    void collapsesNumericSegments() {
+        assertEquals("/orders/{id}/items", normalizer.normalize("/orders/1234/items"));
+        assertEquals("/orders/{id}", normalizer.normalize("/orders/98"));
+        assertEquals("/orders/{id}/", normalizer.normalize("/orders/12/"));
+        assertEquals("{id}/items", normalizer.normalize("7/items"));
+    }
+
+    @Test
+    void collapsesUuidSegments() {
+        assertEquals("/users/{uuid}/profile",
+                normalizer.normalize("/users/123e4567-e89b-12d3-a456-426614174000/profile"));
+        assertEquals("/users/123e4567-e89b-12d3-a456_426614174000",
+                normalizer.normalize("/users/123e4567-e89b-12d3-a456_426614174000"));
+    }
+
+    @Test
+    void collapsesOnlyLongHexSegments() {
+        assertEquals("/blobs/{hash}", normalizer.normalize("/blobs/0123456789abcdefABCD"));
+        assertEquals("/blobs/cafe", normalizer.normalize("/blobs/cafe"));
+    }
+
+    @Test
+    void returnsTemplatesAndPlaceholdersUnchanged() {
+        String path = "/orders/{orderId}/items";
+        assertSame(path, normalizer.normalize(path));
+        assertNull(normalizer.normalize(null));
+        assertEquals("", normalizer.normalize(""));
+        assertEquals("-", normalizer.normalize("-"));
+        assertEquals("//", normalizer.normalize("//"));
+    }
+
+    @Test
+    void appliesRewritesBeforeSegmentRules() {
+        MetricsProperties properties = new MetricsProperties();
+        properties.getPathNormalization().getRewrites().put("[^/]+@[^/]+", "{email}");
+        PathNormalizer rewriting = new PathNormalizer(properties);
+
+        assertEquals("/users/{email}/orders/{id}", rewriting.normalize("/users/jo@example.com/orders/7"));
+    }
+
+    @Test
+    void appliesConfiguredSegmentPatterns() {
+        MetricsProperties properties = new MetricsProperties();
+        properties.getPathNormalization().getSegmentPatterns().add("[a-z]{2}-[A-Z]{2}");
+        PathNormalizer patterned = new PathNormalizer(properties);
+
+        assertEquals("/content/{var}/home", patterned.normalize("/content/en-US/home"));
+        assertEquals("/content/english/home", patterned.normalize("/content/english/home"));
+    }
+
+    @Test
+    void leavesPathsAloneWhenDisabled() {
+        MetricsProperties properties = new MetricsProperties();
+        properties.getPathNormalization().setEnabled(false);
+
+        assertEquals("/orders/1234", new PathNormalizer(properties).normalize("/orders/1234"));
+    }
+}
@@ -0,0 +1,119 @@
+package com.vik.utils.resilience;
+
+import com.vik.utils.config.ResilienceProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void admitsUpToTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config(ResilienceProperties.LimitAlgorithm.AIMD, 3));
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(3, limiter.getInFlight());
+
+        limiter.release(FAST, false);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void unsampledReleaseLeavesTheLimitAlone() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config(ResilienceProperties.LimitAlgorithm.AIMD, 4));
+        fill(limiter);
+        limiter.release(SLOW * 100, false);
+        assertEquals(4, limiter.getLimit());
+        assertEquals(3, limiter.getInFlight());
+    }
+
+    @Test
+    void aimdGrowsOnlyWhileTheLimitIsUsed() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config(ResilienceProperties.LimitAlgorithm.AIMD, 10));
+        assertTrue(limiter.tryAcquire());
+        limiter.release(FAST, true);
+        assertEquals(10, limiter.getLimit());
+
+        fill(limiter);
+        limiter.release(FAST, true);
+        assertEquals(11, limiter.getLimit());
+    }
+
+    @Test
+    void aimdBacksOffOnTimeoutsDownToTheMinimum() {
+        ResilienceProperties.ConcurrencyLimit config = config(ResilienceProperties.LimitAlgorithm.AIMD, 10);
+        config.setTimeout(Duration.ofMillis(50));
+        config.setBackoffRatio(0.5);
+        config.setMinLimit(2);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(SLOW, true);
+        assertEquals(5, limiter.getLimit());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(SLOW, true);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void initialLimitIsClampedToTheBounds() {
+        ResilienceProperties.ConcurrencyLimit config = config(ResilienceProperties.LimitAlgorithm.AIMD, 50);
+        config.setMaxLimit(8);
+        assertEquals(8, new AdaptiveConcurrencyLimiter(config).getLimit());
+    }
+
+    @Test
+    void gradientGrowsAtSteadyLatencyAndShrinksWhenLatencyClimbs() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config(ResilienceProperties.LimitAlgorithm.GRADIENT, 20));
+        for (int i = 0; i < 100; i++) {
+            saturatedSample(limiter, FAST);
+        }
+        int steady = limiter.getLimit();
+        assertTrue(steady > 20, "limit grew to " + steady);
+
+        for (int i = 0; i < 50; i++) {
+            saturatedSample(limiter, SLOW);
+        }
+        int congested = limiter.getLimit();
+        assertTrue(congested < steady / 2, "limit shrank from " + steady + " to " + congested);
+    }
+
+    @Test
+    void gradientIgnoresSamplesFromAnUnderusedLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config(ResilienceProperties.LimitAlgorithm.GRADIENT, 20));
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(i < 25 ? FAST : SLOW, true);
+        }
+        assertEquals(20, limiter.getLimit());
+    }
+
+    private static ResilienceProperties.ConcurrencyLimit config(ResilienceProperties.LimitAlgorithm algorithm, int initialLimit) {
+        ResilienceProperties.ConcurrencyLimit config = new ResilienceProperties.ConcurrencyLimit();
+        config.setAlgorithm(algorithm);
+        config.setInitialLimit(initialLimit);
+        return config;
+    }
+
+    private static void fill(AdaptiveConcurrencyLimiter limiter) {
+        while (limiter.tryAcquire()) {
+            // Hold every permit the limit allows
+        }
+    }
+
+    // One request completing while the limit is fully used
+    private static void saturatedSample(AdaptiveConcurrencyLimiter limiter, long rttNanos) {
+        fill(limiter);
+        limiter.release(rttNanos, true);
+    }
+}
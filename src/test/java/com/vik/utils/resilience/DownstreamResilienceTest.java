@@ -0,0 +1,88 @@
+package com.vik.utils.resilience;
+
+import com.vik.utils.MetricsService;
+import com.vik.utils.aop.annotations.PooledDownstreamLog;
+import com.vik.utils.config.ResilienceProperties;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DownstreamResilienceTest {
+
+    private final ResilienceProperties properties = new ResilienceProperties();
+    private DownstreamResilience resilience;
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+        if (resilience != null) {
+            resilience.close();
+        }
+    }
+
+    @Test
+    void threadPoolCallsRunWithTheCallersMdc() throws Throwable {
+        properties.getThreadPoolBulkhead().setCoreThreadPoolSize(1);
+        properties.getThreadPoolBulkhead().setMaxThreadPoolSize(1);
+        resilience = new DownstreamResilience(properties, new MetricsService(new SimpleMeterRegistry()));
+        ProceedingJoinPoint joinPoint = joinPoint(String.class);
+        when(joinPoint.proceed()).thenAnswer(invocation -> MDC.get("traceId"));
+
+        MDC.put("traceId", "t-1");
+        assertEquals("t-1", resilience.proceed(joinPoint, annotation("pooled"), "inventory", false));
+
+        // The single pool thread must not keep the previous caller's context
+        MDC.clear();
+        assertNull(resilience.proceed(joinPoint, annotation("pooled"), "inventory", false));
+    }
+
+    @Test
+    void breakersAreKeptPerKey() throws Throwable {
+        properties.getCircuitBreaker().setSlidingWindowSize(2);
+        properties.getCircuitBreaker().setMinimumNumberOfCalls(2);
+        resilience = new DownstreamResilience(properties, new MetricsService(new SimpleMeterRegistry()));
+        ProceedingJoinPoint failing = joinPoint(String.class);
+        when(failing.proceed()).thenThrow(new IllegalStateException("down"));
+        ProceedingJoinPoint healthy = joinPoint(String.class);
+        when(healthy.proceed()).thenReturn("ok");
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(IllegalStateException.class,
+                    () -> resilience.proceed(failing, annotation("guarded"), "Client.a", false));
+        }
+
+        assertThrows(CallNotPermittedException.class,
+                () -> resilience.proceed(healthy, annotation("guarded"), "Client.a", false));
+        assertEquals("ok", resilience.proceed(healthy, annotation("guarded"), "Client.b", false));
+    }
+
+    private static ProceedingJoinPoint joinPoint(Class<?> returnType) {
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getReturnType()).thenReturn(returnType);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        return joinPoint;
+    }
+
+    private static PooledDownstreamLog annotation(String method) throws NoSuchMethodException {
+        return Annotated.class.getDeclaredMethod(method).getAnnotation(PooledDownstreamLog.class);
+    }
+
+    static class Annotated {
+
+        @PooledDownstreamLog(bulkhead = PooledDownstreamLog.BulkheadType.THREAD_POOL)
+        void pooled() {
+        }
+
+        @PooledDownstreamLog(circuitBreaker = true)
+        void guarded() {
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.vik.utils.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RatioBudgetTest {
+
+    @Test
+    void startsEmpty() {
+        assertFalse(new RatioBudget(0.5, 10).tryAcquire());
+    }
+
+    @Test
+    void earnsOnePermitPerInverseRatioCalls() {
+        RatioBudget budget = new RatioBudget(0.25, 10);
+        for (int i = 0; i < 3; i++) {
+            budget.onCall();
+            assertFalse(budget.tryAcquire(), "after " + (i + 1) + " calls");
+        }
+        budget.onCall();
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    void capsBankedCreditAtBurst() {
+        RatioBudget budget = new RatioBudget(1, 3);
+        for (int i = 0; i < 100; i++) {
+            budget.onCall();
+        }
+        for (int i = 0; i < 3; i++) {
+            assertTrue(budget.tryAcquire());
+        }
+        assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    void zeroRatioNeverAllowsExtraWork() {
+        RatioBudget budget = new RatioBudget(0, 10);
+        for (int i = 0; i < 100; i++) {
+            budget.onCall();
+        }
+        assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    void rejectsNegativeRatio() {
+        assertThrows(IllegalArgumentException.class, () -> new RatioBudget(-0.1, 10));
+    }
+}
@@ -0,0 +1,44 @@
+package com.vik.utils.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    @Test
+    void allowsBurstThenRejects() {
+        TokenBucket bucket = new TokenBucket(1, 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryAcquire(), "permit " + i + " of the burst");
+        }
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void burstBelowOneStillAllowsOnePermit() {
+        TokenBucket bucket = new TokenBucket(1, 0);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void refillsAtTheSustainedRate() {
+        TokenBucket bucket = new TokenBucket(20, 1);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // One permit every 50ms, capped at the burst of one however long the bucket was idle
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void rejectsNonPositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+    }
+}